@@ -1,15 +1,22 @@
 package me.dineka.books_service;
 
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
+import me.dineka.books_service.config.StartupTimeReporter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @OpenAPIDefinition
 @SpringBootApplication
+@EnableScheduling
 public class BooksServiceApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(BooksServiceApplication.class, args);
+		SpringApplication application = new SpringApplication(BooksServiceApplication.class);
+		if (Boolean.getBoolean(StartupTimeReporter.PROBE_PROPERTY)) {
+			application.addListeners(new StartupTimeReporter());
+		}
+		application.run(args);
 	}
 
 }
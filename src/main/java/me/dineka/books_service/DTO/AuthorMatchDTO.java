@@ -0,0 +1,65 @@
+package me.dineka.books_service.DTO;
+
+import java.util.Objects;
+
+public class AuthorMatchDTO {
+    private Long id;
+    private String name;
+    private double similarity;
+
+    public AuthorMatchDTO() {}
+
+    public AuthorMatchDTO(Long id, String name, double similarity) {
+        this.id = id;
+        this.name = name;
+        this.similarity = similarity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Доля общих триграмм запроса и имени, от 0 до 1.
+     */
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(double similarity) {
+        this.similarity = similarity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        AuthorMatchDTO that = (AuthorMatchDTO) o;
+        return Double.compare(similarity, that.similarity) == 0 && Objects.equals(id, that.id) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, similarity);
+    }
+
+    @Override
+    public String toString() {
+        return "AuthorMatchDTO{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", similarity=" + similarity +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package me.dineka.books_service.DTO;
+
+import me.dineka.books_service.model.Author;
+
+import java.util.List;
+
+public class AuthorSliceDTO {
+    private List<Author> authors;
+    private String nextToken;
+    private boolean hasNext;
+    private Long total;
+
+    public AuthorSliceDTO() {}
+
+    public AuthorSliceDTO(List<Author> authors, String nextToken, boolean hasNext, Long total) {
+        this.authors = authors;
+        this.nextToken = nextToken;
+        this.hasNext = hasNext;
+        this.total = total;
+    }
+
+    public List<Author> getAuthors() {
+        return authors;
+    }
+
+    public void setAuthors(List<Author> authors) {
+        this.authors = authors;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Общее количество авторов, заполняется только по запросу ({@code withTotal=true}).
+     */
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,57 @@
+package me.dineka.books_service.DTO;
+
+import me.dineka.books_service.model.Author;
+
+import java.util.Objects;
+
+public class AuthorSuggestionDTO {
+    private Long id;
+    private String name;
+
+    public AuthorSuggestionDTO() {}
+
+    public AuthorSuggestionDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public static AuthorSuggestionDTO fromEntity(Author author) {
+        return new AuthorSuggestionDTO(author.getId(), author.getName());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        AuthorSuggestionDTO that = (AuthorSuggestionDTO) o;
+        return Objects.equals(id, that.id) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name);
+    }
+
+    @Override
+    public String toString() {
+        return "AuthorSuggestionDTO{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package me.dineka.books_service.DTO;
+
+import java.util.List;
+
+public class BookAggregateDTO {
+    private List<String> groupBy;
+    private long count;
+    private List<BookGroupDTO> groups;
+
+    public BookAggregateDTO() {}
+
+    public BookAggregateDTO(List<String> groupBy, long count, List<BookGroupDTO> groups) {
+        this.groupBy = groupBy;
+        this.count = count;
+        this.groups = groups;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public List<BookGroupDTO> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<BookGroupDTO> groups) {
+        this.groups = groups;
+    }
+}
@@ -0,0 +1,82 @@
+package me.dineka.books_service.DTO;
+
+import java.util.List;
+
+public class BookAggregateRequestDTO {
+    private List<String> groupBy;
+    private List<String> genres;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private List<Long> authorIds;
+    private Integer authorBirthYearFrom;
+    private Integer authorBirthYearTo;
+
+    public BookAggregateRequestDTO() {}
+
+    public BookAggregateRequestDTO(List<String> groupBy, List<String> genres, Integer yearFrom, Integer yearTo,
+                                   List<Long> authorIds, Integer authorBirthYearFrom, Integer authorBirthYearTo) {
+        this.groupBy = groupBy;
+        this.genres = genres;
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+        this.authorIds = authorIds;
+        this.authorBirthYearFrom = authorBirthYearFrom;
+        this.authorBirthYearTo = authorBirthYearTo;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    public void setGenres(List<String> genres) {
+        this.genres = genres;
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public void setYearFrom(Integer yearFrom) {
+        this.yearFrom = yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    public void setYearTo(Integer yearTo) {
+        this.yearTo = yearTo;
+    }
+
+    public List<Long> getAuthorIds() {
+        return authorIds;
+    }
+
+    public void setAuthorIds(List<Long> authorIds) {
+        this.authorIds = authorIds;
+    }
+
+    public Integer getAuthorBirthYearFrom() {
+        return authorBirthYearFrom;
+    }
+
+    public void setAuthorBirthYearFrom(Integer authorBirthYearFrom) {
+        this.authorBirthYearFrom = authorBirthYearFrom;
+    }
+
+    public Integer getAuthorBirthYearTo() {
+        return authorBirthYearTo;
+    }
+
+    public void setAuthorBirthYearTo(Integer authorBirthYearTo) {
+        this.authorBirthYearTo = authorBirthYearTo;
+    }
+}
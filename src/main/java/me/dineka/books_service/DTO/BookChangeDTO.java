@@ -0,0 +1,107 @@
+package me.dineka.books_service.DTO;
+
+import me.dineka.books_service.model.BookChange;
+
+import java.util.Objects;
+
+public class BookChangeDTO {
+    private Long sequence;
+    private BookChange.Type type;
+    private Long bookId;
+    private String title;
+    private Long authorId;
+    private String genre;
+    private Integer year;
+
+    public BookChangeDTO() {}
+
+    public BookChangeDTO(Long sequence, BookChange.Type type, Long bookId, String title, Long authorId, String genre, Integer year) {
+        this.sequence = sequence;
+        this.type = type;
+        this.bookId = bookId;
+        this.title = title;
+        this.authorId = authorId;
+        this.genre = genre;
+        this.year = year;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public BookChange.Type getType() {
+        return type;
+    }
+
+    public void setType(BookChange.Type type) {
+        this.type = type;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public static BookChangeDTO fromEntity(BookChange change) {
+        return new BookChangeDTO(
+                change.getId(),
+                change.getType(),
+                change.getBookId(),
+                change.getTitle(),
+                change.getAuthorId(),
+                change.getGenre(),
+                change.getYear()
+        );
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        BookChangeDTO that = (BookChangeDTO) o;
+        return Objects.equals(sequence, that.sequence) && type == that.type && Objects.equals(bookId, that.bookId) && Objects.equals(title, that.title) && Objects.equals(authorId, that.authorId) && Objects.equals(genre, that.genre) && Objects.equals(year, that.year);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sequence, type, bookId, title, authorId, genre, year);
+    }
+}
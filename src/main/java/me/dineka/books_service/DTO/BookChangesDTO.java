@@ -0,0 +1,41 @@
+package me.dineka.books_service.DTO;
+
+import java.util.List;
+
+public class BookChangesDTO {
+    private List<BookChangeDTO> changes;
+    private String nextToken;
+    private boolean hasMore;
+
+    public BookChangesDTO() {}
+
+    public BookChangesDTO(List<BookChangeDTO> changes, String nextToken, boolean hasMore) {
+        this.changes = changes;
+        this.nextToken = nextToken;
+        this.hasMore = hasMore;
+    }
+
+    public List<BookChangeDTO> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<BookChangeDTO> changes) {
+        this.changes = changes;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,51 @@
+package me.dineka.books_service.DTO;
+
+import java.util.Map;
+
+public class BookGroupDTO {
+    private Map<String, Object> key;
+    private long count;
+    private int minYear;
+    private int maxYear;
+
+    public BookGroupDTO() {}
+
+    public BookGroupDTO(Map<String, Object> key, long count, int minYear, int maxYear) {
+        this.key = key;
+        this.count = count;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+    }
+
+    public Map<String, Object> getKey() {
+        return key;
+    }
+
+    public void setKey(Map<String, Object> key) {
+        this.key = key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public int getMinYear() {
+        return minYear;
+    }
+
+    public void setMinYear(int minYear) {
+        this.minYear = minYear;
+    }
+
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    public void setMaxYear(int maxYear) {
+        this.maxYear = maxYear;
+    }
+}
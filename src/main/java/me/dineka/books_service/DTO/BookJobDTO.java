@@ -0,0 +1,77 @@
+package me.dineka.books_service.DTO;
+
+import java.util.Objects;
+
+public class BookJobDTO {
+    private String id;
+    private Status status;
+    private Long bookId;
+    private String error;
+
+    public BookJobDTO() {}
+
+    public BookJobDTO(String id, Status status, Long bookId, String error) {
+        this.id = id;
+        this.status = status;
+        this.bookId = bookId;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        BookJobDTO that = (BookJobDTO) o;
+        return Objects.equals(id, that.id) && status == that.status && Objects.equals(bookId, that.bookId) && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, status, bookId, error);
+    }
+
+    @Override
+    public String toString() {
+        return "BookJobDTO{" +
+                "id='" + id + '\'' +
+                ", status=" + status +
+                ", bookId=" + bookId +
+                ", error='" + error + '\'' +
+                '}';
+    }
+
+    public enum Status {
+        PENDING, DONE, FAILED
+    }
+}
@@ -0,0 +1,31 @@
+package me.dineka.books_service.DTO;
+
+import java.util.List;
+
+public class BooksDeletedDTO {
+    private int deleted;
+    private List<Long> ids;
+
+    public BooksDeletedDTO() {}
+
+    public BooksDeletedDTO(List<Long> ids) {
+        this.deleted = ids.size();
+        this.ids = ids;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(int deleted) {
+        this.deleted = deleted;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
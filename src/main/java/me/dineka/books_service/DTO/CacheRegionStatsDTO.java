@@ -0,0 +1,96 @@
+package me.dineka.books_service.DTO;
+
+import org.hibernate.stat.CacheRegionStatistics;
+
+import java.util.Objects;
+
+public class CacheRegionStatsDTO {
+    private String region;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long elementCount;
+
+    public CacheRegionStatsDTO() {}
+
+    public CacheRegionStatsDTO(String region, long hitCount, long missCount, long putCount, long elementCount) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.elementCount = elementCount;
+    }
+
+    public static CacheRegionStatsDTO fromStatistics(String region, CacheRegionStatistics statistics) {
+        return new CacheRegionStatsDTO(
+                region,
+                statistics.getHitCount(),
+                statistics.getMissCount(),
+                statistics.getPutCount(),
+                statistics.getElementCountInMemory()
+        );
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public long getPutCount() {
+        return putCount;
+    }
+
+    public void setPutCount(long putCount) {
+        this.putCount = putCount;
+    }
+
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheRegionStatsDTO that = (CacheRegionStatsDTO) o;
+        return hitCount == that.hitCount && missCount == that.missCount && putCount == that.putCount && elementCount == that.elementCount && Objects.equals(region, that.region);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(region, hitCount, missCount, putCount, elementCount);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheRegionStatsDTO{" +
+                "region='" + region + '\'' +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", putCount=" + putCount +
+                ", elementCount=" + elementCount +
+                '}';
+    }
+}
@@ -0,0 +1,118 @@
+package me.dineka.books_service.DTO;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+
+public class LatencyStatsDTO {
+    private String name;
+    private String phase;
+    private String window;
+    private long count;
+    private long p50Micros;
+    private long p90Micros;
+    private long p99Micros;
+    private long p999Micros;
+    private long maxMicros;
+
+    public LatencyStatsDTO() {}
+
+    public LatencyStatsDTO(String name, String phase, String window, long count,
+                           long p50Micros, long p90Micros, long p99Micros, long p999Micros, long maxMicros) {
+        this.name = name;
+        this.phase = phase;
+        this.window = window;
+        this.count = count;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public static LatencyStatsDTO fromHistogram(String name, String phase, Duration window, Histogram histogram) {
+        return new LatencyStatsDTO(
+                name,
+                phase,
+                window.toString(),
+                histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000,
+                histogram.getValueAtPercentile(90) / 1000,
+                histogram.getValueAtPercentile(99) / 1000,
+                histogram.getValueAtPercentile(99.9) / 1000,
+                histogram.getMaxValue() / 1000
+        );
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    public String getWindow() {
+        return window;
+    }
+
+    public void setWindow(String window) {
+        this.window = window;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public void setP50Micros(long p50Micros) {
+        this.p50Micros = p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public void setP90Micros(long p90Micros) {
+        this.p90Micros = p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public void setP99Micros(long p99Micros) {
+        this.p99Micros = p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public void setP999Micros(long p999Micros) {
+        this.p999Micros = p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public void setMaxMicros(long maxMicros) {
+        this.maxMicros = maxMicros;
+    }
+}
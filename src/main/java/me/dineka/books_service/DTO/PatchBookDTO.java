@@ -0,0 +1,93 @@
+package me.dineka.books_service.DTO;
+
+import java.util.Objects;
+
+/**
+ * Частичное изменение книги в формате JSON Merge Patch (RFC 7396).
+ *
+ * <p>Отсутствующее в документе поле не меняется. Сеттеры отмечают, что поле передано, поэтому
+ * явный {@code null} отличается от отсутствия поля и отклоняется валидацией.</p>
+ */
+public class PatchBookDTO {
+    private String title;
+    private String genre;
+    private Integer year;
+    private Long authorId;
+    private boolean titlePresent;
+    private boolean genrePresent;
+    private boolean yearPresent;
+    private boolean authorIdPresent;
+
+    public PatchBookDTO() {}
+
+    public String getTitle() {
+        return title;
+    }
+    public void setTitle(String title) {
+        this.title = title;
+        this.titlePresent = true;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+    public void setGenre(String genre) {
+        this.genre = genre;
+        this.genrePresent = true;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+    public void setYear(Integer year) {
+        this.year = year;
+        this.yearPresent = true;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+        this.authorIdPresent = true;
+    }
+
+    public boolean hasTitle() {
+        return titlePresent;
+    }
+
+    public boolean hasGenre() {
+        return genrePresent;
+    }
+
+    public boolean hasYear() {
+        return yearPresent;
+    }
+
+    public boolean hasAuthorId() {
+        return authorIdPresent;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        PatchBookDTO that = (PatchBookDTO) o;
+        return titlePresent == that.titlePresent && genrePresent == that.genrePresent && yearPresent == that.yearPresent && authorIdPresent == that.authorIdPresent
+                && Objects.equals(title, that.title) && Objects.equals(genre, that.genre) && Objects.equals(year, that.year) && Objects.equals(authorId, that.authorId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(title, genre, year, authorId, titlePresent, genrePresent, yearPresent, authorIdPresent);
+    }
+
+    @Override
+    public String toString() {
+        return "PatchBookDTO{" +
+                (titlePresent ? "title='" + title + "', " : "") +
+                (genrePresent ? "genre='" + genre + "', " : "") +
+                (yearPresent ? "year=" + year + ", " : "") +
+                (authorIdPresent ? "authorId=" + authorId : "") +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package me.dineka.books_service.config;
+
+import me.dineka.books_service.service.CatalogImporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Импорт каталога из CSV: {@code --books.import.file=/path/to/books.csv}.
+ *
+ * <p>После импорта приложение завершается; отчёт о количестве строк и скорости пишется в лог,
+ * отклонённые строки - в {@code books.csv.rejected.csv} рядом с файлом.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "books.import.file")
+public class CatalogImportRunner implements ApplicationRunner {
+    private final CatalogImporter catalogImporter;
+    private final ApplicationContext context;
+    private final Path file;
+
+    public CatalogImportRunner(CatalogImporter catalogImporter,
+                               ApplicationContext context,
+                               @Value("${books.import.file}") Path file) {
+        this.catalogImporter = catalogImporter;
+        this.context = context;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        catalogImporter.importFile(file);
+        System.exit(SpringApplication.exit(context));
+    }
+}
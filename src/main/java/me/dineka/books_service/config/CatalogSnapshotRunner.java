@@ -0,0 +1,46 @@
+package me.dineka.books_service.config;
+
+import me.dineka.books_service.service.CatalogSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Выгрузка и загрузка снимка каталога: {@code --books.snapshot.export=catalog.snap}
+ * или {@code --books.snapshot.load=catalog.snap}. После выполнения приложение завершается.
+ */
+@Component
+@ConditionalOnExpression("'${books.snapshot.export:}' != '' or '${books.snapshot.load:}' != ''")
+public class CatalogSnapshotRunner implements ApplicationRunner {
+    private final CatalogSnapshot catalogSnapshot;
+    private final ApplicationContext context;
+    private final String exportFile;
+    private final String loadFile;
+
+    public CatalogSnapshotRunner(CatalogSnapshot catalogSnapshot,
+                                 ApplicationContext context,
+                                 @Value("${books.snapshot.export:}") String exportFile,
+                                 @Value("${books.snapshot.load:}") String loadFile) {
+        this.catalogSnapshot = catalogSnapshot;
+        this.context = context;
+        this.exportFile = exportFile;
+        this.loadFile = loadFile;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!loadFile.isBlank()) {
+            catalogSnapshot.load(Path.of(loadFile));
+        }
+        if (!exportFile.isBlank()) {
+            catalogSnapshot.export(Path.of(exportFile));
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+}
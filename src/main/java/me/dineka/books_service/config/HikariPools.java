@@ -0,0 +1,26 @@
+package me.dineka.books_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/**
+ * Создание дополнительных пулов соединений с настройками {@code spring.datasource.*} и {@code spring.datasource.hikari.*}.
+ */
+final class HikariPools {
+
+    private HikariPools() {
+    }
+
+    static HikariDataSource create(DataSourceProperties properties, Environment environment, String url, String poolName) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        if (url != null && !url.isBlank()) {
+            pool.setJdbcUrl(url);
+        }
+        pool.setPoolName(poolName);
+        return pool;
+    }
+}
@@ -0,0 +1,28 @@
+package me.dineka.books_service.config;
+
+import me.dineka.books_service.controller.AuthorController;
+import me.dineka.books_service.controller.BookController;
+import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.repository.BookRepository;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LazyInitializationConfig {
+
+    /**
+     * Исключает контроллеры и репозитории из ленивой инициализации.
+     *
+     * <p>Действует только при {@code spring.main.lazy-initialization=true} (профиль {@code lazy}):
+     * обработчики запросов и слой доступа к данным поднимаются при старте, чтобы первый запрос
+     * не платил за их создание, остальные бины создаются по требованию.</p>
+     *
+     * @return фильтр {@link LazyInitializationExcludeFilter}
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerRequestPathFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(BookController.class, AuthorController.class,
+                BookRepository.class, AuthorRepository.class);
+    }
+}
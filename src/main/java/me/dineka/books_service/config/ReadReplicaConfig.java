@@ -0,0 +1,57 @@
+package me.dineka.books_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Разделение чтения и записи между основной базой и репликой (включается {@code books.datasource.replica.enabled=true}).
+ *
+ * <p>Оба пула настраиваются из {@code spring.datasource.*}, у реплики свои адрес и размер пула. Если адрес реплики
+ * не задан, она открывается вторым пулом к той же базе - локальная замена настоящей реплики.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "books.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean(defaultCandidate = false)
+    public ReadWriteRoutingDataSource routingDataSource(DataSourceProperties properties,
+                                                        Environment environment,
+                                                        @Value("${books.datasource.replica.url:}") String replicaUrl,
+                                                        @Value("${books.datasource.replica.username:}") String replicaUsername,
+                                                        @Value("${books.datasource.replica.password:}") String replicaPassword,
+                                                        @Value("${books.datasource.replica.maximum-pool-size:16}") int replicaPoolSize) {
+        HikariDataSource primary = HikariPools.create(properties, environment, null, "primary");
+        HikariDataSource replica = HikariPools.create(properties, environment, replicaUrl, "replica");
+        if (!replicaUsername.isBlank()) {
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+        }
+        replica.setMaximumPoolSize(replicaPoolSize);
+        replica.setReadOnly(true);
+
+        return new ReadWriteRoutingDataSource(primary, replica);
+    }
+
+    /**
+     * Источник данных приложения: соединение берётся только при первом выражении, когда уже известно,
+     * читающая ли транзакция.
+     *
+     * @param routingDataSource маршрутизирующий источник
+     * @return {@link DataSource} для JPA и JDBC
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("routingDataSource") ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
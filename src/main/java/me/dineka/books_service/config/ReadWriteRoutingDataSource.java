@@ -0,0 +1,89 @@
+package me.dineka.books_service.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Источник данных, направляющий {@code readOnly}-транзакции в пул реплики, а остальные соединения - в основной пул.
+ *
+ * <p>Маршрут выбирается при получении соединения, поэтому снаружи источник должен быть обёрнут в
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: к этому моменту признак
+ * {@code readOnly} текущей транзакции уже выставлен. Поток можно закрепить за основным пулом
+ * ({@link #pinToPrimary()}), чтобы клиент сразу видел собственные записи.</p>
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Map<Route, LongAdder> connections = new EnumMap<>(Route.class);
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        for (Route route : Route.values()) {
+            connections.put(route, new LongAdder());
+        }
+        afterPropertiesSet();
+    }
+
+    public static void pinToPrimary() {
+        PRIMARY_PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PRIMARY_PINNED.remove();
+    }
+
+    /**
+     * Проверяет, закреплён ли текущий поток за основным пулом.
+     *
+     * @return {@code true}, если чтения потока идут в основную базу
+     */
+    public static boolean isPinnedToPrimary() {
+        return PRIMARY_PINNED.get() != null;
+    }
+
+    /**
+     * Возвращает количество соединений, выданных по маршруту с момента старта.
+     *
+     * @param route маршрут
+     * @return количество соединений
+     */
+    public long getConnectionCount(Route route) {
+        return connections.get(route).sum();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route = TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !isPinnedToPrimary()
+                ? Route.REPLICA
+                : Route.PRIMARY;
+        connections.get(route).increment();
+        return route;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (replica instanceof Closeable closeable) {
+            closeable.close();
+        }
+        if (primary instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
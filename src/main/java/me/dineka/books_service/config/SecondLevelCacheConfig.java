@@ -0,0 +1,60 @@
+package me.dineka.books_service.config;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.List;
+
+/**
+ * Кэш второго уровня Hibernate на локальном JCache (Ehcache).
+ *
+ * <p>Регионы создаются заранее с ограничением по количеству записей из {@code books.cache.*},
+ * обращение к неописанному региону - ошибка старта. У каждого контекста свой менеджер кэшей.</p>
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String AUTHOR_REGION = "author";
+    public static final String AUTHOR_LIST_REGION = "author-list";
+    public static final String AUTHOR_DUPLICATE_CHECK_REGION = "author-duplicate-check";
+    public static final String BOOK_DUPLICATE_CHECK_REGION = "book-duplicate-check";
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    public static final List<String> REGIONS = List.of(AUTHOR_REGION, AUTHOR_LIST_REGION, AUTHOR_DUPLICATE_CHECK_REGION,
+            BOOK_DUPLICATE_CHECK_REGION, QUERY_RESULTS_REGION, UPDATE_TIMESTAMPS_REGION);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${books.cache.author.max-entries:10000}") long authors,
+                                              @Value("${books.cache.author-list.max-entries:1000}") long authorLists,
+                                              @Value("${books.cache.duplicate-check.max-entries:10000}") long duplicateChecks,
+                                              @Value("${books.cache.update-timestamps.max-entries:1000}") long timestamps) {
+        EhcacheCachingProvider provider = new EhcacheCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        createRegion(cacheManager, AUTHOR_REGION, authors);
+        createRegion(cacheManager, AUTHOR_LIST_REGION, authorLists);
+        createRegion(cacheManager, AUTHOR_DUPLICATE_CHECK_REGION, duplicateChecks);
+        createRegion(cacheManager, BOOK_DUPLICATE_CHECK_REGION, duplicateChecks);
+        createRegion(cacheManager, QUERY_RESULTS_REGION, authorLists);
+        // метки обновления таблиц не должны вытесняться, иначе кэш запросов отдаст устаревший результат
+        createRegion(cacheManager, UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, String region, long maxEntries) {
+        cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))));
+    }
+}
@@ -0,0 +1,39 @@
+package me.dineka.books_service.config;
+
+import me.dineka.books_service.service.BookShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Перебалансировка шардов книг: {@code --books.sharding.enabled=true --books.sharding.rebalance-to=N}.
+ *
+ * <p>В {@code books.sharding.urls} перечисляются все шарды - и текущие, и добавляемые или освобождаемые.
+ * После переноса книг новое количество активных шардов сохраняется в глобальной базе и приложение завершается;
+ * при следующих запусках оно читается из базы, {@code books.sharding.active-shards} менять не нужно.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "books.sharding.rebalance-to")
+public class ShardRebalanceRunner implements ApplicationRunner {
+    private final BookShardRouter bookShardRouter;
+    private final ApplicationContext context;
+    private final int targetShards;
+
+    public ShardRebalanceRunner(BookShardRouter bookShardRouter,
+                                ApplicationContext context,
+                                @Value("${books.sharding.rebalance-to}") int targetShards) {
+        this.bookShardRouter = bookShardRouter;
+        this.context = context;
+        this.targetShards = targetShards;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        bookShardRouter.rebalance(targetShards);
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,99 @@
+package me.dineka.books_service.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Набор баз каталога при шардировании: глобальная база (авторы, журнал изменений) и шарды книг.
+ *
+ * <p>Источник {@link #getRoutingDataSource()} выдаёт соединение с шардом, выбранным в текущем потоке
+ * ({@link #enter(Integer)}), или с глобальной базой, если шард не выбран. Шард выбирается до начала транзакции,
+ * поэтому вся транзакция выполняется в одной базе.</p>
+ */
+public class ShardSet implements Closeable {
+    private static final String GLOBAL = "global";
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final DataSource global;
+    private final List<DataSource> shards;
+    private final AbstractRoutingDataSource routingDataSource;
+
+    public ShardSet(DataSource global, List<DataSource> shards) {
+        this.global = global;
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(GLOBAL, global);
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        this.routingDataSource = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                Integer shard = CURRENT_SHARD.get();
+                return shard == null ? GLOBAL : shard;
+            }
+        };
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(global);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    /**
+     * Возвращает шард, выбранный в текущем потоке.
+     *
+     * @return номер шарда или {@code null}, если поток работает с глобальной базой
+     */
+    public static Integer currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Выбирает шард для текущего потока.
+     *
+     * @param shard номер шарда или {@code null} для глобальной базы
+     * @return ранее выбранный шард, его нужно восстановить после работы
+     */
+    public static Integer enter(Integer shard) {
+        Integer previous = CURRENT_SHARD.get();
+        if (shard == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+        return previous;
+    }
+
+    public DataSource getRoutingDataSource() {
+        return routingDataSource;
+    }
+
+    public DataSource getGlobal() {
+        return global;
+    }
+
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+        if (global instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
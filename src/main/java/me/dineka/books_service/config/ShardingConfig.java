@@ -0,0 +1,62 @@
+package me.dineka.books_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шардирование книг по автору (включается {@code books.sharding.enabled=true}).
+ *
+ * <p>Глобальная база настраивается из {@code spring.datasource.*}, шарды - списком адресов
+ * {@code books.sharding.urls}. Без адресов создаётся {@code books.sharding.shard-count} встроенных баз H2 в памяти.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "books.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardSet shardSet(DataSourceProperties properties,
+                             Environment environment,
+                             @Value("${books.sharding.urls:}") List<String> urls,
+                             @Value("${books.sharding.shard-count:2}") int shardCount,
+                             @Value("${books.sharding.maximum-pool-size:8}") int poolSize,
+                             @Value("${books.datasource.replica.enabled:false}") boolean replicaEnabled) {
+        if (replicaEnabled) {
+            throw new IllegalStateException("Шардирование и реплика для чтения не включаются одновременно");
+        }
+        List<String> shardUrls = new ArrayList<>(urls.stream().filter(url -> !url.isBlank()).toList());
+        if (shardUrls.isEmpty()) {
+            for (int i = 0; i < shardCount; i++) {
+                shardUrls.add("jdbc:h2:mem:books-shard-" + i + ";DB_CLOSE_DELAY=-1");
+            }
+        }
+
+        List<DataSource> shards = new ArrayList<>(shardUrls.size());
+        for (int i = 0; i < shardUrls.size(); i++) {
+            HikariDataSource shard = HikariPools.create(properties, environment, shardUrls.get(i), "shard-" + i);
+            shard.setMaximumPoolSize(poolSize);
+            shards.add(shard);
+        }
+        return new ShardSet(HikariPools.create(properties, environment, null, "global"), shards);
+    }
+
+    /**
+     * Источник данных приложения. Соединение берётся при первом выражении из базы, выбранной в потоке.
+     *
+     * @param shardSet набор баз каталога
+     * @return {@link DataSource} для JPA и JDBC
+     */
+    @Bean
+    public DataSource dataSource(ShardSet shardSet) {
+        return new LazyConnectionDataSourceProxy(shardSet.getRoutingDataSource());
+    }
+}
@@ -0,0 +1,55 @@
+package me.dineka.books_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Замер времени старта для профиля сборки {@code startup}: после готовности приложения выполняет первый запрос
+ * {@code GET /books}, логирует время до готовности и до ответа и завершает приложение.
+ *
+ * <p>Не бин: слушатель добавляется в {@code main} только при системном свойстве {@code -Dbooks.startup.probe=true}.
+ * Условия бинов при AOT-сборке фиксируются заранее, а свойство JVM проверяется при каждом запуске,
+ * поэтому обычный запуск того же jar не завершится после первого запроса.</p>
+ */
+public class StartupTimeReporter implements ApplicationListener<ApplicationReadyEvent> {
+    public static final String PROBE_PROPERTY = "books.startup.probe";
+
+    Logger log = LoggerFactory.getLogger(StartupTimeReporter.class);
+
+    /**
+     * Логирует время от старта JVM до готовности приложения и до ответа на первый запрос, затем завершает приложение.
+     *
+     * @param event событие {@link ApplicationReadyEvent}
+     */
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("Время до готовности приложения: {} мс", uptimeMillis());
+        if (!(event.getApplicationContext() instanceof WebServerApplicationContext context)) {
+            return;
+        }
+        int port = context.getWebServer().getPort();
+        try {
+            HttpResponse<Void> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/books")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            log.info("Время до первого ответа: {} мс (статус {})", uptimeMillis(), response.statusCode());
+        } catch (Exception e) {
+            log.error("Не удалось выполнить первый запрос", e);
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
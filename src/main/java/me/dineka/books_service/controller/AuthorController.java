@@ -2,6 +2,9 @@ package me.dineka.books_service.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import me.dineka.books_service.DTO.AuthorMatchDTO;
+import me.dineka.books_service.DTO.AuthorSliceDTO;
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
 import me.dineka.books_service.DTO.CreateAuthorDTO;
 import me.dineka.books_service.model.Author;
 import me.dineka.books_service.service.AuthorService;
@@ -26,13 +29,37 @@ public class AuthorController {
         return authorService.addAuthor(dto);
     }
 
-    @Operation(summary = "Получить список всех авторов", description = "Получение списка всех авторов с пагинацией")
+    @Operation(summary = "Получить список всех авторов", description = "Получение списка всех авторов с пагинацией, по имени")
     @GetMapping
     public List<Author> getAllAuthors(@RequestParam int page,
                                       @RequestParam int size) {
         return authorService.getAllAuthors(PageRequest.of(page, size));
     }
 
+    @Operation(summary = "Прокрутить список авторов",
+            description = "Порция авторов по имени после токена nextToken предыдущего ответа; общее количество - с withTotal=true")
+    @GetMapping("/scroll")
+    public AuthorSliceDTO scrollAuthors(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "20") int size,
+                                        @RequestParam(defaultValue = "false") boolean withTotal) {
+        return authorService.scrollAuthors(after, size, withTotal);
+    }
+
+    @Operation(summary = "Подсказать авторов", description = "Авторы, имя которых начинается с prefix, без учёта регистра")
+    @GetMapping("/suggest")
+    public List<AuthorSuggestionDTO> suggestAuthors(@RequestParam String prefix,
+                                                    @RequestParam(defaultValue = "10") int limit) {
+        return authorService.suggestAuthors(prefix, limit);
+    }
+
+    @Operation(summary = "Найти похожих авторов",
+            description = "Авторы с похожим именем с учётом опечаток, от самого похожего; помогает не заводить дубликаты")
+    @GetMapping("/search")
+    public List<AuthorMatchDTO> searchAuthors(@RequestParam String q,
+                                              @RequestParam(defaultValue = "10") int limit) {
+        return authorService.searchAuthors(q, limit);
+    }
+
     @Operation(summary = "Получить автора", description = "Получение информации об авторе")
     @GetMapping("/{id}")
     public Author getAuthor(@PathVariable Long id) {
@@ -2,13 +2,31 @@ package me.dineka.books_service.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import me.dineka.books_service.DTO.BookAggregateDTO;
+import me.dineka.books_service.DTO.BookAggregateRequestDTO;
+import me.dineka.books_service.DTO.BookChangesDTO;
+import me.dineka.books_service.DTO.BookJobDTO;
 import me.dineka.books_service.DTO.BookResponseDTO;
+import me.dineka.books_service.DTO.BooksDeletedDTO;
 import me.dineka.books_service.DTO.CreateOrUpdateBookDTO;
-import me.dineka.books_service.model.Book;
+import me.dineka.books_service.DTO.PatchBookDTO;
+import me.dineka.books_service.exception.BookJobNotFoundException;
+import me.dineka.books_service.service.AsyncBookWriter;
+import me.dineka.books_service.service.BookAggregator;
+import me.dineka.books_service.service.BookChangeLog;
+import me.dineka.books_service.service.BookColumnStore;
+import me.dineka.books_service.service.BookEventStream;
+import me.dineka.books_service.service.BookFilter;
 import me.dineka.books_service.service.BookService;
+import me.dineka.books_service.service.BookShardRouter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
+import java.util.Comparator;
 import java.util.List;
 
 @RestController
@@ -16,40 +34,113 @@ import java.util.List;
 @Tag(name = "Книги", description = "Операции для работы с книгами")
 public class BookController {
     private final BookService bookService;
+    private final BookChangeLog bookChangeLog;
+    private final BookEventStream bookEventStream;
+    private final BookShardRouter bookShardRouter;
+    private final BookColumnStore bookColumnStore;
+    private final BookAggregator bookAggregator;
+    private final AsyncBookWriter asyncBookWriter;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookChangeLog bookChangeLog, BookEventStream bookEventStream,
+                          BookShardRouter bookShardRouter, BookColumnStore bookColumnStore, BookAggregator bookAggregator,
+                          ObjectProvider<AsyncBookWriter> asyncBookWriter) {
         this.bookService = bookService;
+        this.bookChangeLog = bookChangeLog;
+        this.bookEventStream = bookEventStream;
+        this.bookShardRouter = bookShardRouter;
+        this.bookColumnStore = bookColumnStore;
+        this.bookAggregator = bookAggregator;
+        this.asyncBookWriter = asyncBookWriter.getIfAvailable();
     }
 
-    @Operation(summary = "Добавить книгу", description = "Добавление новой книги")
+    @Operation(summary = "Добавить книгу", description = "Добавление новой книги. В режиме отложенной записи возвращает 202 и заявку")
     @PostMapping
-    public Book addBook(@RequestBody CreateOrUpdateBookDTO bookDTO) {
-        return bookService.addBook(bookDTO);
+    public ResponseEntity<?> addBook(@RequestBody CreateOrUpdateBookDTO bookDTO) {
+        if (asyncBookWriter == null) {
+            return ResponseEntity.ok(bookShardRouter.onAuthorShard(bookDTO.getAuthorId(), () -> bookService.addBook(bookDTO)));
+        }
+        BookJobDTO job = asyncBookWriter.submit(bookDTO);
+        return ResponseEntity.accepted().location(URI.create("/books/jobs/" + job.getId())).body(job);
     }
 
-    @Operation(summary = "Получить список всех книг", description = "Получение всех книг")
+    @Operation(summary = "Получить статус заявки", description = "Статус отложенной записи книги")
+    @GetMapping("/jobs/{jobId}")
+    public BookJobDTO getJob(@PathVariable String jobId) {
+        if (asyncBookWriter == null) {
+            throw new BookJobNotFoundException("Отложенная запись книг отключена");
+        }
+        return asyncBookWriter.getJob(jobId);
+    }
+
+    @Operation(summary = "Получить список всех книг", description = "Получение всех книг или книг по автору, жанру и диапазону лет")
     @GetMapping
-    public List<BookResponseDTO> getAllBooks() {
-        return bookService.getAllBooks();
+    public List<BookResponseDTO> getAllBooks(@RequestParam(required = false) Long authorId,
+                                             @RequestParam(required = false) String genre,
+                                             @RequestParam(required = false) Integer yearFrom,
+                                             @RequestParam(required = false) Integer yearTo) {
+        BookFilter filter = new BookFilter(authorId, genre, yearFrom, yearTo);
+        if (bookColumnStore.isServing()) {
+            return bookColumnStore.find(filter);
+        }
+        List<BookResponseDTO> books = bookShardRouter.gather(bookService::getAllBooks, Comparator.comparing(BookResponseDTO::getId));
+        return filter.isEmpty() ? books : books.stream().filter(filter::matches).toList();
+    }
+
+    @Operation(summary = "Агрегировать каталог", description = "Количество книг, минимальный и максимальный год издания " +
+            "с группировкой по жанру, году, десятилетию или автору и фильтрами по жанрам, годам и году рождения автора")
+    @PostMapping("/aggregate")
+    public BookAggregateDTO aggregate(@RequestBody BookAggregateRequestDTO request) {
+        return bookAggregator.aggregate(request);
+    }
+
+    @Operation(summary = "Получить изменения каталога", description = "Добавления, изменения и удаления книг после токена")
+    @GetMapping("/changes")
+    public BookChangesDTO getChanges(@RequestParam(required = false) String since,
+                                     @RequestParam(defaultValue = "100") int limit) {
+        return bookChangeLog.getChanges(since, limit);
+    }
+
+    @Operation(summary = "Подписаться на изменения каталога", description = "SSE-поток добавлений, изменений и удалений книг")
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return bookEventStream.subscribe(lastEventId);
     }
 
     @Operation(summary = "Получить книгу", description = "Получение информации о книге")
     @GetMapping("/{id}")
     public BookResponseDTO getBook(@PathVariable Long id) {
-        return bookService.getBookById(id);
+        return bookShardRouter.onBookShard(id, () -> bookService.getBookById(id));
     }
 
     @Operation(summary = "Редактировать книгу", description = "Редактирование книги")
     @PutMapping("/{id}")
     public BookResponseDTO updateBook(@PathVariable Long id, @RequestBody CreateOrUpdateBookDTO updateBookDTO) {
-        return bookService.updateBook(id, updateBookDTO);
+        return bookShardRouter.onBookShard(id, updateBookDTO.getAuthorId(), () -> bookService.updateBook(id, updateBookDTO));
+    }
+
+    @Operation(summary = "Частично изменить книгу", description = "Изменение только переданных полей книги (JSON Merge Patch)")
+    @PatchMapping(path = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public BookResponseDTO patchBook(@PathVariable Long id, @RequestBody PatchBookDTO patch) {
+        return bookShardRouter.onBookShard(id, patch.hasAuthorId() ? patch.getAuthorId() : null, () -> bookService.patchBook(id, patch));
     }
 
     @Operation(summary = "Удалить книгу", description = "Удаление книги")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBook(@PathVariable Long id) {
-
-        bookService.deleteBook(id);
+        bookShardRouter.onBookShard(id, () -> {
+            bookService.deleteBook(id);
+            return null;
+        });
         return ResponseEntity.noContent().build();
     }
+
+    @Operation(summary = "Удалить книги по фильтру", description = "Удаление всех книг автора (authorId) или книг из списка (ids) одним запросом")
+    @DeleteMapping
+    public BooksDeletedDTO deleteBooks(@RequestParam(required = false) Long authorId,
+                                       @RequestParam(required = false) List<Long> ids) {
+        if (authorId != null) {
+            return bookShardRouter.onAuthorShard(authorId, () -> bookService.deleteBooks(authorId, ids));
+        }
+        return new BooksDeletedDTO(bookShardRouter.gather(() -> bookService.deleteBooks(null, ids).getIds(), Comparator.naturalOrder()));
+    }
 }
@@ -0,0 +1,41 @@
+package me.dineka.books_service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityManagerFactory;
+import me.dineka.books_service.DTO.CacheRegionStatsDTO;
+import me.dineka.books_service.config.SecondLevelCacheConfig;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/internal/cache")
+@Tag(name = "Служебные", description = "Диагностика сервиса")
+public class CacheStatsController {
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheStatsController(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Operation(summary = "Статистика кэша второго уровня", description = "Попадания, промахи, записи и размер каждого региона")
+    @GetMapping
+    public List<CacheRegionStatsDTO> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<CacheRegionStatsDTO> regions = new ArrayList<>(SecondLevelCacheConfig.REGIONS.size());
+        for (String region : SecondLevelCacheConfig.REGIONS) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                regions.add(CacheRegionStatsDTO.fromStatistics(region, regionStatistics));
+            }
+        }
+        return regions;
+    }
+}
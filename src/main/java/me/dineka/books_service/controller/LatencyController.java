@@ -0,0 +1,28 @@
+package me.dineka.books_service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import me.dineka.books_service.DTO.LatencyStatsDTO;
+import me.dineka.books_service.util.LatencyHistograms;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/internal/latency")
+@Tag(name = "Служебные", description = "Диагностика сервиса")
+public class LatencyController {
+    private final LatencyHistograms latencyHistograms;
+
+    public LatencyController(LatencyHistograms latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    @Operation(summary = "Задержки эндпоинтов и этапов", description = "Перцентили задержек в микросекундах по скользящим окнам")
+    @GetMapping
+    public List<LatencyStatsDTO> getStats() {
+        return latencyHistograms.getStats();
+    }
+}
@@ -0,0 +1,115 @@
+package me.dineka.books_service.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import me.dineka.books_service.exception.DomainException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ответы на исключения предметной области в формате RFC 7807 ({@code application/problem+json}).
+ *
+ * <p>Ответ формируется прямо в обработчике, без перехода на {@code /error} и сериализации через Jackson:
+ * для каждого класса исключения один раз кодируется шаблон тела со статусом и заголовком,
+ * при ответе в него подставляются только экранированные {@code detail} и {@code instance}.
+ * Отключается {@code books.errors.problem-details=false}, тогда работает стандартная обработка Spring.</p>
+ */
+@RestControllerAdvice
+@ConditionalOnProperty(name = "books.errors.problem-details", havingValue = "true", matchIfMissing = true)
+public class ProblemDetailsHandler {
+    private static final ClassValue<Template> TEMPLATES = new ClassValue<>() {
+        @Override
+        protected Template computeValue(Class<?> type) {
+            ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(type, ResponseStatus.class);
+            return new Template(responseStatus == null ? HttpStatus.INTERNAL_SERVER_ERROR : responseStatus.code());
+        }
+    };
+
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<byte[]> handleDomainException(DomainException exception, HttpServletRequest request) {
+        Template template = TEMPLATES.get(exception.getClass());
+        return ResponseEntity.status(template.status)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(template.render(exception.getMessage(), request.getRequestURI()));
+    }
+
+    /**
+     * Тело ответа, разбитое на готовые байты вокруг подставляемых значений.
+     */
+    static final class Template {
+        private static final byte[] INSTANCE = "\",\"instance\":\"".getBytes(StandardCharsets.UTF_8);
+        private static final byte[] END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+        private final HttpStatus status;
+        private final byte[] head;
+
+        Template(HttpStatus status) {
+            this.status = status;
+            this.head = ("{\"type\":\"about:blank\",\"title\":\"" + status.getReasonPhrase() + "\",\"status\":" + status.value()
+                    + ",\"detail\":\"").getBytes(StandardCharsets.UTF_8);
+        }
+
+        byte[] render(String detail, String instance) {
+            byte[] detailBytes = escape(detail).getBytes(StandardCharsets.UTF_8);
+            byte[] instanceBytes = escape(instance).getBytes(StandardCharsets.UTF_8);
+            byte[] body = new byte[head.length + detailBytes.length + INSTANCE.length + instanceBytes.length + END.length];
+            int position = 0;
+            System.arraycopy(head, 0, body, position, head.length);
+            position += head.length;
+            System.arraycopy(detailBytes, 0, body, position, detailBytes.length);
+            position += detailBytes.length;
+            System.arraycopy(INSTANCE, 0, body, position, INSTANCE.length);
+            position += INSTANCE.length;
+            System.arraycopy(instanceBytes, 0, body, position, instanceBytes.length);
+            position += instanceBytes.length;
+            System.arraycopy(END, 0, body, position, END.length);
+            return body;
+        }
+
+        /**
+         * Экранирует строку для JSON. Строка без спецсимволов возвращается как есть.
+         */
+        static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            int first = 0;
+            while (first < value.length() && !needsEscape(value.charAt(first))) {
+                first++;
+            }
+            if (first == value.length()) {
+                return value;
+            }
+            StringBuilder escaped = new StringBuilder(value.length() + 16).append(value, 0, first);
+            for (int i = first; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> escaped.append("\\\"");
+                    case '\\' -> escaped.append("\\\\");
+                    case '\n' -> escaped.append("\\n");
+                    case '\r' -> escaped.append("\\r");
+                    case '\t' -> escaped.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            escaped.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            escaped.append(c);
+                        }
+                    }
+                }
+            }
+            return escaped.toString();
+        }
+
+        private static boolean needsEscape(char c) {
+            return c < 0x20 || c == '"' || c == '\\';
+        }
+    }
+}
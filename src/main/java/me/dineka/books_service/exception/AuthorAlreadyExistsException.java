@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class AuthorAlreadyExistsException extends RuntimeException {
+public class AuthorAlreadyExistsException extends DomainException {
     public AuthorAlreadyExistsException(String message) {
         super(message);
     }
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class BookAlreadyExistsException extends RuntimeException {
+public class BookAlreadyExistsException extends DomainException {
     public BookAlreadyExistsException(String message) {
         super(message);
     }
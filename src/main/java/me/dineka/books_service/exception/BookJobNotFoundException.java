@@ -0,0 +1,11 @@
+package me.dineka.books_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class BookJobNotFoundException extends DomainException {
+    public BookJobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.NOT_FOUND)
-public class BookNotFoundException extends RuntimeException{
+public class BookNotFoundException extends DomainException {
     public BookNotFoundException() {
     }
 
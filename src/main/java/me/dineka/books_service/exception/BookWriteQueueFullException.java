@@ -0,0 +1,11 @@
+package me.dineka.books_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class BookWriteQueueFullException extends DomainException {
+    public BookWriteQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package me.dineka.books_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class ChangeTokenExpiredException extends DomainException {
+    public ChangeTokenExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package me.dineka.books_service.exception;
+
+/**
+ * Базовое исключение предметной области: некорректный запрос, отсутствующая запись, дубликат.
+ *
+ * <p>Такие исключения - ожидаемый ответ клиенту, а не сбой, поэтому стек вызовов у них не заполняется:
+ * его сбор - основная стоимость создания исключения. HTTP-статус задаётся {@code @ResponseStatus} подкласса,
+ * тело ответа формирует {@code ProblemDetailsHandler}.</p>
+ */
+public abstract class DomainException extends RuntimeException {
+    protected DomainException() {
+        this(null);
+    }
+
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidAuthorBirthYearException extends RuntimeException {
+public class InvalidAuthorBirthYearException extends DomainException {
     public InvalidAuthorBirthYearException(String message) {
         super(message);
     }
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidAuthorNameException extends RuntimeException {
+public class InvalidAuthorNameException extends DomainException {
     public InvalidAuthorNameException(String message) {
         super(message);
     }
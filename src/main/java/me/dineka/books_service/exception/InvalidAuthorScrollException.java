@@ -0,0 +1,11 @@
+package me.dineka.books_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidAuthorScrollException extends DomainException {
+    public InvalidAuthorScrollException(String message) {
+        super(message);
+    }
+}
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidBookGenreException extends RuntimeException {
+public class InvalidBookGenreException extends DomainException {
     public InvalidBookGenreException(String message) {
         super(message);
     }
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidBookPublishingYearException extends RuntimeException {
+public class InvalidBookPublishingYearException extends DomainException {
     public InvalidBookPublishingYearException(String message) {
         super(message);
     }
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidBookTitleException extends RuntimeException {
+public class InvalidBookTitleException extends DomainException {
     public InvalidBookTitleException(String message) {
         super(message);
     }
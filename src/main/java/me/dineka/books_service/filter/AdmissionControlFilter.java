@@ -0,0 +1,159 @@
+package me.dineka.books_service.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Контроль допуска запросов до попадания в контроллеры и репозитории.
+ *
+ * <p>Каждому клиенту (по {@code X-Api-Key}, {@code X-Client-Id} или адресу) выделяется token bucket,
+ * у каждого класса эндпоинтов ({@link EndpointClass}) - свой лимит одновременных запросов.
+ * Превышение частоты отвечает 429, превышение параллелизма - 503, оба ответа с {@code Retry-After}.
+ * Проверки выполняются на CAS без блокировок.</p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    public static final String API_KEY_HEADER = "X-Api-Key";
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private final boolean enabled;
+    private final double ratePerSecond;
+    private final int burst;
+    private final Map<EndpointClass, AtomicInteger> inFlight = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Integer> concurrencyLimits = new EnumMap<>(EndpointClass.class);
+    private final ConcurrentHashMap<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    Logger log = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    public AdmissionControlFilter(@Value("${books.admission.enabled:true}") boolean enabled,
+                                  @Value("${books.admission.rate-per-second:1000}") double ratePerSecond,
+                                  @Value("${books.admission.burst:2000}") int burst,
+                                  @Value("${books.admission.concurrency.list:16}") int listLimit,
+                                  @Value("${books.admission.concurrency.read:128}") int readLimit,
+                                  @Value("${books.admission.concurrency.write:64}") int writeLimit,
+                                  @Value("${books.admission.concurrency.bulk:4}") int bulkLimit) {
+        this.enabled = enabled;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        concurrencyLimits.put(EndpointClass.LIST, listLimit);
+        concurrencyLimits.put(EndpointClass.READ, readLimit);
+        concurrencyLimits.put(EndpointClass.WRITE, writeLimit);
+        concurrencyLimits.put(EndpointClass.BULK, bulkLimit);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            inFlight.put(endpointClass, new AtomicInteger());
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = EndpointClass.of(request.getMethod(), path(request), request.getQueryString());
+        if (endpointClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        String clientId = clientId(request);
+        long wait = limiters.computeIfAbsent(clientId, id -> new RateLimiter(ratePerSecond, burst, now)).tryAcquire(now);
+        if (wait > 0) {
+            log.debug("Клиент {} превысил частоту запросов", clientId);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+            return;
+        }
+
+        Integer limit = concurrencyLimits.get(endpointClass);
+        if (limit == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        AtomicInteger counter = inFlight.get(endpointClass);
+        if (!tryEnter(counter, limit)) {
+            log.debug("Превышен лимит одновременных запросов класса {}", endpointClass);
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            counter.decrementAndGet();
+        }
+    }
+
+    /**
+     * Удаляет корзины клиентов, которые полностью восстановились: они эквивалентны новым.
+     */
+    @Scheduled(fixedDelayString = "${books.admission.cleanup-interval:PT1M}")
+    public void evictIdleClients() {
+        long now = System.nanoTime();
+        limiters.entrySet().removeIf(entry -> entry.getValue().isIdle(now));
+    }
+
+    public int getInFlight(EndpointClass endpointClass) {
+        return inFlight.get(endpointClass).get();
+    }
+
+    private static boolean tryEnter(AtomicInteger counter, int limit) {
+        while (true) {
+            int current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Возвращает путь запроса без контекста приложения: классы эндпоинтов описаны путями контроллеров.
+     */
+    static String path(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+    }
+
+    static String clientId(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        if (apiKey != null && !apiKey.isBlank()) {
+            return "key:" + apiKey;
+        }
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        if (clientId != null && !clientId.isBlank()) {
+            return "client:" + clientId;
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase() + "\"}");
+    }
+}
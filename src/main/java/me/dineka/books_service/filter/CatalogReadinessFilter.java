@@ -0,0 +1,45 @@
+package me.dineka.books_service.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import me.dineka.books_service.service.CatalogWarmup;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Шлюз готовности: пока каталог прогревается ({@link CatalogWarmup}), запросы к API каталога
+ * ({@link EndpointClass}) получают 503 с {@code Retry-After}, а не ответы по пустым индексам.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class CatalogReadinessFilter extends OncePerRequestFilter {
+    private final CatalogWarmup catalogWarmup;
+
+    public CatalogReadinessFilter(CatalogWarmup catalogWarmup) {
+        this.catalogWarmup = catalogWarmup;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return catalogWarmup.isReady()
+                || EndpointClass.of(request.getMethod(), AdmissionControlFilter.path(request), request.getQueryString()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase() + "\"}");
+    }
+}
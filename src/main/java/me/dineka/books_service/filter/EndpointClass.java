@@ -0,0 +1,55 @@
+package me.dineka.books_service.filter;
+
+import java.util.regex.Pattern;
+
+/**
+ * Класс эндпоинта для ограничения параллелизма: у каждого класса свой лимит одновременных запросов.
+ */
+public enum EndpointClass {
+    /**
+     * Выборки списков: {@code GET /books}, {@code GET /authors}, {@code GET /authors/scroll}, {@code GET /books/changes},
+     * а также поиск {@code GET /authors/search}, который просматривает индекс целиком.
+     */
+    LIST,
+    /** Чтение одной записи: {@code GET /books/{id}}, {@code GET /authors/{id}}. */
+    READ,
+    /** Создание, изменение и удаление одной записи. */
+    WRITE,
+    /** Массовые операции: удаление по фильтру и агрегация {@code POST /books/aggregate}, которая просматривает весь каталог. */
+    BULK,
+    /** Долгоживущая подписка {@code GET /books/stream}: ограничивается только частотой подключений. */
+    STREAM;
+
+    private static final Pattern RESOURCE = Pattern.compile("^/(books|authors)(/.*)?$");
+
+    /**
+     * Определяет класс запроса.
+     *
+     * @param method HTTP-метод
+     * @param path   путь запроса без контекста приложения
+     * @param query  строка параметров, может быть {@code null}
+     * @return класс эндпоинта или {@code null}, если запрос не относится к API каталога
+     */
+    public static EndpointClass of(String method, String path, String query) {
+        if (path == null || !RESOURCE.matcher(path).matches()) {
+            return null;
+        }
+        String[] segments = path.substring(1).split("/");
+        if ("GET".equals(method)) {
+            if (segments.length == 1 || "changes".equals(segments[1]) || "scroll".equals(segments[1]) || "search".equals(segments[1])) {
+                return LIST;
+            }
+            if ("stream".equals(segments[1])) {
+                return STREAM;
+            }
+            return READ;
+        }
+        if ("DELETE".equals(method) && segments.length == 1 && query != null) {
+            return BULK;
+        }
+        if ("POST".equals(method) && segments.length == 2 && "aggregate".equals(segments[1])) {
+            return BULK;
+        }
+        return WRITE;
+    }
+}
@@ -0,0 +1,269 @@
+package me.dineka.books_service.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import me.dineka.books_service.util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Идемпотентное создание книг и авторов по заголовку {@code Idempotency-Key}.
+ *
+ * <p>Ответ на {@code POST /books} и {@code POST /authors} с ключом запоминается на {@code books.idempotency.ttl}
+ * для пары клиент + ключ. Повтор с тем же ключом и тем же телом получает сохранённый ответ с заголовком
+ * {@code Idempotency-Replayed: true} без обращения к базе; с другим телом - 422. Одновременные запросы
+ * с одним ключом выполняются один раз, остальные получают тот же ответ. Ответы 5xx и 429 не сохраняются:
+ * повтор после временной ошибки выполняется заново. Хранилище ограничено {@code books.idempotency.max-entries},
+ * при переполнении вытесняются самые старые ответы.</p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 15)
+@ConditionalOnProperty(name = "books.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotency-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final long ttlNanos;
+    private final Map<String, StoredResponse> responses;
+    private final SingleFlight<String, StoredResponse> executions = new SingleFlight<>();
+
+    Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    public IdempotencyFilter(@Value("${books.idempotency.ttl:PT24H}") Duration ttl,
+                             @Value("${books.idempotency.max-entries:100000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.responses = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = AdmissionControlFilter.path(request);
+        return !"POST".equals(request.getMethod()) || !("/books".equals(path) || "/authors".equals(path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key == null || key.isBlank()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, "Idempotency-Key не может быть длиннее " + MAX_KEY_LENGTH + " символов");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        byte[] fingerprint = sha256(cachedRequest.body);
+        String scope = AdmissionControlFilter.clientId(request) + ' ' + AdmissionControlFilter.path(request) + ' ' + key;
+
+        boolean[] executed = new boolean[1];
+        StoredResponse stored = lookup(scope);
+        if (stored == null) {
+            try {
+                stored = executions.load(scope, () -> {
+                    StoredResponse completed = lookup(scope);
+                    if (completed != null) {
+                        return completed;
+                    }
+                    executed[0] = true;
+                    return execute(cachedRequest, response, filterChain, fingerprint, scope);
+                });
+            } catch (ChainException e) {
+                if (e.getCause() instanceof ServletException cause) {
+                    throw cause;
+                }
+                throw (IOException) e.getCause();
+            }
+        }
+        if (executed[0]) {
+            return;
+        }
+        if (!Arrays.equals(stored.fingerprint, fingerprint)) {
+            log.info("Idempotency-Key повторно использован с другим телом запроса: {}", AdmissionControlFilter.path(request));
+            reject(response, HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key уже использован для другого запроса");
+            return;
+        }
+        response.setStatus(stored.status);
+        if (stored.contentType != null) {
+            response.setContentType(stored.contentType);
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body.length);
+        response.getOutputStream().write(stored.body);
+    }
+
+    /**
+     * Удаляет ответы с истёкшим сроком хранения. Ответы лежат в порядке сохранения, поэтому просмотр
+     * останавливается на первом неистёкшем.
+     */
+    @Scheduled(fixedDelayString = "${books.idempotency.cleanup-interval:PT1M}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        synchronized (responses) {
+            Iterator<StoredResponse> iterator = responses.values().iterator();
+            while (iterator.hasNext() && iterator.next().isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public int getStoredCount() {
+        return responses.size();
+    }
+
+    private StoredResponse execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                                   byte[] fingerprint, String scope) {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapper);
+            StoredResponse result = new StoredResponse(fingerprint, wrapper.getStatus(), wrapper.getContentType(),
+                    wrapper.getContentAsByteArray(), System.nanoTime() + ttlNanos);
+            wrapper.copyBodyToResponse();
+            if (isFinal(result)) {
+                responses.put(scope, result);
+            }
+            return result;
+        } catch (IOException | ServletException e) {
+            throw new ChainException(e);
+        }
+    }
+
+    private StoredResponse lookup(String scope) {
+        StoredResponse stored = responses.get(scope);
+        if (stored != null && stored.isExpired(System.nanoTime())) {
+            responses.remove(scope, stored);
+            return null;
+        }
+        return stored;
+    }
+
+    /**
+     * Сохраняется окончательный ответ: успех или ошибка клиента с телом. Ошибка, отправленная через
+     * {@code sendError}, приходит без тела и не сохраняется.
+     */
+    private static boolean isFinal(StoredResponse response) {
+        if (response.status >= 500 || response.status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return false;
+        }
+        return response.status < 400 || response.body.length > 0;
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String detail) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"type\":\"about:blank\",\"title\":\"" + status.getReasonPhrase() + "\",\"status\":"
+                + status.value() + ",\"detail\":\"" + detail + "\"}");
+    }
+
+    private record StoredResponse(byte[] fingerprint, int status, String contentType, byte[] body, long expiresAt) {
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Переносит проверяемое исключение цепочки фильтров через {@link SingleFlight}.
+     */
+    private static final class ChainException extends RuntimeException {
+        private ChainException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Запрос с прочитанным заранее телом: оно нужно для сравнения с сохранённым запросом до выполнения.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
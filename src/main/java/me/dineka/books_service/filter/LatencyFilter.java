@@ -0,0 +1,60 @@
+package me.dineka.books_service.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import me.dineka.books_service.util.LatencyHistograms;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Задержка каждого эндпоинта целиком ({@code total}) и записи тела ответа ({@code serialize}) в {@link LatencyHistograms}.
+ *
+ * <p>Эндпоинт определяется шаблоном пути обработчика, например {@code GET /books/{id}}. Запросы, не дошедшие до обработчика
+ * (отклонённые контролем допуска, несуществующие пути), не записываются. Запись тела отсчитывается от передачи
+ * объекта ответа конвертеру ({@code SerializationTimingAdvice}) до конца запроса.</p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LatencyFilter extends OncePerRequestFilter {
+    public static final String SERIALIZE_STARTED_ATTRIBUTE = LatencyFilter.class.getName() + ".serializeStarted";
+
+    private final LatencyHistograms latencyHistograms;
+    private final ConcurrentHashMap<Endpoint, LatencyHistograms.Timer[]> timers = new ConcurrentHashMap<>();
+
+    public LatencyFilter(LatencyHistograms latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                LatencyHistograms.Timer[] endpoint = timers.computeIfAbsent(new Endpoint(request.getMethod(), pattern.toString()),
+                        key -> new LatencyHistograms.Timer[]{
+                                latencyHistograms.timer(key.method() + " " + key.pattern(), "total"),
+                                latencyHistograms.timer(key.method() + " " + key.pattern(), "serialize")
+                        });
+                endpoint[0].record(started);
+                if (request.getAttribute(SERIALIZE_STARTED_ATTRIBUTE) instanceof Long serializeStarted) {
+                    endpoint[1].record(serializeStarted);
+                }
+            }
+        }
+    }
+
+    private record Endpoint(String method, String pattern) {
+    }
+}
@@ -0,0 +1,55 @@
+package me.dineka.books_service.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий token bucket в форме GCRA (generic cell rate algorithm).
+ *
+ * <p>Всё состояние - одно «теоретическое время прибытия» следующего запроса в {@link AtomicLong},
+ * поэтому проверка выполняется одним CAS без блокировок и без фонового пополнения.</p>
+ */
+public class RateLimiter {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond средняя допустимая частота запросов
+     * @param burst         размер корзины: сколько запросов можно выполнить подряд без ожидания
+     * @param nowNanos      текущее время в наносекундах
+     */
+    public RateLimiter(double ratePerSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1L);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Пытается взять токен.
+     *
+     * @param nowNanos текущее время в наносекундах
+     * @return {@code 0}, если токен выдан, иначе через сколько наносекунд он появится
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = Math.max(tat, nowNanos);
+            long wait = base - burstToleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Корзина полна и не хранит информации о клиенте - её можно удалить без изменения поведения.
+     *
+     * @param nowNanos текущее время в наносекундах
+     */
+    public boolean isIdle(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
@@ -0,0 +1,85 @@
+package me.dineka.books_service.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import me.dineka.books_service.config.ReadWriteRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Чтение собственных записей при работе с репликой.
+ *
+ * <p>После изменяющего запроса клиента его чтения в течение {@code books.datasource.replica.read-your-writes-window}
+ * выполняются на основной базе: реплика могла ещё не получить запись. Окно должно превышать задержку репликации.
+ * Запись отмечается до выполнения запроса и ещё раз после него, поэтому чтения, пришедшие одновременно с записью,
+ * уже закреплены за основной базой, а окно отсчитывается от завершения записи.</p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@ConditionalOnProperty(name = "books.datasource.replica.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private final long windowNanos;
+    private final ConcurrentHashMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesFilter(@Value("${books.datasource.replica.read-your-writes-window:PT2S}") Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientId = AdmissionControlFilter.clientId(request);
+        Long lastWrite = lastWrites.get(clientId);
+        boolean pinned = lastWrite != null && System.nanoTime() - lastWrite < windowNanos;
+        if (pinned) {
+            ReadWriteRoutingDataSource.pinToPrimary();
+        }
+        boolean write = windowNanos > 0 && isWrite(request);
+        if (write) {
+            lastWrites.put(clientId, System.nanoTime());
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (pinned) {
+                ReadWriteRoutingDataSource.unpin();
+            }
+            if (write) {
+                lastWrites.put(clientId, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Забывает клиентов, у которых окно после записи уже истекло.
+     */
+    @Scheduled(fixedDelayString = "${books.admission.cleanup-interval:PT1M}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(lastWrite -> now - lastWrite >= windowNanos);
+    }
+
+    /**
+     * Проверяет, меняет ли запрос каталог. Путь берётся без контекста приложения, агрегация {@code POST /books/aggregate}
+     * только читает.
+     */
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return false;
+        }
+        EndpointClass endpointClass = EndpointClass.of(method, AdmissionControlFilter.path(request), request.getQueryString());
+        return endpointClass == EndpointClass.WRITE || endpointClass == EndpointClass.BULK && "DELETE".equals(method);
+    }
+}
@@ -1,13 +1,27 @@
 package me.dineka.books_service.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import me.dineka.books_service.config.SecondLevelCacheConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.util.Locale;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = @Index(name = "idx_author_normalized_name", columnList = "normalized_name, id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.AUTHOR_REGION)
 public class Author {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -17,9 +31,33 @@ public class Author {
 
     private Integer birthYear;
 
+    /**
+     * Имя без крайних пробелов в нижнем регистре: ключ сортировки списка авторов.
+     * Заполняется при сохранении, в API не отдаётся.
+     */
+    @Column(name = "normalized_name")
+    private String normalizedName;
+
     public Author() {
     }
 
+    /**
+     * Приводит имя автора к виду, по которому авторы сортируются и сравниваются.
+     * Совпадает с {@code lower(trim(name))} в SQL.
+     *
+     * @param name имя автора
+     * @return нормализованное имя или {@code null}, если имя не задано
+     */
+    public static String normalizeName(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalize() {
+        normalizedName = normalizeName(name);
+    }
+
     public Long getId() {
         return id;
     }
@@ -44,6 +82,11 @@ public class Author {
         this.birthYear = birth_year;
     }
 
+    @JsonIgnore
+    public String getNormalizedName() {
+        return normalizedName != null ? normalizedName : normalizeName(name);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
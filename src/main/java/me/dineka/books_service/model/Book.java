@@ -1,10 +1,12 @@
 package me.dineka.books_service.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.Objects;
 
 @Entity
+@DynamicUpdate
 public class Book {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,189 @@
+package me.dineka.books_service.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Запись журнала изменений книг. Пишется в той же транзакции, что и само изменение;
+ * {@code id} выдаёт {@code BookChangeLog} из счётчика в порядке фиксации транзакций,
+ * и он служит токеном продолжения для зеркал каталога.
+ */
+@Entity
+@Table(name = "book_change", indexes = @Index(name = "idx_book_change_changed_at", columnList = "changed_at"))
+public class BookChange implements Persistable<Long> {
+    @Id
+    private Long id;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Type type;
+
+    private String title;
+
+    private String genre;
+
+    @Column(name = "\"year\"")
+    private Integer year;
+
+    @Column(name = "author_id")
+    private Long authorId;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    @Transient
+    private boolean persisted;
+
+    public BookChange() {
+    }
+
+    public static BookChange upsert(Book book) {
+        BookChange change = new BookChange();
+        change.setBookId(book.getId());
+        change.setType(Type.UPSERT);
+        change.setTitle(book.getTitle());
+        change.setGenre(book.getGenre());
+        change.setYear(book.getYear());
+        change.setAuthorId(book.getAuthor().getId());
+        change.setChangedAt(Instant.now());
+        return change;
+    }
+
+    public static BookChange delete(Long bookId) {
+        BookChange change = new BookChange();
+        change.setBookId(bookId);
+        change.setType(Type.DELETE);
+        change.setChangedAt(Instant.now());
+        return change;
+    }
+
+    /**
+     * Запись с заранее выданным {@code id} сохраняется вставкой, без предварительного чтения.
+     */
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+
+    /**
+     * Копия записи без {@code id}: при переносе из журнала шарда в глобальный журнал запись получает новый номер.
+     */
+    public static BookChange copyOf(BookChange source) {
+        BookChange change = new BookChange();
+        change.setBookId(source.getBookId());
+        change.setType(source.getType());
+        change.setTitle(source.getTitle());
+        change.setGenre(source.getGenre());
+        change.setYear(source.getYear());
+        change.setAuthorId(source.getAuthorId());
+        change.setChangedAt(source.getChangedAt());
+        return change;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Instant changedAt) {
+        this.changedAt = changedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        BookChange that = (BookChange) o;
+        return Objects.equals(id, that.id) && Objects.equals(bookId, that.bookId) && type == that.type && Objects.equals(title, that.title) && Objects.equals(genre, that.genre) && Objects.equals(year, that.year) && Objects.equals(authorId, that.authorId) && Objects.equals(changedAt, that.changedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, bookId, type, title, genre, year, authorId, changedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "BookChange{" +
+                "id=" + id +
+                ", bookId=" + bookId +
+                ", type=" + type +
+                ", title='" + title + '\'' +
+                ", genre='" + genre + '\'' +
+                ", year=" + year +
+                ", authorId=" + authorId +
+                ", changedAt=" + changedAt +
+                '}';
+    }
+
+    public enum Type {
+        UPSERT, DELETE
+    }
+}
@@ -0,0 +1,73 @@
+package me.dineka.books_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.util.Objects;
+
+/**
+ * Счётчик записей каталога. Изменяется в той же транзакции, что и сами записи,
+ * поэтому общее количество читается одной строкой без сканирования таблицы.
+ */
+@Entity
+@Table(name = "catalog_counter")
+public class CatalogCounter {
+    public static final String AUTHORS = "authors";
+    /** Последний выданный номер записи журнала изменений книг. */
+    public static final String BOOK_CHANGES = "book_changes";
+    /** Количество активных шардов книг после последней перебалансировки. */
+    public static final String ACTIVE_SHARDS = "active_shards";
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(nullable = false)
+    private long total;
+
+    public CatalogCounter() {
+    }
+
+    public CatalogCounter(String name, long total) {
+        this.name = name;
+        this.total = total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogCounter that = (CatalogCounter) o;
+        return total == that.total && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, total);
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogCounter{" +
+                "name='" + name + '\'' +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -1,10 +1,77 @@
 package me.dineka.books_service.repository;
 
+import jakarta.persistence.QueryHint;
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
+import me.dineka.books_service.config.SecondLevelCacheConfig;
 import me.dineka.books_service.model.Author;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface AuthorRepository extends JpaRepository<Author, Long> {
-    boolean existsByNameIgnoreCaseAndBirthYear(String name, Integer birthYear);
+    /**
+     * Проверка дубликата по нормализованному имени ({@link Author#normalizeName}): сравнение идёт
+     * по индексу {@code idx_author_normalized_name}, без {@code lower(name)} для каждой строки.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.AUTHOR_DUPLICATE_CHECK_REGION)
+    })
+    boolean existsByNormalizedNameAndBirthYear(String normalizedName, Integer birthYear);
+
+    /**
+     * Страница авторов без подсчёта общего количества: {@link Slice#hasNext()} определяется
+     * по лишней записи.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.AUTHOR_LIST_REGION)
+    })
+    Slice<Author> findAllBy(Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.AUTHOR_LIST_REGION)
+    })
+    List<Author> findAllByOrderByNormalizedNameAscIdAsc(Limit limit);
+
+    /**
+     * Авторы после позиции ({@code name}, {@code id}) в порядке сортировки по нормализованному имени.
+     * Условие по {@code name} отдельно от дизъюнкции, чтобы выборка шла диапазоном по индексу.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.AUTHOR_LIST_REGION)
+    })
+    @Query("select a from Author a where a.normalizedName >= :name and (a.normalizedName > :name or a.id > :id) " +
+            "order by a.normalizedName, a.id")
+    List<Author> findAfter(String name, Long id, Limit limit);
+
+    @Query("select new me.dineka.books_service.DTO.AuthorSuggestionDTO(a.id, a.name) from Author a")
+    List<AuthorSuggestionDTO> findAllSuggestions();
+
+    /**
+     * {@code id}, имя и год рождения всех авторов без загрузки сущностей: для сопоставления авторов при импорте.
+     */
+    @Query("select a.id, a.name, a.birthYear from Author a")
+    List<Object[]> findAllKeys();
+
+    /**
+     * {@code id} авторов с известным годом рождения в диапазоне, по возрастанию: для фильтра агрегации книг.
+     */
+    @Query("select a.id from Author a where a.birthYear >= :from and a.birthYear <= :to order by a.id")
+    List<Long> findIdsByBirthYearBetween(int from, int to);
+
+    @Modifying
+    @Query("update Author a set a.normalizedName = lower(trim(a.name)) where a.normalizedName is null")
+    int normalizeMissingNames();
 }
@@ -0,0 +1,23 @@
+package me.dineka.books_service.repository;
+
+import me.dineka.books_service.model.BookChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface BookChangeRepository extends JpaRepository<BookChange, Long> {
+    List<BookChange> findByIdGreaterThanOrderByIdAsc(Long since, Limit limit);
+
+    @Query("select min(c.id) from BookChange c")
+    Long findMinId();
+
+    @Modifying
+    @Query("delete from BookChange c where c.changedAt < :cutoff and c.id < (select max(l.id) from BookChange l)")
+    int deleteOlderThan(Instant cutoff);
+}
@@ -1,10 +1,53 @@
 package me.dineka.books_service.repository;
 
+import jakarta.persistence.QueryHint;
+import me.dineka.books_service.config.SecondLevelCacheConfig;
 import me.dineka.books_service.model.Book;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.BOOK_DUPLICATE_CHECK_REGION)
+    })
     boolean existsByTitleIgnoreCaseAndYearAndAuthorId(String title, int year, Long authorId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.BOOK_DUPLICATE_CHECK_REGION)
+    })
+    boolean existsByTitleIgnoreCaseAndYearAndAuthorIdAndIdNot(String title, int year, Long authorId, Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "author")
+    List<Book> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "author")
+    List<Book> findAll(Sort sort);
+
+    @Query("select b.id from Book b where b.author.id = :authorId order by b.id")
+    List<Long> findIdsByAuthorId(Long authorId);
+
+    @Query("select b.id from Book b where b.id in :ids order by b.id")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from Book b where b.id = :id")
+    int deleteBookById(Long id);
+
+    @Modifying
+    @Query("delete from Book b where b.id in :ids")
+    int deleteBooksByIds(Collection<Long> ids);
 }
@@ -0,0 +1,19 @@
+package me.dineka.books_service.repository;
+
+import me.dineka.books_service.model.CatalogCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogCounterRepository extends JpaRepository<CatalogCounter, String> {
+    @Query("select c.total from CatalogCounter c where c.name = :name")
+    Optional<Long> findTotal(String name);
+
+    @Modifying
+    @Query("update CatalogCounter c set c.total = c.total + :delta where c.name = :name")
+    int add(String name, long delta);
+}
@@ -0,0 +1,238 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookJobDTO;
+import me.dineka.books_service.DTO.CreateOrUpdateBookDTO;
+import me.dineka.books_service.exception.BookAlreadyExistsException;
+import me.dineka.books_service.exception.BookJobNotFoundException;
+import me.dineka.books_service.exception.BookWriteQueueFullException;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.repository.BookRepository;
+import me.dineka.books_service.util.Validation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись новых книг (включается {@code books.async-write.enabled=true}).
+ *
+ * <p>Запрос валидируется сразу и ставится в ограниченную очередь, единственный поток-писатель
+ * сохраняет накопившиеся книги пакетами в одной транзакции. Статус каждой заявки доступен по её id.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "books.async-write.enabled", havingValue = "true")
+public class AsyncBookWriter implements SmartLifecycle {
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final BookService bookService;
+    private final BookRepository bookRepository;
+    private final BookChangeLog bookChangeLog;
+    private final BookShardRouter bookShardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Job> queue;
+    private final int batchSize;
+    private final Map<String, BookJobDTO> jobs;
+    private final Thread writer;
+    private volatile boolean running;
+
+    Logger log = LoggerFactory.getLogger(AsyncBookWriter.class);
+
+    public AsyncBookWriter(BookService bookService,
+                           BookRepository bookRepository,
+                           BookChangeLog bookChangeLog,
+                           BookShardRouter bookShardRouter,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${books.async-write.queue-capacity:10000}") int queueCapacity,
+                           @Value("${books.async-write.batch-size:500}") int batchSize,
+                           @Value("${books.async-write.job-retention:100000}") int jobRetention) {
+        this.bookService = bookService;
+        this.bookRepository = bookRepository;
+        this.bookChangeLog = bookChangeLog;
+        this.bookShardRouter = bookShardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BookJobDTO> eldest) {
+                return size() > jobRetention;
+            }
+        });
+        this.writer = new Thread(this::drain, "book-writer");
+    }
+
+    /**
+     * Принимает книгу на отложенную запись.
+     *
+     * <p>Название, жанр и год проверяются сразу, существование автора и дубликаты - при записи;
+     * ошибка записи отражается в статусе заявки.</p>
+     *
+     * @param bookDTO объект {@link CreateOrUpdateBookDTO} с данными книги
+     * @return заявка {@link BookJobDTO} в статусе {@code PENDING}
+     * @throws BookWriteQueueFullException если очередь заполнена или приложение останавливается
+     */
+    public BookJobDTO submit(CreateOrUpdateBookDTO bookDTO) {
+        Validation.validateBookTitle(bookDTO.getTitle());
+        Validation.validateBookGenre(bookDTO.getGenre());
+        Validation.validatePublishingYear(bookDTO.getYear());
+
+        BookJobDTO job = new BookJobDTO(UUID.randomUUID().toString(), BookJobDTO.Status.PENDING, null, null);
+        jobs.put(job.getId(), job);
+        if (!running || !queue.offer(new Job(job.getId(), bookDTO))) {
+            jobs.remove(job.getId());
+            log.warn("Очередь записи книг заполнена, заявка отклонена");
+            throw new BookWriteQueueFullException("Очередь записи книг заполнена, повторите запрос позже");
+        }
+        return job;
+    }
+
+    /**
+     * Возвращает статус заявки на запись.
+     *
+     * @param jobId id заявки
+     * @return заявка {@link BookJobDTO}
+     * @throws BookJobNotFoundException если заявки нет или она вытеснена из истории
+     */
+    public BookJobDTO getJob(String jobId) {
+        BookJobDTO job = jobs.get(jobId);
+        if (job == null) {
+            throw new BookJobNotFoundException("Заявка с id " + jobId + " не найдена");
+        }
+        return job;
+    }
+
+    private void drain() {
+        List<Job> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Job first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Делит пакет по шардам авторов, без шардирования пакет остаётся одним.
+     */
+    private void write(List<Job> batch) {
+        Map<Integer, List<Job>> byShard = new TreeMap<>();
+        for (Job job : batch) {
+            byShard.computeIfAbsent(bookShardRouter.shardOf(job.bookDTO().getAuthorId()), shard -> new ArrayList<>()).add(job);
+        }
+        byShard.forEach((shard, jobs) -> bookShardRouter.onShard(shard, () -> {
+            writeShard(jobs);
+            return null;
+        }));
+    }
+
+    /**
+     * Сохраняет пакет в одной транзакции. Заявки, не прошедшие проверки, помечаются как неуспешные
+     * и не мешают сохранению остальных.
+     */
+    private void writeShard(List<Job> batch) {
+        List<Job> accepted = new ArrayList<>(batch.size());
+        List<Book> books = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> keys = new HashSet<>();
+                for (Job job : batch) {
+                    try {
+                        Book book = bookService.prepareBook(job.bookDTO());
+                        String key = book.getTitle().toLowerCase(Locale.ROOT) + '|' + book.getYear() + '|' + book.getAuthor().getId();
+                        if (!keys.add(key)) {
+                            throw new BookAlreadyExistsException("Книга с таким названием, автором и годом издания уже существует");
+                        }
+                        accepted.add(job);
+                        books.add(book);
+                    } catch (RuntimeException e) {
+                        complete(job.id(), BookJobDTO.Status.FAILED, null, e.getMessage());
+                    }
+                }
+                bookRepository.saveAll(books);
+                bookChangeLog.recordUpserts(books);
+            });
+            for (int i = 0; i < accepted.size(); i++) {
+                complete(accepted.get(i).id(), BookJobDTO.Status.DONE, books.get(i).getId(), null);
+            }
+            log.info("Записан пакет книг: {} из {}", accepted.size(), batch.size());
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать пакет книг", e);
+            for (Job job : accepted) {
+                complete(job.id(), BookJobDTO.Status.FAILED, null, "Не удалось сохранить книгу");
+            }
+        }
+    }
+
+    private void complete(String jobId, BookJobDTO.Status status, Long bookId, String error) {
+        jobs.computeIfPresent(jobId, (id, job) -> new BookJobDTO(id, status, bookId, error));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer.start();
+    }
+
+    /**
+     * Прекращает приём заявок и дожидается записи всех уже принятых.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Job> rest = new ArrayList<>(batchSize);
+        while (queue.drainTo(rest, batchSize) > 0) {
+            write(rest);
+            rest.clear();
+        }
+        log.info("Очередь записи книг сброшена");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Останавливается после веб-сервера, чтобы не терять заявки, принятые в период плавной остановки.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private record Job(String id, CreateOrUpdateBookDTO bookDTO) {
+    }
+}
@@ -0,0 +1,255 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
+import me.dineka.books_service.model.Author;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Индекс имён авторов для подсказок по префиксу ({@code GET /authors/suggest}).
+ *
+ * <p>Хранит отсортированный массив ключей (нормализованное имя, {@code ё} заменена на {@code е})
+ * и параллельный массив готовых ответов. Поиск - двоичный поиск начала префикса и просмотр подряд идущих
+ * ключей, без блокировок и почти без выделения памяти: ответ - представление над массивом снимка,
+ * который после публикации не меняется.</p>
+ *
+ * <p>Новые авторы попадают в небольшой отдельный отсортированный массив, добавление копирует только его.
+ * Когда в нём набирается {@link #MAX_DELTA} авторов, он сливается с основным массивом за один проход.
+ * Подсказки сливают совпадения из обоих массивов. Автор с уже проиндексированным {@code id} не добавляется повторно.</p>
+ *
+ * <p>Перестройка из базы версионирована: авторы, добавленные между {@link #beginRebuild()} и {@link #rebuild(List)},
+ * применяются к новому содержимому, поэтому автор, зафиксированный во время чтения базы, не теряется.</p>
+ */
+@Component
+public class AuthorNameIndex {
+    static final int MAX_DELTA = 1024;
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparing(entry -> entry.value().getId());
+    private static final Run EMPTY = new Run(new String[0], new AuthorSuggestionDTO[0]);
+
+    private volatile Snapshot snapshot = new Snapshot(EMPTY, EMPTY);
+    private List<AuthorSuggestionDTO> pending;
+
+    /**
+     * Начинает перестройку: авторы, добавленные до {@link #rebuild(List)}, будут применены и к новому содержимому.
+     * Вызывается до чтения авторов из базы.
+     */
+    public synchronized void beginRebuild() {
+        pending = new ArrayList<>();
+    }
+
+    /**
+     * Заменяет содержимое индекса и применяет авторов, добавленных после {@link #beginRebuild()}.
+     *
+     * @param authors все авторы каталога
+     */
+    public synchronized void rebuild(List<AuthorSuggestionDTO> authors) {
+        snapshot = new Snapshot(Run.of(authors.stream().map(Entry::of).sorted(ORDER).toArray(Entry[]::new)), EMPTY);
+        if (pending != null) {
+            List<AuthorSuggestionDTO> added = pending;
+            pending = null;
+            addAll(added);
+        }
+    }
+
+    /**
+     * Добавляет автора в индекс.
+     *
+     * @param author сохранённый автор
+     */
+    public void add(AuthorSuggestionDTO author) {
+        addAll(List.of(author));
+    }
+
+    /**
+     * Добавляет авторов в индекс одним слиянием. Уже проиндексированные {@code id} пропускаются.
+     *
+     * @param authors сохранённые авторы
+     */
+    public synchronized void addAll(List<AuthorSuggestionDTO> authors) {
+        if (pending != null) {
+            pending.addAll(authors);
+        }
+        Snapshot current = snapshot;
+        Entry[] added = authors.stream().map(Entry::of)
+                .filter(entry -> !current.contains(entry))
+                .sorted(ORDER).distinct().toArray(Entry[]::new);
+        if (added.length == 0) {
+            return;
+        }
+        Run delta = current.delta.merge(added);
+        snapshot = delta.keys.length > MAX_DELTA
+                ? new Snapshot(current.main.merge(delta.entries()), EMPTY)
+                : new Snapshot(current.main, delta);
+    }
+
+    /**
+     * Возвращает авторов, имя которых начинается с префикса, в порядке имени.
+     *
+     * @param prefix начало имени без учёта регистра
+     * @param limit  максимальное количество авторов
+     * @return неизменяемый список подсказок, пустой для пустого префикса
+     */
+    public List<AuthorSuggestionDTO> suggest(String prefix, int limit) {
+        String key = fold(prefix);
+        if (key == null || key.isEmpty()) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        int mainFrom = lowerBound(current.main.keys, key);
+        int deltaFrom = lowerBound(current.delta.keys, key);
+        boolean inMain = current.main.matches(mainFrom, key);
+        boolean inDelta = current.delta.matches(deltaFrom, key);
+        if (!inDelta) {
+            return current.main.range(mainFrom, key, limit);
+        }
+        if (!inMain) {
+            return current.delta.range(deltaFrom, key, limit);
+        }
+        List<AuthorSuggestionDTO> merged = new ArrayList<>(limit);
+        int i = mainFrom;
+        int j = deltaFrom;
+        while (merged.size() < limit && (current.main.matches(i, key) || current.delta.matches(j, key))) {
+            boolean takeMain = !current.delta.matches(j, key)
+                    || (current.main.matches(i, key) && compare(current.main, i, current.delta, j) <= 0);
+            merged.add(takeMain ? current.main.values[i++] : current.delta.values[j++]);
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current.main.keys.length + current.delta.keys.length;
+    }
+
+    static String fold(String name) {
+        String normalized = Author.normalizeName(name);
+        return normalized == null ? null : normalized.replace('ё', 'е');
+    }
+
+    private static int compare(Run a, int i, Run b, int j) {
+        int byKey = a.keys[i].compareTo(b.keys[j]);
+        return byKey != 0 ? byKey : Long.compare(a.values[i].getId(), b.values[j].getId());
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private record Entry(String key, AuthorSuggestionDTO value) {
+        private static Entry of(AuthorSuggestionDTO author) {
+            return new Entry(fold(author.getName()), author);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry entry && key.equals(entry.key) && value.getId().equals(entry.value.getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return value.getId().hashCode();
+        }
+    }
+
+    private record Snapshot(Run main, Run delta) {
+        private boolean contains(Entry entry) {
+            return main.contains(entry) || delta.contains(entry);
+        }
+    }
+
+    /**
+     * Отсортированные по ключу и {@code id} массивы ключей и ответов. После публикации не меняются.
+     */
+    private static final class Run {
+        private final String[] keys;
+        private final AuthorSuggestionDTO[] values;
+        private final List<AuthorSuggestionDTO> view;
+
+        private Run(String[] keys, AuthorSuggestionDTO[] values) {
+            this.keys = keys;
+            this.values = values;
+            this.view = Collections.unmodifiableList(Arrays.asList(values));
+        }
+
+        private static Run of(Entry[] entries) {
+            String[] keys = new String[entries.length];
+            AuthorSuggestionDTO[] values = new AuthorSuggestionDTO[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                keys[i] = entries[i].key();
+                values[i] = entries[i].value();
+            }
+            return new Run(keys, values);
+        }
+
+        private Entry[] entries() {
+            Entry[] entries = new Entry[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                entries[i] = new Entry(keys[i], values[i]);
+            }
+            return entries;
+        }
+
+        private boolean matches(int position, String prefix) {
+            return position < keys.length && keys[position].startsWith(prefix);
+        }
+
+        private List<AuthorSuggestionDTO> range(int from, String prefix, int limit) {
+            int to = from;
+            while (to - from < limit && matches(to, prefix)) {
+                to++;
+            }
+            return from == to ? List.of() : view.subList(from, to);
+        }
+
+        private boolean contains(Entry entry) {
+            for (int i = lowerBound(keys, entry.key()); i < keys.length && keys[i].equals(entry.key()); i++) {
+                if (values[i].getId().equals(entry.value().getId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Сливает с отсортированными записями за один проход.
+         */
+        private Run merge(Entry[] added) {
+            int size = keys.length + added.length;
+            String[] mergedKeys = new String[size];
+            AuthorSuggestionDTO[] mergedValues = new AuthorSuggestionDTO[size];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < size; k++) {
+                boolean takeOwn = j == added.length || (i < keys.length && precedes(i, added[j]));
+                if (takeOwn) {
+                    mergedKeys[k] = keys[i];
+                    mergedValues[k] = values[i++];
+                } else {
+                    mergedKeys[k] = added[j].key();
+                    mergedValues[k] = added[j++].value();
+                }
+            }
+            return new Run(mergedKeys, mergedValues);
+        }
+
+        private boolean precedes(int position, Entry entry) {
+            int byKey = keys[position].compareTo(entry.key());
+            return byKey < 0 || (byKey == 0 && values[position].getId() <= entry.value().getId());
+        }
+    }
+}
@@ -1,80 +1,288 @@
 package me.dineka.books_service.service;
 
+import me.dineka.books_service.DTO.AuthorMatchDTO;
+import me.dineka.books_service.DTO.AuthorSliceDTO;
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
 import me.dineka.books_service.DTO.CreateAuthorDTO;
+import me.dineka.books_service.config.ReadWriteRoutingDataSource;
 import me.dineka.books_service.exception.AuthorAlreadyExistsException;
 import me.dineka.books_service.exception.AuthorNotFoundException;
+import me.dineka.books_service.exception.InvalidAuthorScrollException;
+import me.dineka.books_service.exception.InvalidAuthorSuggestException;
 import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.CatalogCounter;
 import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.repository.CatalogCounterRepository;
+import me.dineka.books_service.util.LogMarkers;
+import me.dineka.books_service.util.SingleFlight;
 import me.dineka.books_service.util.Validation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.function.Supplier;
 
 @Service
 public class AuthorService {
+    public static final int MAX_SCROLL_SIZE = 1000;
+    public static final int MAX_SUGGEST_LIMIT = 50;
+    public static final int MAX_SEARCH_QUERY_LENGTH = 100;
+    private static final Sort NAME_ORDER = Sort.by("normalizedName", "id");
+
     private final AuthorRepository authorRepository;
+    private final CatalogCounterRepository catalogCounterRepository;
+    private final AuthorNameIndex authorNameIndex;
+    private final AuthorTrigramIndex authorTrigramIndex;
+    private final BookShardRouter bookShardRouter;
+    private final SingleFlight<Long, Author> authorLoads = new SingleFlight<>();
 
     Logger log = LoggerFactory.getLogger(AuthorService.class);
 
-    public AuthorService(AuthorRepository authorRepository) {
+    public AuthorService(AuthorRepository authorRepository,
+                         CatalogCounterRepository catalogCounterRepository,
+                         AuthorNameIndex authorNameIndex,
+                         AuthorTrigramIndex authorTrigramIndex,
+                         BookShardRouter bookShardRouter) {
         this.authorRepository = authorRepository;
+        this.catalogCounterRepository = catalogCounterRepository;
+        this.authorNameIndex = authorNameIndex;
+        this.authorTrigramIndex = authorTrigramIndex;
+        this.bookShardRouter = bookShardRouter;
     }
 
+    /**
+     * Дозаполняет нормализованные имена авторов, сохранённых до появления колонки,
+     * заводит счётчик авторов, если его ещё нет (это единственный подсчёт по таблице), и строит индексы подсказок и поиска.
+     * Вызывается при прогреве каталога ({@link CatalogWarmup}).
+     */
+    @Transactional
+    public void initCatalog() {
+        int normalized = authorRepository.normalizeMissingNames();
+        if (normalized > 0) {
+            log.info("Заполнены нормализованные имена авторов: {}", normalized);
+        }
+        if (!catalogCounterRepository.existsById(CatalogCounter.AUTHORS)) {
+            catalogCounterRepository.save(new CatalogCounter(CatalogCounter.AUTHORS, authorRepository.count()));
+        }
+        rebuildNameIndex();
+    }
 
     /**
-     * Добавляет нового автора
+     * Перестраивает индексы подсказок и поиска из базы. Индексы свои у каждого экземпляра приложения,
+     * периодическая перестройка подхватывает авторов, добавленных другими экземплярами. Авторы, добавленные
+     * в индексы во время чтения базы, применяются к новому содержимому индексов.
+     */
+    @Scheduled(fixedDelayString = "${books.authors.suggest.refresh-interval:PT5M}",
+            initialDelayString = "${books.authors.suggest.refresh-interval:PT5M}")
+    public void rebuildNameIndex() {
+        authorNameIndex.beginRebuild();
+        authorTrigramIndex.beginRebuild();
+        List<AuthorSuggestionDTO> authors = authorRepository.findAllSuggestions();
+        authorNameIndex.rebuild(authors);
+        authorTrigramIndex.rebuild(authors);
+        log.debug("Индексы подсказок и поиска авторов перестроены: {}", authors.size());
+    }
+
+
+    /**
+     * Добавляет нового автора и увеличивает счётчик авторов в той же транзакции.
+     * При шардировании книг автор копируется на все шарды после фиксации
      * @param authorDTO {@link CreateAuthorDTO} для создания автора с полями name и birth_year
      * @return {@link Author}
      */
+    @Transactional
     public Author addAuthor(CreateAuthorDTO authorDTO) {
         validateAuthor(authorDTO);
         Author author = new Author();
         author.setName(authorDTO.getName());
         author.setBirth_year(authorDTO.getBirth_year());
         authorRepository.save(author);
-        log.info("Добавлен новый автор: {}", author.getName());
+        catalogCounterRepository.add(CatalogCounter.AUTHORS, 1);
+        bookShardRouter.replicateAuthors(List.of(author));
+        indexAfterCommit(List.of(AuthorSuggestionDTO.fromEntity(author)));
+        log.atInfo().addKeyValue("authorId", author.getId()).log("Добавлен автор");
         return author;
     }
 
     /**
-     * Получает автора по {@code id}
+     * Добавляет авторов пакетом без валидации и проверки дубликатов: их выполняет вызывающий (импорт каталога).
+     * Счётчик авторов увеличивается в той же транзакции, при шардировании книг авторы копируются на все шарды после фиксации.
+     * В индексы подсказок и поиска пакет добавляется одним слиянием после фиксации.
+     * @param authors новые авторы без {@code id}
+     * @return сохранённые авторы {@link Author}
+     */
+    @Transactional
+    public List<Author> importAuthors(List<Author> authors) {
+        List<Author> saved = authorRepository.saveAll(authors);
+        catalogCounterRepository.add(CatalogCounter.AUTHORS, saved.size());
+        bookShardRouter.replicateAuthors(saved);
+        indexAfterCommit(saved.stream().map(AuthorSuggestionDTO::fromEntity).toList());
+        return saved;
+    }
+
+    /**
+     * Получает автора по {@code id}. Одновременные запросы одного автора объединяются в одно обращение к репозиторию,
+     * читающая транзакция открывается в {@code findById} репозитория. Поток, закреплённый за основной базой,
+     * читает сам: общая загрузка могла идти в реплику, ещё не получившую запись клиента.
      * @param id id искомого автора
      *
      * @throws AuthorNotFoundException если автор не найден
      * @return {@link Author}
      */
     public Author getAuthorById(Long id) {
-        return authorRepository.findById(id).orElseThrow(() -> {
-            log.warn("Не удалось найти автора с id: {}", id);
+        Supplier<Author> loader = () -> authorRepository.findById(id).orElseThrow(() -> {
+            log.info(LogMarkers.NOT_FOUND, "Не удалось найти автора с id: {}", id);
             return new AuthorNotFoundException("Автор c id" + id + "не найден");
         });
+        return ReadWriteRoutingDataSource.isPinnedToPrimary() ? loader.get() : authorLoads.load(id, loader);
     }
 
     /**
-     * Возвращает список авторов с учётом параметров пагинации.
+     * Возвращает список авторов с учётом параметров пагинации, отсортированный по имени.
+     * Общее количество авторов не подсчитывается.
      *
      * @param request объект {@link Pageable}, содержащий параметры страницы и размера страницы
      * @return список {@link Author} из указанной страницы
      * @throws IllegalArgumentException если номер страницы меньше 0 или размер страницы меньше или равен 0
      */
+    @Transactional(readOnly = true)
     public List<Author> getAllAuthors(Pageable request) {
         if (request.getPageNumber() < 0) {
-            log.warn("Не удалось получить список авторов: некорректное значение page: {}", request.getPageNumber());
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось получить список авторов: некорректное значение page: {}", request.getPageNumber());
             throw new IllegalArgumentException("Номер страницы не может быть отрицательным");
         }
         if (request.getPageSize() <= 0) {
-            log.warn("Не удалось получить список авторов: некорректное значение pageSize: {}", request.getPageSize());
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось получить список авторов: некорректное значение pageSize: {}", request.getPageSize());
             throw new IllegalArgumentException("Размер страницы не может быть отрицательным");
         }
-        return authorRepository.findAll(request).getContent();
+        return authorRepository.findAllBy(PageRequest.of(request.getPageNumber(), request.getPageSize(), NAME_ORDER)).getContent();
+    }
+
+    /**
+     * Возвращает следующую порцию авторов, отсортированных по имени, начиная после токена {@code after}.
+     *
+     * <p>Позиция передаётся в токене, а не номером страницы, поэтому глубокие страницы читаются
+     * диапазоном по индексу без пропуска предыдущих записей.</p>
+     *
+     * @param after     токен из {@code nextToken} предыдущего ответа, пустой - с начала списка
+     * @param size      количество авторов в ответе, от 1 до {@link #MAX_SCROLL_SIZE}
+     * @param withTotal вернуть ли общее количество авторов (из счётчика, без подсчёта по таблице)
+     * @return объект {@link AuthorSliceDTO} с авторами и токеном продолжения
+     * @throws InvalidAuthorScrollException если токен или размер порции некорректны
+     */
+    @Transactional(readOnly = true)
+    public AuthorSliceDTO scrollAuthors(String after, int size, boolean withTotal) {
+        if (size <= 0 || size > MAX_SCROLL_SIZE) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось получить список авторов: некорректное значение size: {}", size);
+            throw new InvalidAuthorScrollException("Размер порции должен быть от 1 до " + MAX_SCROLL_SIZE);
+        }
+        List<Author> authors;
+        if (after == null || after.isBlank()) {
+            authors = authorRepository.findAllByOrderByNormalizedNameAscIdAsc(Limit.of(size + 1));
+        } else {
+            Position position = parseToken(after);
+            authors = authorRepository.findAfter(position.name(), position.id(), Limit.of(size + 1));
+        }
+        boolean hasNext = authors.size() > size;
+        if (hasNext) {
+            authors = authors.subList(0, size);
+        }
+        String nextToken = hasNext ? token(authors.get(authors.size() - 1)) : null;
+        Long total = withTotal ? catalogCounterRepository.findTotal(CatalogCounter.AUTHORS).orElse(null) : null;
+        return new AuthorSliceDTO(authors, nextToken, hasNext, total);
+    }
+
+    /**
+     * Возвращает авторов, имя которых начинается с префикса, из индекса в памяти без обращения к базе.
+     * Регистр и буква {@code ё} не учитываются.
+     *
+     * @param prefix начало имени автора
+     * @param limit  количество подсказок, от 1 до {@link #MAX_SUGGEST_LIMIT}
+     * @return список {@link AuthorSuggestionDTO} в порядке имени
+     * @throws InvalidAuthorSuggestException если лимит некорректен
+     */
+    public List<AuthorSuggestionDTO> suggestAuthors(String prefix, int limit) {
+        if (limit <= 0 || limit > MAX_SUGGEST_LIMIT) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось подобрать авторов: некорректное значение limit: {}", limit);
+            throw new InvalidAuthorSuggestException("Количество подсказок должно быть от 1 до " + MAX_SUGGEST_LIMIT);
+        }
+        return authorNameIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * Ищет авторов с похожим именем по триграммному индексу в памяти: находит написание с опечатками,
+     * пропущенными буквами и переставленными словами. Используется для предупреждения о почти-дубликатах.
+     *
+     * @param query имя или часть имени автора
+     * @param limit количество кандидатов, от 1 до {@link #MAX_SUGGEST_LIMIT}
+     * @return список {@link AuthorMatchDTO} от самого похожего
+     * @throws InvalidAuthorSuggestException если лимит или длина запроса некорректны
+     */
+    public List<AuthorMatchDTO> searchAuthors(String query, int limit) {
+        if (limit <= 0 || limit > MAX_SUGGEST_LIMIT) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось найти авторов: некорректное значение limit: {}", limit);
+            throw new InvalidAuthorSuggestException("Количество кандидатов должно быть от 1 до " + MAX_SUGGEST_LIMIT);
+        }
+        if (query != null && query.length() > MAX_SEARCH_QUERY_LENGTH) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось найти авторов: запрос длиннее {} символов", MAX_SEARCH_QUERY_LENGTH);
+            throw new InvalidAuthorSuggestException("Запрос не может быть длиннее " + MAX_SEARCH_QUERY_LENGTH + " символов");
+        }
+        return authorTrigramIndex.search(query, limit);
+    }
+
+    /**
+     * Добавляет авторов в индексы подсказок и поиска после фиксации транзакции, чтобы откат не оставил в них лишних авторов.
+     */
+    private void indexAfterCommit(List<AuthorSuggestionDTO> authors) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index(authors);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                index(authors);
+            }
+        });
+    }
+
+    private void index(List<AuthorSuggestionDTO> authors) {
+        authorNameIndex.addAll(authors);
+        authorTrigramIndex.addAll(authors);
+    }
+
+    static String token(Author author) {
+        String position = author.getId() + ":" + author.getNormalizedName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Position parseToken(String token) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            if (separator > 0) {
+                return new Position(position.substring(separator + 1), Long.parseLong(position.substring(0, separator)));
+            }
+        } catch (IllegalArgumentException ignored) {
+        }
+        log.info(LogMarkers.INVALID_REQUEST, "Некорректный токен списка авторов: {}", token);
+        throw new InvalidAuthorScrollException("Некорректный токен списка авторов");
     }
 
     /**
      * Валидирует данные автора перед добавлением в базу.
-     * Проверяет, существует ли уже автор с таким именем и годом рождения,
+     * Проверяет, существует ли уже автор с таким именем (без учёта регистра и крайних пробелов) и годом рождения,
      * а также корректность имени и года рождения.
      *
      * @param authorDTO объект {@link CreateAuthorDTO} с данными автора для валидации
@@ -82,12 +290,15 @@ public class AuthorService {
      * @throws IllegalArgumentException если имя автора или год рождения не проходят валидацию
      */
     private void validateAuthor(CreateAuthorDTO authorDTO) {
-        if (authorRepository.existsByNameIgnoreCaseAndBirthYear(authorDTO.getName(), authorDTO.getBirth_year())) {
-            log.error("Не удалось добавить автора: автор {} уже существует", authorDTO.getName());
+        if (authorRepository.existsByNormalizedNameAndBirthYear(Author.normalizeName(authorDTO.getName()), authorDTO.getBirth_year())) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось добавить автора: автор {} уже существует", authorDTO.getName());
             throw new AuthorAlreadyExistsException("Не удалось добавить автора: автор " + authorDTO.getName() + " уже существует");
         }
         Validation.validateAuthorName(authorDTO.getName());
         Validation.validateBirthYear(authorDTO.getBirth_year());
     }
 
+    private record Position(String name, Long id) {
+    }
+
 }
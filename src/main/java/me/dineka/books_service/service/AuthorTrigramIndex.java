@@ -0,0 +1,358 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.AuthorMatchDTO;
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Триграммный индекс имён авторов для нечёткого поиска ({@code GET /authors/search}).
+ *
+ * <p>Имя приводится к виду {@link AuthorNameIndex#fold}, каждое слово дополняется пробелами
+ * ({@code "  слово "}) и разбивается на триграммы. Для каждой триграммы хранится возрастающий массив
+ * порядковых номеров авторов. Поиск суммирует совпадения по спискам запроса в счётчиках на автора
+ * и ранжирует кандидатов по сходству {@code общие / (триграммы запроса + триграммы имени - общие)},
+ * как {@code similarity} в pg_trgm.</p>
+ *
+ * <p>Списки растут дописыванием: свободный хвост массива заполнен {@link #FREE}, добавление автора пишет его номер
+ * в первую свободную ячейку списков его триграмм и публикует номер последним. Заполненный список копируется
+ * в массив вдвое больше, поэтому добавление стоит в среднем O(1) на триграмму. Поиск идёт без блокировок
+ * и останавливается на номерах, которые ещё не опубликованы. Счётчики на автора берутся из пула и возвращаются
+ * после поиска; их количество ограничено числом одновременных поисков.</p>
+ *
+ * <p>Перестройка из базы версионирована так же, как у {@link AuthorNameIndex}: авторы, добавленные между
+ * {@link #beginRebuild()} и {@link #rebuild(List)}, применяются к новому содержимому, уже проиндексированные
+ * {@code id} не добавляются повторно.</p>
+ */
+@Component
+public class AuthorTrigramIndex {
+    /** Триграммы запроса сверх этого числа не учитываются: счётчики совпадений - {@code short}. */
+    static final int MAX_QUERY_TRIGRAMS = 128;
+    /** Свободная ячейка списка: больше любого номера автора. */
+    private static final int FREE = Integer.MAX_VALUE;
+
+    private final double threshold;
+    private final ConcurrentLinkedQueue<Scratch> scratches = new ConcurrentLinkedQueue<>();
+    private volatile State state = new State(new AuthorSuggestionDTO[16], new int[16], new ConcurrentHashMap<>(), 0);
+    private List<AuthorSuggestionDTO> pending;
+
+    public AuthorTrigramIndex(@Value("${books.authors.search.similarity-threshold:0.3}") double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Начинает перестройку: авторы, добавленные до {@link #rebuild(List)}, будут применены и к новому содержимому.
+     * Вызывается до чтения авторов из базы.
+     */
+    public synchronized void beginRebuild() {
+        pending = new ArrayList<>();
+    }
+
+    /**
+     * Заменяет содержимое индекса и применяет авторов, добавленных после {@link #beginRebuild()}.
+     *
+     * @param authors все авторы каталога
+     */
+    public synchronized void rebuild(List<AuthorSuggestionDTO> authors) {
+        int capacity = Math.max(16, authors.size());
+        AuthorSuggestionDTO[] entries = new AuthorSuggestionDTO[capacity];
+        int[] lengths = new int[capacity];
+        Map<Long, PostingsBuilder> builders = new HashMap<>();
+        for (int ordinal = 0; ordinal < authors.size(); ordinal++) {
+            long[] trigrams = trigrams(authors.get(ordinal).getName());
+            entries[ordinal] = authors.get(ordinal);
+            lengths[ordinal] = trigrams.length;
+            for (long trigram : trigrams) {
+                builders.computeIfAbsent(trigram, t -> new PostingsBuilder()).add(ordinal);
+            }
+        }
+        ConcurrentHashMap<Long, int[]> postings = new ConcurrentHashMap<>(builders.size() * 2);
+        builders.forEach((trigram, builder) -> postings.put(trigram, builder.toArray()));
+        state = new State(entries, lengths, postings, authors.size());
+        if (pending != null) {
+            List<AuthorSuggestionDTO> added = pending;
+            pending = null;
+            addAll(added);
+        }
+    }
+
+    /**
+     * Добавляет автора в индекс.
+     *
+     * @param author сохранённый автор
+     */
+    public void add(AuthorSuggestionDTO author) {
+        addAll(List.of(author));
+    }
+
+    /**
+     * Добавляет авторов в индекс. Уже проиндексированные {@code id} и имена без триграмм пропускаются.
+     *
+     * @param authors сохранённые авторы
+     */
+    public synchronized void addAll(List<AuthorSuggestionDTO> authors) {
+        if (pending != null) {
+            pending.addAll(authors);
+        }
+        State current = state;
+        for (AuthorSuggestionDTO author : authors) {
+            long[] trigrams = trigrams(author.getName());
+            if (trigrams.length == 0 || contains(current, author.getId(), trigrams)) {
+                continue;
+            }
+            int ordinal = current.size;
+            if (ordinal == current.authors.length) {
+                current.lengths = Arrays.copyOf(current.lengths, ordinal * 2);
+                current.authors = Arrays.copyOf(current.authors, ordinal * 2);
+            }
+            current.authors[ordinal] = author;
+            current.lengths[ordinal] = trigrams.length;
+            for (long trigram : trigrams) {
+                append(current.postings, trigram, ordinal);
+            }
+            current.size = ordinal + 1;
+        }
+    }
+
+    /**
+     * Ищет авторов с именем, похожим на запрос.
+     *
+     * @param query запрос, допускает опечатки и перестановку слов
+     * @param limit максимальное количество кандидатов
+     * @return кандидаты со сходством не ниже порога ({@code books.authors.search.similarity-threshold}),
+     * от самого похожего
+     */
+    public List<AuthorMatchDTO> search(String query, int limit) {
+        long[] queryTrigrams = trigrams(query);
+        if (queryTrigrams.length == 0) {
+            return List.of();
+        }
+        State current = state;
+        int size = current.size;
+        AuthorSuggestionDTO[] authors = current.authors;
+        int[] lengths = current.lengths;
+
+        Scratch scratch = scratches.poll();
+        if (scratch == null) {
+            scratch = new Scratch();
+        }
+        try {
+            scratch.ensureCapacity(size);
+            short[] counts = scratch.counts;
+            for (int i = 0; i < Math.min(queryTrigrams.length, MAX_QUERY_TRIGRAMS); i++) {
+                int[] postings = current.postings.get(queryTrigrams[i]);
+                if (postings == null) {
+                    continue;
+                }
+                for (int ordinal : postings) {
+                    if (ordinal >= size) {
+                        break;
+                    }
+                    if (counts[ordinal]++ == 0) {
+                        scratch.touch(ordinal);
+                    }
+                }
+            }
+
+            int queryLength = Math.min(queryTrigrams.length, MAX_QUERY_TRIGRAMS);
+            int[] best = new int[limit];
+            double[] bestScores = new double[limit];
+            int found = 0;
+            for (int i = 0; i < scratch.touchedCount; i++) {
+                int ordinal = scratch.touched[i];
+                int common = counts[ordinal];
+                double score = (double) common / (queryLength + lengths[ordinal] - common);
+                if (score < threshold || (found == limit && score <= bestScores[limit - 1])) {
+                    continue;
+                }
+                int position = found == limit ? limit - 1 : found++;
+                while (position > 0 && bestScores[position - 1] < score) {
+                    best[position] = best[position - 1];
+                    bestScores[position] = bestScores[position - 1];
+                    position--;
+                }
+                best[position] = ordinal;
+                bestScores[position] = score;
+            }
+
+            List<AuthorMatchDTO> matches = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                AuthorSuggestionDTO author = authors[best[i]];
+                matches.add(new AuthorMatchDTO(author.getId(), author.getName(), bestScores[i]));
+            }
+            return matches;
+        } finally {
+            scratch.reset();
+            scratches.offer(scratch);
+        }
+    }
+
+    public int size() {
+        return state.size;
+    }
+
+    /**
+     * Проиндексирован ли автор: его номер ищется в самом коротком списке его триграмм.
+     */
+    private static boolean contains(State state, long id, long[] trigrams) {
+        int[] shortest = null;
+        for (long trigram : trigrams) {
+            int[] postings = state.postings.get(trigram);
+            if (postings == null) {
+                return false;
+            }
+            if (shortest == null || postings.length < shortest.length) {
+                shortest = postings;
+            }
+        }
+        for (int ordinal : shortest) {
+            if (ordinal >= state.size) {
+                break;
+            }
+            if (state.authors[ordinal].getId() == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Дописывает номер в первую свободную ячейку списка, заполненный список заменяется копией вдвое больше.
+     */
+    private static void append(ConcurrentHashMap<Long, int[]> postings, long trigram, int ordinal) {
+        int[] list = postings.get(trigram);
+        if (list == null) {
+            list = new int[4];
+            Arrays.fill(list, FREE);
+            list[0] = ordinal;
+            postings.put(trigram, list);
+            return;
+        }
+        int length = freeFrom(list);
+        if (length == list.length) {
+            list = Arrays.copyOf(list, length * 2);
+            Arrays.fill(list, length, list.length, FREE);
+            list[length] = ordinal;
+            postings.put(trigram, list);
+        } else {
+            list[length] = ordinal;
+        }
+    }
+
+    /**
+     * Первая свободная ячейка: номера в списке возрастают, свободные ячейки - в конце.
+     */
+    private static int freeFrom(int[] list) {
+        int low = 0;
+        int high = list.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (list[middle] != FREE) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Разбивает имя на различные триграммы, каждая упакована в {@code long} по 16 бит на символ.
+     */
+    static long[] trigrams(String name) {
+        String folded = AuthorNameIndex.fold(name);
+        if (folded == null || folded.isEmpty()) {
+            return new long[0];
+        }
+        long[] trigrams = new long[folded.length() * 2 + 2];
+        int count = 0;
+        for (String word : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                long trigram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+                if (count == trigrams.length) {
+                    trigrams = Arrays.copyOf(trigrams, count * 2);
+                }
+                trigrams[count++] = trigram;
+            }
+        }
+        Arrays.sort(trigrams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private static final class State {
+        private volatile AuthorSuggestionDTO[] authors;
+        private volatile int[] lengths;
+        private final ConcurrentHashMap<Long, int[]> postings;
+        private volatile int size;
+
+        private State(AuthorSuggestionDTO[] authors, int[] lengths, ConcurrentHashMap<Long, int[]> postings, int size) {
+            this.authors = authors;
+            this.lengths = lengths;
+            this.postings = postings;
+            this.size = size;
+        }
+    }
+
+    private static final class PostingsBuilder {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(ordinals, size);
+        }
+    }
+
+    /**
+     * Счётчики совпадений на автора и список затронутых авторов для их обнуления после поиска.
+     */
+    private static final class Scratch {
+        private short[] counts = new short[0];
+        private int[] touched = new int[256];
+        private int touchedCount;
+
+        private void ensureCapacity(int size) {
+            if (counts.length < size) {
+                counts = new short[Math.max(size, counts.length * 2)];
+            }
+        }
+
+        private void touch(int ordinal) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = ordinal;
+        }
+
+        private void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                counts[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+}
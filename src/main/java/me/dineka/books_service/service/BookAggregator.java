@@ -0,0 +1,373 @@
+package me.dineka.books_service.service;
+
+import jakarta.annotation.PreDestroy;
+import me.dineka.books_service.DTO.BookAggregateDTO;
+import me.dineka.books_service.DTO.BookAggregateRequestDTO;
+import me.dineka.books_service.DTO.BookGroupDTO;
+import me.dineka.books_service.exception.InvalidBookAggregateException;
+import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.util.LogMarkers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Агрегация каталога книг для редакционных отчётов ({@code POST /books/aggregate}):
+ * количество книг и минимальный и максимальный год издания с группировкой по жанру, году, десятилетию или автору.
+ *
+ * <p>Запрос выполняется по снимку {@link BookColumnStore} в пуле fork/join: диапазон сегментов делится пополам,
+ * пока в задаче не останется {@link #LEAF_SEGMENTS} сегментов, каждая задача собирает свою таблицу групп,
+ * таблицы сливаются при объединении задач. Поля группировки упаковываются в один {@code long},
+ * таблица групп - открытая адресация на примитивных массивах, поэтому просмотр строк не выделяет память.</p>
+ */
+@Service
+public class BookAggregator {
+    static final int LEAF_SEGMENTS = 16;
+    private static final int KEY_BITS = 63;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Object> VALUE_ORDER = Comparator.nullsFirst((a, b) -> ((Comparable) a).compareTo(b));
+    private static final Comparator<Object[]> KEY_ORDER = (a, b) -> {
+        for (int i = 0; i < a.length; i++) {
+            int result = VALUE_ORDER.compare(a[i], b[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    };
+
+    private final BookColumnStore bookColumnStore;
+    private final AuthorRepository authorRepository;
+    private final ForkJoinPool pool;
+
+    Logger log = LoggerFactory.getLogger(BookAggregator.class);
+
+    public BookAggregator(BookColumnStore bookColumnStore,
+                          AuthorRepository authorRepository,
+                          @Value("${books.aggregate.parallelism:0}") int parallelism) {
+        this.bookColumnStore = bookColumnStore;
+        this.authorRepository = authorRepository;
+        this.pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Считает книги, подходящие под фильтры, по группам.
+     *
+     * <p>Поля группировки: {@code genre}, {@code year}, {@code decade}, {@code authorId}. Без полей возвращается одна группа
+     * с пустым ключом. Фильтры по году рождения автора отбирают только авторов с известным годом рождения.</p>
+     *
+     * @param request объект {@link BookAggregateRequestDTO} с полями группировки и фильтрами
+     * @return объект {@link BookAggregateDTO} с группами, упорядоченными по значениям ключа
+     * @throws InvalidBookAggregateException если поле группировки неизвестно, повторяется
+     *                                       или сочетание полей не помещается в ключ группы
+     */
+    public BookAggregateDTO aggregate(BookAggregateRequestDTO request) {
+        Field[] fields = parseFields(request.getGroupBy());
+        BookColumnStore.Snapshot snapshot = bookColumnStore.snapshot();
+        if (snapshot == null) {
+            throw new IllegalStateException("Колоночная модель книг ещё не построена");
+        }
+        Query query = new Query(fields,
+                request.getYearFrom() == null ? Integer.MIN_VALUE : request.getYearFrom(),
+                request.getYearTo() == null ? Integer.MAX_VALUE : request.getYearTo(),
+                genreMask(snapshot, request.getGenres()),
+                allowedAuthors(request));
+
+        GroupTable table = pool.invoke(new Task(snapshot, query, 0, snapshot.segmentCount()));
+
+        int[] slots = table.usedSlots();
+        List<Object[]> keys = new ArrayList<>(slots.length);
+        long total = 0;
+        for (int slot : slots) {
+            keys.add(unpack(table.keys[slot], fields, snapshot));
+            total += table.counts[slot];
+        }
+        Integer[] order = new Integer[slots.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keys::get, KEY_ORDER));
+        List<BookGroupDTO> groups = new ArrayList<>(slots.length);
+        for (int i : order) {
+            int slot = slots[i];
+            Map<String, Object> key = new LinkedHashMap<>();
+            for (int f = 0; f < fields.length; f++) {
+                key.put(fields[f].name, keys.get(i)[f]);
+            }
+            groups.add(new BookGroupDTO(key, table.counts[slot], table.minYears[slot], table.maxYears[slot]));
+        }
+        return new BookAggregateDTO(Arrays.stream(fields).map(field -> field.name).toList(), total, groups);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    private Field[] parseFields(List<String> groupBy) {
+        if (groupBy == null) {
+            return new Field[0];
+        }
+        Field[] fields = new Field[groupBy.size()];
+        int bits = 0;
+        for (int i = 0; i < fields.length; i++) {
+            Field field = Field.of(groupBy.get(i));
+            if (field == null) {
+                log.info(LogMarkers.INVALID_REQUEST, "Неизвестное поле группировки: {}", groupBy.get(i));
+                throw new InvalidBookAggregateException("Поле группировки должно быть одним из: genre, year, decade, authorId");
+            }
+            if (Arrays.asList(fields).contains(field)) {
+                throw new InvalidBookAggregateException("Поле группировки повторяется: " + field.name);
+            }
+            fields[i] = field;
+            bits += field.bits;
+        }
+        if (bits > KEY_BITS) {
+            throw new InvalidBookAggregateException("Группировка по authorId сочетается не более чем с одним другим полем");
+        }
+        return fields;
+    }
+
+    private static boolean[] genreMask(BookColumnStore.Snapshot snapshot, List<String> genres) {
+        if (genres == null) {
+            return null;
+        }
+        boolean[] mask = new boolean[snapshot.genres.length];
+        for (String genre : genres) {
+            if (genre == null) {
+                continue;
+            }
+            boolean[] matches = snapshot.matchGenres(genre);
+            for (int i = 0; i < mask.length; i++) {
+                mask[i] |= matches[i];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Отсортированные id авторов, проходящих фильтры по автору, или {@code null}, если фильтров нет.
+     */
+    private long[] allowedAuthors(BookAggregateRequestDTO request) {
+        long[] byId = request.getAuthorIds() == null ? null
+                : request.getAuthorIds().stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        if (request.getAuthorBirthYearFrom() == null && request.getAuthorBirthYearTo() == null) {
+            return byId;
+        }
+        long[] byBirthYear = authorRepository.findIdsByBirthYearBetween(
+                request.getAuthorBirthYearFrom() == null ? Integer.MIN_VALUE : request.getAuthorBirthYearFrom(),
+                request.getAuthorBirthYearTo() == null ? Integer.MAX_VALUE : request.getAuthorBirthYearTo())
+                .stream().mapToLong(Long::longValue).toArray();
+        if (byId == null) {
+            return byBirthYear;
+        }
+        return Arrays.stream(byId).filter(id -> Arrays.binarySearch(byBirthYear, id) >= 0).toArray();
+    }
+
+    private static Object[] unpack(long key, Field[] fields, BookColumnStore.Snapshot snapshot) {
+        Object[] values = new Object[fields.length];
+        for (int f = fields.length - 1; f >= 0; f--) {
+            long value = key & fields[f].mask;
+            key >>>= fields[f].bits;
+            values[f] = switch (fields[f]) {
+                case GENRE -> snapshot.genre((int) value - 1);
+                case YEAR -> (int) value;
+                case DECADE -> (int) value * 10;
+                case AUTHOR -> value;
+            };
+        }
+        return values;
+    }
+
+    /**
+     * Поле группировки и число бит, которое оно занимает в ключе группы.
+     * Годы и десятилетия издания неотрицательны и помещаются в 16 бит, жанр - номер в словаре плюс один.
+     */
+    enum Field {
+        GENRE("genre", 16),
+        YEAR("year", 16),
+        DECADE("decade", 16),
+        AUTHOR("authorId", 47);
+
+        final String name;
+        final int bits;
+        final long mask;
+
+        Field(String name, int bits) {
+            this.name = name;
+            this.bits = bits;
+            this.mask = (1L << bits) - 1;
+        }
+
+        static Field of(String name) {
+            for (Field field : values()) {
+                if (name != null && field.name.equalsIgnoreCase(name.trim())) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private record Query(Field[] fields, int yearFrom, int yearTo, boolean[] genres, long[] authors) {
+    }
+
+    /**
+     * Задача над диапазоном сегментов {@code [from, to)}.
+     */
+    private static final class Task extends RecursiveTask<GroupTable> {
+        private final BookColumnStore.Snapshot snapshot;
+        private final Query query;
+        private final int from;
+        private final int to;
+
+        private Task(BookColumnStore.Snapshot snapshot, Query query, int from, int to) {
+            this.snapshot = snapshot;
+            this.query = query;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GroupTable compute() {
+            if (to - from > LEAF_SEGMENTS) {
+                int middle = (from + to) >>> 1;
+                Task left = new Task(snapshot, query, from, middle);
+                left.fork();
+                GroupTable right = new Task(snapshot, query, middle, to).compute();
+                return left.join().merge(right);
+            }
+            GroupTable table = new GroupTable();
+            for (int s = from; s < to; s++) {
+                scan(snapshot.segment(s), table);
+            }
+            return table;
+        }
+
+        private void scan(BookColumnStore.Segment segment, GroupTable table) {
+            Field[] fields = query.fields;
+            boolean[] genres = query.genres;
+            long[] authors = query.authors;
+            for (int i = 0; i < segment.size; i++) {
+                int year = segment.years[i];
+                if (segment.versions[i] < 0 || year < query.yearFrom || year > query.yearTo) {
+                    continue;
+                }
+                int genre = segment.genres[i];
+                if (genres != null && (genre < 0 || !genres[genre])) {
+                    continue;
+                }
+                long authorId = segment.authorIds[i];
+                if (authors != null && Arrays.binarySearch(authors, authorId) < 0) {
+                    continue;
+                }
+                long key = 0;
+                for (Field field : fields) {
+                    long value = switch (field) {
+                        case GENRE -> genre + 1;
+                        case YEAR -> year;
+                        case DECADE -> Math.floorDiv(year, 10);
+                        case AUTHOR -> authorId;
+                    };
+                    key = (key << field.bits) | (value & field.mask);
+                }
+                table.add(key, 1, year, year);
+            }
+        }
+    }
+
+    /**
+     * Таблица групп с открытой адресацией: ключ группы, количество книг, минимальный и максимальный год.
+     */
+    static final class GroupTable {
+        private long[] keys = new long[16];
+        private boolean[] used = new boolean[16];
+        private long[] counts = new long[16];
+        private int[] minYears = new int[16];
+        private int[] maxYears = new int[16];
+        private int size;
+
+        void add(long key, long count, int minYear, int maxYear) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                counts[slot] = count;
+                minYears[slot] = minYear;
+                maxYears[slot] = maxYear;
+                if (++size * 2 > keys.length) {
+                    grow();
+                }
+                return;
+            }
+            counts[slot] += count;
+            minYears[slot] = Math.min(minYears[slot], minYear);
+            maxYears[slot] = Math.max(maxYears[slot], maxYear);
+        }
+
+        GroupTable merge(GroupTable other) {
+            GroupTable target = size >= other.size ? this : other;
+            GroupTable source = target == this ? other : this;
+            for (int slot = 0; slot < source.keys.length; slot++) {
+                if (source.used[slot]) {
+                    target.add(source.keys[slot], source.counts[slot], source.minYears[slot], source.maxYears[slot]);
+                }
+            }
+            return target;
+        }
+
+        private int[] usedSlots() {
+            int[] slots = new int[size];
+            int n = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    slots[n++] = slot;
+                }
+            }
+            return slots;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            long[] oldCounts = counts;
+            int[] oldMin = minYears;
+            int[] oldMax = maxYears;
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            counts = new long[capacity];
+            minYears = new int[capacity];
+            maxYears = new int[capacity];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot]) {
+                    add(oldKeys[slot], oldCounts[slot], oldMin[slot], oldMax[slot]);
+                }
+            }
+        }
+
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookChangeDTO;
+
+/**
+ * Событие об изменении книги, публикуется журналом изменений внутри транзакции записи.
+ * Слушатели получают его после фиксации транзакции.
+ *
+ * @param change запись журнала изменений
+ */
+public record BookChangeEvent(BookChangeDTO change) {
+}
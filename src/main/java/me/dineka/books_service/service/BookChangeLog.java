@@ -0,0 +1,287 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookChangeDTO;
+import me.dineka.books_service.DTO.BookChangesDTO;
+import me.dineka.books_service.config.ShardSet;
+import me.dineka.books_service.exception.ChangeTokenExpiredException;
+import me.dineka.books_service.exception.InvalidChangeTokenException;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.model.BookChange;
+import me.dineka.books_service.model.CatalogCounter;
+import me.dineka.books_service.repository.BookChangeRepository;
+import me.dineka.books_service.util.LogMarkers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Журнал изменений книг (transactional outbox).
+ *
+ * <p>Методы записи вызываются внутри транзакции изменения книги, поэтому запись в журнал фиксируется
+ * или откатывается вместе с ним. Зеркала каталога читают журнал по токену и получают только дельту.
+ * О каждой записи публикуется {@link BookChangeEvent}. При шардировании запись попадает в журнал шарда
+ * вместе с изменением книги и переносится в глобальный журнал {@link ShardOutboxRelay}, событие публикуется при переносе.</p>
+ *
+ * <p>Номер записи выдаётся не при вставке строки, а из счётчика {@link CatalogCounter#BOOK_CHANGES}: обновлённая
+ * строка счётчика заблокирована до конца транзакции, поэтому следующая транзакция получает номера только после
+ * фиксации предыдущей. Номера растут в порядке фиксации, и зеркало, прочитавшее номер {@code N},
+ * не получит позже запись с меньшим номером. Запись в журнал - последний шаг транзакции изменения,
+ * поэтому транзакции записи упорядочиваются только на время своей фиксации.</p>
+ */
+@Service
+public class BookChangeLog {
+    public static final int MAX_LIMIT = 1000;
+    private static final String INSERT_CHANGE = "insert into book_change (id, book_id, type, title, genre, \"year\", author_id, changed_at) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ALLOCATE_SEQUENCES = "select total from final table " +
+            "(update catalog_counter set total = total + ? where name = ?)";
+    private static final String FIND_SEQUENCE = "select total from catalog_counter where name = ?";
+    private static final String CREATE_SEQUENCE = "insert into catalog_counter (name, total) " +
+            "select ?, coalesce(max(id), 0) from book_change";
+
+    private final BookChangeRepository bookChangeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+
+    Logger log = LoggerFactory.getLogger(BookChangeLog.class);
+
+    public BookChangeLog(BookChangeRepository bookChangeRepository,
+                         ApplicationEventPublisher eventPublisher,
+                         JdbcTemplate jdbcTemplate,
+                         @Value("${books.changes.retention:P7D}") Duration retention) {
+        this.bookChangeRepository = bookChangeRepository;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+    }
+
+    /**
+     * Заводит счётчик номеров журнала при запуске, чтобы его не создавала первая запись в журнал.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initSequence() {
+        if (jdbcTemplate.queryForList(FIND_SEQUENCE, Long.class, CatalogCounter.BOOK_CHANGES).isEmpty()) {
+            createSequence();
+        }
+    }
+
+    /**
+     * Записывает в журнал текущее состояние добавленной или изменённой книги.
+     *
+     * @param book сохранённая книга с заполненным {@code id}
+     */
+    public void recordUpsert(Book book) {
+        save(List.of(BookChange.upsert(book)));
+    }
+
+    /**
+     * Записывает в журнал состояние нескольких сохранённых книг.
+     *
+     * @param books сохранённые книги с заполненными {@code id}
+     */
+    public void recordUpserts(List<Book> books) {
+        save(books.stream().map(BookChange::upsert).toList());
+    }
+
+    /**
+     * Записывает в журнал состояние нескольких книг одним пакетом JDBC, минуя контекст персистентности.
+     * Используется при импорте каталога, где книги тоже вставляются пакетами JDBC.
+     *
+     * @param books сохранённые книги с заполненными {@code id}
+     */
+    public void recordUpsertsBatch(List<Book> books) {
+        insertBatch(books.stream().map(BookChange::upsert).toList());
+    }
+
+    /**
+     * Записывает в журнал удаление книги (tombstone).
+     *
+     * @param bookId id удалённой книги
+     */
+    public void recordDelete(Long bookId) {
+        save(List.of(BookChange.delete(bookId)));
+    }
+
+    /**
+     * Записывает в журнал удаление нескольких книг.
+     *
+     * @param bookIds id удалённых книг
+     */
+    public void recordDeletes(List<Long> bookIds) {
+        save(bookIds.stream().map(BookChange::delete).toList());
+    }
+
+    /**
+     * Записывает в журнал удаление нескольких книг одним пакетом JDBC, минуя контекст персистентности.
+     * Используется при массовом удалении, где книг может быть сколько угодно.
+     *
+     * @param bookIds id удалённых книг
+     */
+    public void recordDeletesBatch(List<Long> bookIds) {
+        insertBatch(bookIds.stream().map(BookChange::delete).toList());
+    }
+
+    /**
+     * Переносит записи из журнала шарда в глобальный журнал. Записи получают новые номера в порядке переноса.
+     *
+     * @param changes записи журнала шарда в порядке фиксации
+     */
+    @Transactional
+    public void relay(List<BookChange> changes) {
+        save(changes.stream().map(BookChange::copyOf).toList());
+    }
+
+    /**
+     * Возвращает изменения, произошедшие после токена {@code since}, в порядке фиксации.
+     *
+     * <p>Пустой токен или {@code 0} означает чтение журнала с начала. Если изменения после токена
+     * уже удалены по сроку хранения, клиент должен заново загрузить каталог целиком.</p>
+     *
+     * @param since токен из {@code nextToken} предыдущего ответа
+     * @param limit максимальное количество изменений в ответе, от 1 до {@link #MAX_LIMIT}
+     * @return объект {@link BookChangesDTO} с изменениями и токеном продолжения
+     * @throws InvalidChangeTokenException если токен или лимит некорректны
+     * @throws ChangeTokenExpiredException если часть изменений после токена уже удалена из журнала
+     */
+    @Transactional(readOnly = true)
+    public BookChangesDTO getChanges(String since, int limit) {
+        long sequence = parseToken(since);
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            log.info(LogMarkers.INVALID_REQUEST, "Некорректный лимит журнала изменений: {}", limit);
+            throw new InvalidChangeTokenException("Лимит должен быть от 1 до " + MAX_LIMIT);
+        }
+        Long minId = bookChangeRepository.findMinId();
+        if (minId != null && sequence < minId - 1) {
+            log.info(LogMarkers.INVALID_REQUEST, "Токен журнала изменений {} устарел, минимальная запись {}", sequence, minId);
+            throw new ChangeTokenExpiredException("Токен устарел: загрузите каталог заново через GET /books");
+        }
+
+        List<BookChange> changes = bookChangeRepository.findByIdGreaterThanOrderByIdAsc(sequence, Limit.of(limit + 1));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+        long next = changes.isEmpty() ? sequence : changes.get(changes.size() - 1).getId();
+        return new BookChangesDTO(changes.stream().map(BookChangeDTO::fromEntity).toList(), Long.toString(next), hasMore);
+    }
+
+    /**
+     * Удаляет записи журнала старше срока хранения ({@code books.changes.retention}).
+     * Последняя запись сохраняется всегда, чтобы по ней можно было определить устаревшие токены.
+     */
+    @Scheduled(fixedDelayString = "${books.changes.compaction-interval:PT10M}")
+    @Transactional
+    public void compact() {
+        int deleted = bookChangeRepository.deleteOlderThan(Instant.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Из журнала изменений удалено записей: {}", deleted);
+        }
+    }
+
+    private void save(List<BookChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        assignSequences(changes);
+        bookChangeRepository.saveAll(changes).forEach(this::publish);
+    }
+
+    private void insertBatch(List<BookChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        assignSequences(changes);
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                BookChange change = changes.get(i);
+                statement.setLong(1, change.getId());
+                statement.setLong(2, change.getBookId());
+                statement.setString(3, change.getType().name());
+                statement.setString(4, change.getTitle());
+                statement.setString(5, change.getGenre());
+                statement.setObject(6, change.getYear());
+                statement.setObject(7, change.getAuthorId());
+                statement.setObject(8, change.getChangedAt().atOffset(ZoneOffset.UTC));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+        changes.forEach(this::publish);
+    }
+
+    /**
+     * Выдаёт записям подряд идущие номера. Блокировка строки счётчика держится до конца транзакции.
+     */
+    private void assignSequences(List<BookChange> changes) {
+        long next = allocate(changes.size()) - changes.size() + 1;
+        for (BookChange change : changes) {
+            change.setId(next++);
+        }
+    }
+
+    /**
+     * Увеличивает счётчик на {@code count} и возвращает последний выданный номер. Счётчик, не заведённый при запуске
+     * (журнал шарда), заводится при первой записи в журнал, начиная с наибольшего номера в журнале.
+     */
+    private long allocate(int count) {
+        List<Long> last = jdbcTemplate.queryForList(ALLOCATE_SEQUENCES, Long.class, count, CatalogCounter.BOOK_CHANGES);
+        if (last.isEmpty()) {
+            createSequence();
+            last = jdbcTemplate.queryForList(ALLOCATE_SEQUENCES, Long.class, count, CatalogCounter.BOOK_CHANGES);
+        }
+        return last.get(0);
+    }
+
+    private void createSequence() {
+        try {
+            jdbcTemplate.update(CREATE_SEQUENCE, CatalogCounter.BOOK_CHANGES);
+        } catch (DuplicateKeyException e) {
+            log.debug("Счётчик журнала изменений заведён параллельной транзакцией");
+        }
+    }
+
+    private void publish(BookChange change) {
+        if (ShardSet.currentShard() != null) {
+            return;
+        }
+        eventPublisher.publishEvent(new BookChangeEvent(BookChangeDTO.fromEntity(change)));
+    }
+
+    private long parseToken(String since) {
+        if (since == null || since.isBlank()) {
+            return 0;
+        }
+        try {
+            long sequence = Long.parseLong(since);
+            if (sequence >= 0) {
+                return sequence;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        log.info(LogMarkers.INVALID_REQUEST, "Некорректный токен журнала изменений: {}", since);
+        throw new InvalidChangeTokenException("Некорректный токен журнала изменений");
+    }
+}
@@ -0,0 +1,486 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookChangeDTO;
+import me.dineka.books_service.DTO.BookResponseDTO;
+import me.dineka.books_service.model.BookChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Колоночная модель каталога книг в памяти для списков и фильтров без JPA.
+ *
+ * <p>Книги лежат в сегментах по {@code books.columns.segment-size} строк, упорядоченных по {@code id}.
+ * Каждая колонка сегмента - примитивный массив: {@code long[]} id и авторов, {@code int[]} годы,
+ * {@code int[]} номера жанров в словаре. Читатели берут опубликованный {@link Snapshot} и просматривают его
+ * массивы без блокировок. Изменение или удаление книги копирует один сегмент и публикует новый снимок.
+ * Новые книги с наибольшим id дописываются в свободный хвост последнего сегмента, который не виден
+ * ранее опубликованным снимкам, поэтому массовая вставка не копирует сегменты.</p>
+ *
+ * <p>Модель строится из базы при старте и периодически, изменения применяются по {@link BookChangeEvent}
+ * после фиксации транзакции. У каждой строки хранится номер последнего применённого изменения журнала:
+ * события, пришедшие не по порядку, не перетирают более новое состояние, а удалённые книги остаются
+ * отметками до следующей перестройки. При шардировании события приходят с переносом журналов шардов,
+ * поэтому модель отстаёт на {@code books.sharding.relay-interval} и список книг читается с шардов.</p>
+ */
+@Component
+public class BookColumnStore {
+    private static final String SELECT_BOOKS = "select id, title, author_id, \"year\", genre from book order by id";
+    private static final String SELECT_WATERMARK = "select coalesce(max(id), 0) from book_change";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookShardRouter bookShardRouter;
+    private final int segmentSize;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+    private Map<String, Integer> genreCodes = new HashMap<>();
+    private List<BookChangeDTO> pending;
+
+    Logger log = LoggerFactory.getLogger(BookColumnStore.class);
+
+    public BookColumnStore(JdbcTemplate jdbcTemplate,
+                           BookShardRouter bookShardRouter,
+                           @Value("${books.columns.segment-size:4096}") int segmentSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookShardRouter = bookShardRouter;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Перестраивает модель из базы. При старте вызывается прогревом каталога ({@link CatalogWarmup}). Подхватывает книги, изменённые другими экземплярами приложения,
+     * и убирает отметки удалённых книг. Все изменения, пришедшие во время перестройки, применяются к новой модели:
+     * строка, уже прочитанная с этим или более новым состоянием, пропускает их по номеру версии.
+     */
+    @Scheduled(fixedDelayString = "${books.columns.refresh-interval:PT10M}",
+            initialDelayString = "${books.columns.refresh-interval:PT10M}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            // строки выборки получают номер отметки: изменения, вошедшие в выборку, при повторном применении
+            // отбрасываются проверкой номера, а не вошедшие в неё применяются поверх
+            Long watermark = jdbcTemplate.queryForObject(SELECT_WATERMARK, Long.class);
+            Builder builder = new Builder(watermark == null ? 0 : watermark);
+            for (int shard = 0; shard < bookShardRouter.getShardCount(); shard++) {
+                if (bookShardRouter.isSharded()) {
+                    bookShardRouter.onShard(shard, () -> {
+                        jdbcTemplate.query(SELECT_BOOKS, builder::add);
+                        return null;
+                    });
+                } else {
+                    jdbcTemplate.query(SELECT_BOOKS, builder::add);
+                }
+            }
+            Snapshot built;
+            synchronized (this) {
+                genreCodes = builder.genreCodes;
+                snapshot = builder.build();
+                pending.forEach(this::apply);
+                pending = null;
+                built = snapshot;
+            }
+            log.info("Колоночная модель книг построена: {} книг, {} сегментов за {} мс",
+                    built.size, built.segmentCount(), (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            synchronized (this) {
+                pending = null;
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Применяет зафиксированное изменение книги.
+     *
+     * @param event событие {@link BookChangeEvent}
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onChange(BookChangeEvent event) {
+        BookChangeDTO change = event.change();
+        if (change.getSequence() == null || change.getBookId() == null) {
+            return;
+        }
+        if (pending != null) {
+            pending.add(change);
+        }
+        apply(change);
+    }
+
+    /**
+     * Готова ли модель отвечать на списки книг. При шардировании список читается с шардов,
+     * чтобы клиент сразу видел свои записи.
+     */
+    public boolean isServing() {
+        return snapshot != null && !bookShardRouter.isSharded();
+    }
+
+    /**
+     * Возвращает книги, подходящие под фильтр, в порядке {@code id}.
+     *
+     * @param filter фильтр {@link BookFilter}
+     * @return список объектов {@link BookResponseDTO}
+     * @throws IllegalStateException если модель ещё не построена
+     */
+    public List<BookResponseDTO> find(BookFilter filter) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Колоночная модель книг ещё не построена");
+        }
+        boolean[] genres = current.matchGenres(filter.genre());
+        boolean byAuthor = filter.authorId() != null;
+        long authorId = byAuthor ? filter.authorId() : 0;
+        List<BookResponseDTO> books = new ArrayList<>(filter.isEmpty() ? current.size : 16);
+        for (int s = 0; s < current.segmentCount(); s++) {
+            Segment segment = current.segment(s);
+            for (int i = 0; i < segment.size; i++) {
+                if (segment.versions[i] < 0
+                        || (byAuthor && segment.authorIds[i] != authorId)
+                        || (genres != null && (segment.genres[i] < 0 || !genres[segment.genres[i]]))
+                        || !filter.matchesYear(segment.years[i])) {
+                    continue;
+                }
+                books.add(new BookResponseDTO(segment.ids[i], segment.titles[i], segment.authorIds[i],
+                        current.genre(segment.genres[i]), segment.years[i]));
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Количество книг в модели, без отметок удалённых.
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.size;
+    }
+
+    /**
+     * Текущий снимок модели или {@code null}, если модель ещё не построена.
+     */
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    private void apply(BookChangeDTO change) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        long id = change.getBookId();
+        long sequence = change.getSequence();
+        boolean delete = change.getType() == BookChange.Type.DELETE;
+        int segmentIndex = current.segmentOf(id);
+        Segment segment = current.segment(segmentIndex);
+        int position = Arrays.binarySearch(segment.ids, 0, segment.size, id);
+        if (position >= 0 && Math.abs(segment.versions[position]) >= sequence) {
+            return;
+        }
+
+        String[] genres = current.genres;
+        int genre = -1;
+        if (!delete && change.getGenre() != null) {
+            Integer code = genreCodes.get(change.getGenre());
+            if (code == null) {
+                code = genres.length;
+                genreCodes.put(change.getGenre(), code);
+                genres = Arrays.copyOf(genres, genres.length + 1);
+                genres[code] = change.getGenre();
+            }
+            genre = code;
+        }
+        long version = delete ? -sequence : sequence;
+        int size = current.size + (delete ? 0 : 1);
+        if (position >= 0 && segment.versions[position] >= 0) {
+            size--;
+        }
+        String title = change.getTitle();
+        long authorId = change.getAuthorId() == null ? 0 : change.getAuthorId();
+        int year = change.getYear() == null ? 0 : change.getYear();
+
+        if (position >= 0) {
+            Segment replaced = delete
+                    ? segment.replace(position, segment.titles[position], segment.authorIds[position], segment.years[position], segment.genres[position], version)
+                    : segment.replace(position, title, authorId, year, genre, version);
+            snapshot = current.with(segmentIndex, replaced, genres, size);
+            return;
+        }
+        int insertAt = -position - 1;
+        boolean isTail = segmentIndex == current.sealed.length;
+        if (isTail && insertAt == segment.size && segment.size >= segmentSize) {
+            Segment[] sealed = Arrays.copyOf(current.sealed, current.sealed.length + 1);
+            sealed[current.sealed.length] = segment;
+            Segment tail = Segment.allocate(segmentSize).append(id, title, authorId, year, genre, version);
+            snapshot = new Snapshot(sealed, tail, genres, size);
+        } else if (isTail && insertAt == segment.size) {
+            snapshot = new Snapshot(current.sealed, segment.append(id, title, authorId, year, genre, version), genres, size);
+        } else {
+            Segment inserted = segment.insert(insertAt, id, title, authorId, year, genre, version);
+            snapshot = inserted.size > 2 * segmentSize
+                    ? current.split(segmentIndex, inserted.slice(0, segmentSize), inserted.slice(segmentSize, inserted.size), genres, size)
+                    : current.with(segmentIndex, inserted, genres, size);
+        }
+    }
+
+    /**
+     * Опубликованное состояние модели: заполненные сегменты и хвостовой сегмент по возрастанию {@code id},
+     * словарь жанров и количество книг. Хвост всегда есть, возможно пустой.
+     */
+    static final class Snapshot {
+        final Segment[] sealed;
+        final Segment tail;
+        final String[] genres;
+        final int size;
+
+        private Snapshot(Segment[] sealed, Segment tail, String[] genres, int size) {
+            this.sealed = sealed;
+            this.tail = tail;
+            this.genres = genres;
+            this.size = size;
+        }
+
+        int segmentCount() {
+            return sealed.length + 1;
+        }
+
+        Segment segment(int index) {
+            return index == sealed.length ? tail : sealed[index];
+        }
+
+        String genre(int code) {
+            return code < 0 ? null : genres[code];
+        }
+
+        /**
+         * Номера жанров, совпадающих с искомым без учёта регистра, или {@code null}, если жанр не задан.
+         */
+        boolean[] matchGenres(String genre) {
+            if (genre == null) {
+                return null;
+            }
+            boolean[] matches = new boolean[genres.length];
+            for (int i = 0; i < genres.length; i++) {
+                matches[i] = genre.equalsIgnoreCase(genres[i]);
+            }
+            return matches;
+        }
+
+        /**
+         * Сегмент, в который попадает {@code id}: последний непустой с первым id не больше искомого, иначе первый.
+         * Id больше всех существующих попадает в хвост.
+         */
+        private int segmentOf(long id) {
+            int low = 0;
+            int high = sealed.length;
+            if (tail.size == 0) {
+                Segment last = sealed.length == 0 ? null : sealed[sealed.length - 1];
+                if (last == null || id > last.ids[last.size - 1]) {
+                    return sealed.length;
+                }
+                high--;
+            }
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (segment(middle).ids[0] <= id) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        private Snapshot with(int index, Segment segment, String[] genres, int size) {
+            if (index == sealed.length) {
+                return new Snapshot(sealed, segment, genres, size);
+            }
+            Segment[] copy = sealed.clone();
+            copy[index] = segment;
+            return new Snapshot(copy, tail, genres, size);
+        }
+
+        private Snapshot split(int index, Segment first, Segment second, String[] genres, int size) {
+            Segment[] copy = new Segment[sealed.length + 1];
+            System.arraycopy(sealed, 0, copy, 0, index);
+            copy[index] = first;
+            if (index == sealed.length) {
+                return new Snapshot(copy, second, genres, size);
+            }
+            copy[index + 1] = second;
+            System.arraycopy(sealed, index + 1, copy, index + 2, sealed.length - index - 1);
+            return new Snapshot(copy, tail, genres, size);
+        }
+    }
+
+    /**
+     * Сегмент колонок. Строки {@code [0, size)} после публикации не меняются, массивы могут быть длиннее:
+     * в свободный хвост дописывает только писатель. Отрицательная версия - отметка удалённой книги.
+     */
+    static final class Segment {
+        final long[] ids;
+        final String[] titles;
+        final long[] authorIds;
+        final int[] years;
+        final int[] genres;
+        final long[] versions;
+        final int size;
+
+        private Segment(long[] ids, String[] titles, long[] authorIds, int[] years, int[] genres, long[] versions, int size) {
+            this.ids = ids;
+            this.titles = titles;
+            this.authorIds = authorIds;
+            this.years = years;
+            this.genres = genres;
+            this.versions = versions;
+            this.size = size;
+        }
+
+        private static Segment allocate(int capacity) {
+            return new Segment(new long[capacity], new String[capacity], new long[capacity],
+                    new int[capacity], new int[capacity], new long[capacity], 0);
+        }
+
+        private Segment append(long id, String title, long authorId, int year, int genre, long version) {
+            Segment target = size < ids.length ? this : allocate(Math.max(1, size * 2)).copyRows(this, 0, 0, size);
+            target.set(size, id, title, authorId, year, genre, version);
+            return new Segment(target.ids, target.titles, target.authorIds, target.years, target.genres, target.versions, size + 1);
+        }
+
+        private Segment replace(int position, String title, long authorId, int year, int genre, long version) {
+            Segment copy = new Segment(ids, titles.clone(), authorIds.clone(), years.clone(), genres.clone(), versions.clone(), size);
+            copy.set(position, ids[position], title, authorId, year, genre, version);
+            return copy;
+        }
+
+        private Segment insert(int position, long id, String title, long authorId, int year, int genre, long version) {
+            Segment copy = allocate(Math.max(size + 1, ids.length));
+            copy.copyRows(this, 0, 0, position);
+            copy.copyRows(this, position, position + 1, size - position);
+            copy.set(position, id, title, authorId, year, genre, version);
+            return new Segment(copy.ids, copy.titles, copy.authorIds, copy.years, copy.genres, copy.versions, size + 1);
+        }
+
+        private Segment slice(int from, int to) {
+            return new Segment(Arrays.copyOfRange(ids, from, to), Arrays.copyOfRange(titles, from, to),
+                    Arrays.copyOfRange(authorIds, from, to), Arrays.copyOfRange(years, from, to),
+                    Arrays.copyOfRange(genres, from, to), Arrays.copyOfRange(versions, from, to), to - from);
+        }
+
+        private void set(int position, long id, String title, long authorId, int year, int genre, long version) {
+            ids[position] = id;
+            titles[position] = title;
+            authorIds[position] = authorId;
+            years[position] = year;
+            genres[position] = genre;
+            versions[position] = version;
+        }
+
+        private Segment copyRows(Segment source, int from, int to, int length) {
+            System.arraycopy(source.ids, from, ids, to, length);
+            System.arraycopy(source.titles, from, titles, to, length);
+            System.arraycopy(source.authorIds, from, authorIds, to, length);
+            System.arraycopy(source.years, from, years, to, length);
+            System.arraycopy(source.genres, from, genres, to, length);
+            System.arraycopy(source.versions, from, versions, to, length);
+            return this;
+        }
+    }
+
+    /**
+     * Сборка модели из строк базы: строки копятся в текущем сегменте, одинаковые названия и жанры
+     * хранятся одним экземпляром строки. Последний сегмент становится хвостом с запасом под новые книги.
+     */
+    private final class Builder {
+        private final long watermark;
+        private final List<Segment> segments = new ArrayList<>();
+        private final Map<String, Integer> genreCodes = new HashMap<>();
+        private final List<String> genres = new ArrayList<>();
+        private final Map<String, String> titles = new HashMap<>();
+        private Segment current = Segment.allocate(segmentSize);
+        private int size;
+        private boolean ordered = true;
+        private long lastId = Long.MIN_VALUE;
+
+        private Builder(long watermark) {
+            this.watermark = watermark;
+        }
+
+        private void add(ResultSet rs) throws SQLException {
+            long id = rs.getLong(1);
+            ordered &= id > lastId;
+            lastId = id;
+            String title = rs.getString(2);
+            String genre = rs.getString(5);
+            current.set(size % segmentSize, id, title == null ? null : titles.computeIfAbsent(title, t -> t), rs.getLong(3), rs.getInt(4),
+                    genre == null ? -1 : genreCodes.computeIfAbsent(genre, g -> {
+                        genres.add(g);
+                        return genres.size() - 1;
+                    }), watermark);
+            size++;
+            if (size % segmentSize == 0) {
+                segments.add(new Segment(current.ids, current.titles, current.authorIds, current.years, current.genres, current.versions, segmentSize));
+                current = Segment.allocate(segmentSize);
+            }
+        }
+
+        private Snapshot build() {
+            titles.clear();
+            Segment tail = new Segment(current.ids, current.titles, current.authorIds, current.years, current.genres, current.versions, size % segmentSize);
+            Segment[] sealed = segments.toArray(Segment[]::new);
+            String[] dictionary = genres.toArray(String[]::new);
+            if (ordered) {
+                return new Snapshot(sealed, tail, dictionary, size);
+            }
+            return sort(sealed, tail, dictionary);
+        }
+
+        /**
+         * Шарды упорядочены по своим диапазонам id, но книги, перенесённые при перебалансировке,
+         * сохраняют прежние id - тогда строки шардов сортируются вместе.
+         */
+        private Snapshot sort(Segment[] sealed, Segment tail, String[] dictionary) {
+            Segment all = Segment.allocate(size);
+            int offset = 0;
+            for (Segment segment : sealed) {
+                all.copyRows(segment, 0, offset, segment.size);
+                offset += segment.size;
+            }
+            all.copyRows(tail, 0, offset, tail.size);
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(all.ids[a], all.ids[b]));
+            Segment sorted = Segment.allocate(size);
+            for (int i = 0; i < size; i++) {
+                sorted.copyRows(all, order[i], i, 1);
+            }
+            List<Segment> result = new ArrayList<>();
+            int from = 0;
+            for (; size - from > segmentSize; from += segmentSize) {
+                result.add(sorted.slice(from, from + segmentSize));
+            }
+            Segment last = Segment.allocate(segmentSize).copyRows(sorted, from, 0, size - from);
+            return new Snapshot(result.toArray(Segment[]::new),
+                    new Segment(last.ids, last.titles, last.authorIds, last.years, last.genres, last.versions, size - from), dictionary, size);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package me.dineka.books_service.service;
+
+import jakarta.annotation.PreDestroy;
+import me.dineka.books_service.DTO.BookChangeDTO;
+import me.dineka.books_service.DTO.BookChangesDTO;
+import me.dineka.books_service.exception.ChangeTokenExpiredException;
+import me.dineka.books_service.exception.InvalidChangeTokenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Поток событий об изменениях книг для SSE-подписчиков ({@code GET /books/stream}).
+ *
+ * <p>Одна общая раздача на процесс: зафиксированное изменение кладётся в ограниченный буфер каждого
+ * подписчика без блокировок, отправку выполняет общий пул потоков. Подписчик, переполнивший буфер,
+ * отключается и переподключается с {@code Last-Event-ID} - публикация от медленных клиентов не зависит.</p>
+ *
+ * <p>Отправка в сокет блокирующая, поэтому каждая отправка ограничена {@code books.stream.send-timeout}:
+ * подписчик, чья отправка длится дольше, отключается, а пул на время, пока его поток заблокирован,
+ * получает дополнительный поток. Зависшие клиенты не занимают потоки, нужные остальным подписчикам;
+ * заблокированный поток освобождается, когда контейнер закрывает соединение или истекает тайм-аут записи.</p>
+ */
+@Service
+public class BookEventStream {
+    private static final BookChangeDTO HEARTBEAT = new BookChangeDTO();
+
+    private final BookChangeLog bookChangeLog;
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor executor;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    Logger log = LoggerFactory.getLogger(BookEventStream.class);
+
+    public BookEventStream(BookChangeLog bookChangeLog,
+                           @Value("${books.stream.buffer-size:256}") int bufferSize,
+                           @Value("${books.stream.delivery-threads:4}") int deliveryThreads,
+                           @Value("${books.stream.send-timeout:PT5S}") Duration sendTimeout) {
+        this.bookChangeLog = bookChangeLog;
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "book-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Подписывает клиента на изменения книг.
+     *
+     * @param lastEventId id последнего полученного события из заголовка {@code Last-Event-ID}, может быть {@code null}
+     * @return {@link SseEmitter} подписчика
+     * @throws InvalidChangeTokenException если {@code lastEventId} некорректен
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        register(emitter, lastEventId);
+        return emitter;
+    }
+
+    void register(SseEmitter emitter, String lastEventId) {
+        if (lastEventId != null && lastEventId.isBlank()) {
+            lastEventId = null;
+        }
+        if (lastEventId != null) {
+            // проверяем токен до ответа клиенту, чтобы вернуть 400/410 вместо обрыва потока
+            bookChangeLog.getChanges(lastEventId, 1);
+        }
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(bufferSize), lastEventId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        if (lastEventId != null) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Раздаёт зафиксированное изменение всем подписчикам. Вызывающий поток не блокируется.
+     *
+     * @param event событие {@link BookChangeEvent}
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(BookChangeEvent event) {
+        publish(event.change());
+    }
+
+    /**
+     * Поддерживает соединения и обнаруживает отключившихся клиентов.
+     */
+    @Scheduled(fixedDelayString = "${books.stream.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        publish(HEARTBEAT);
+    }
+
+    /**
+     * Отключает подписчиков, отправка которым длится дольше {@code books.stream.send-timeout},
+     * и добавляет в пул поток взамен каждого заблокированного.
+     */
+    @Scheduled(fixedDelayString = "${books.stream.send-timeout:PT5S}")
+    public void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            synchronized (subscriber) {
+                long started = subscriber.sendStarted;
+                if (started == 0 || now - started < sendTimeoutNanos || subscriber.stalled) {
+                    continue;
+                }
+                subscriber.stalled = true;
+                subscriber.compensated = true;
+                resize(1);
+            }
+            subscribers.remove(subscriber);
+            log.warn("Отправка подписчику не завершилась за {} мс, соединение закрыто", TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+            try {
+                subscriber.emitter.completeWithError(new TimeoutException("Отправка события не завершилась вовремя"));
+            } catch (IllegalStateException ignored) {
+                // клиент уже отключился
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void publish(BookChangeDTO change) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.buffer.offer(change)) {
+                schedule(subscriber);
+            } else if (subscribers.remove(subscriber)) {
+                log.warn("Подписчик не успевает получать события, соединение закрыто");
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> deliver(subscriber));
+        }
+    }
+
+    private void deliver(Subscriber subscriber) {
+        try {
+            if (subscriber.replayFrom != null) {
+                replay(subscriber);
+            }
+            BookChangeDTO change;
+            while (!subscriber.stalled && (change = subscriber.buffer.poll()) != null) {
+                if (change == HEARTBEAT) {
+                    send(subscriber, SseEmitter.event().comment("heartbeat"));
+                } else if (change.getSequence() > subscriber.replayedUpTo) {
+                    send(subscriber, change);
+                }
+            }
+        } catch (IOException | IllegalStateException | ChangeTokenExpiredException e) {
+            if (subscribers.remove(subscriber)) {
+                subscriber.emitter.completeWithError(e);
+            }
+            return;
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        if (!subscriber.buffer.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Досылает пропущенные события из журнала изменений. Живые события в это время копятся в буфере,
+     * уже отправленные при досылке отбрасываются по номеру.
+     */
+    private void replay(Subscriber subscriber) throws IOException {
+        String token = subscriber.replayFrom;
+        BookChangesDTO page;
+        do {
+            page = bookChangeLog.getChanges(token, BookChangeLog.MAX_LIMIT);
+            for (BookChangeDTO change : page.getChanges()) {
+                send(subscriber, change);
+                subscriber.replayedUpTo = change.getSequence();
+            }
+            token = page.getNextToken();
+        } while (page.isHasMore());
+        subscriber.replayFrom = null;
+    }
+
+    private void send(Subscriber subscriber, BookChangeDTO change) throws IOException {
+        send(subscriber, SseEmitter.event()
+                .id(Long.toString(change.getSequence()))
+                .name(change.getType().name().toLowerCase(Locale.ROOT))
+                .data(change, MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Отправляет событие, отмечая начало отправки для {@link #dropStalled()}. Если за время отправки
+     * подписчик признан зависшим, добавленный взамен поток убирается из пула.
+     */
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendStarted = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            synchronized (subscriber) {
+                subscriber.sendStarted = 0;
+                if (subscriber.compensated) {
+                    subscriber.compensated = false;
+                    resize(-1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Меняет размер пула на {@code delta} потоков: увеличение - сначала максимум, уменьшение - сначала основной размер.
+     */
+    private synchronized void resize(int delta) {
+        if (delta > 0) {
+            executor.setMaximumPoolSize(executor.getMaximumPoolSize() + delta);
+            executor.setCorePoolSize(executor.getCorePoolSize() + delta);
+        } else {
+            executor.setCorePoolSize(executor.getCorePoolSize() + delta);
+            executor.setMaximumPoolSize(executor.getMaximumPoolSize() + delta);
+        }
+    }
+
+    /**
+     * Закрывает потоки подписчиков в начале остановки приложения: иначе плавная остановка веб-сервера
+     * ждала бы завершения бесконечных SSE-запросов.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeSubscribers() {
+        for (Subscriber subscriber : subscribers) {
+            subscribers.remove(subscriber);
+            try {
+                subscriber.emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // клиент уже отключился
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closeSubscribers();
+        executor.shutdownNow();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<BookChangeDTO> buffer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile String replayFrom;
+        private volatile long replayedUpTo;
+        private volatile long sendStarted;
+        private volatile boolean stalled;
+        private boolean compensated;
+
+        private Subscriber(SseEmitter emitter, BlockingQueue<BookChangeDTO> buffer, String replayFrom) {
+            this.emitter = emitter;
+            this.buffer = buffer;
+            this.replayFrom = replayFrom;
+            this.replayedUpTo = replayFrom == null ? 0 : Long.parseLong(replayFrom);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookResponseDTO;
+
+/**
+ * Фильтр списка книг ({@code GET /books}). Пустые поля не ограничивают выборку.
+ *
+ * @param authorId id автора
+ * @param genre    жанр без учёта регистра
+ * @param yearFrom минимальный год издания включительно
+ * @param yearTo   максимальный год издания включительно
+ */
+public record BookFilter(Long authorId, String genre, Integer yearFrom, Integer yearTo) {
+    public static final BookFilter ALL = new BookFilter(null, null, null, null);
+
+    public boolean isEmpty() {
+        return authorId == null && genre == null && yearFrom == null && yearTo == null;
+    }
+
+    public boolean matches(BookResponseDTO book) {
+        return (authorId == null || authorId.equals(book.getAuthorId()))
+                && (genre == null || genre.equalsIgnoreCase(book.getGenre()))
+                && matchesYear(book.getYear());
+    }
+
+    boolean matchesYear(int year) {
+        return (yearFrom == null || year >= yearFrom) && (yearTo == null || year <= yearTo);
+    }
+}
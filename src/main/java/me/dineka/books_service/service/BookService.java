@@ -1,56 +1,105 @@
 package me.dineka.books_service.service;
 
 import me.dineka.books_service.DTO.BookResponseDTO;
+import me.dineka.books_service.DTO.BooksDeletedDTO;
 import me.dineka.books_service.DTO.CreateOrUpdateBookDTO;
+import me.dineka.books_service.DTO.PatchBookDTO;
+import me.dineka.books_service.config.ReadWriteRoutingDataSource;
 import me.dineka.books_service.exception.AuthorNotFoundException;
 import me.dineka.books_service.exception.BookAlreadyExistsException;
 import me.dineka.books_service.exception.BookNotFoundException;
+import me.dineka.books_service.exception.InvalidBookAuthorException;
 import me.dineka.books_service.exception.InvalidBookPublishingYearException;
+import me.dineka.books_service.exception.InvalidBulkDeleteException;
 import me.dineka.books_service.model.Author;
 import me.dineka.books_service.model.Book;
 import me.dineka.books_service.repository.AuthorRepository;
 import me.dineka.books_service.repository.BookRepository;
+import me.dineka.books_service.util.LatencyHistograms;
+import me.dineka.books_service.util.LogMarkers;
+import me.dineka.books_service.util.SingleFlight;
 import me.dineka.books_service.util.Validation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class BookService {
+    public static final int MAX_BULK_DELETE_IDS = 1000;
+
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
+    private final BookChangeLog bookChangeLog;
+    private final SingleFlight<Long, BookResponseDTO> bookLoads = new SingleFlight<>();
+    private final Phases addPhases;
+    private final Phases updatePhases;
 
     Logger log = LoggerFactory.getLogger(BookService.class);
 
-    public BookService(BookRepository bookRepository, AuthorRepository authorRepository) {
+    public BookService(BookRepository bookRepository, AuthorRepository authorRepository, BookChangeLog bookChangeLog,
+                       LatencyHistograms latencyHistograms) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
+        this.bookChangeLog = bookChangeLog;
+        this.addPhases = new Phases(latencyHistograms, "BookService.addBook");
+        this.updatePhases = new Phases(latencyHistograms, "BookService.updateBook");
     }
 
     /**
      * Добавляет новую книгу.
      *
      * <p>Проверяет, существует ли автор с переданным {@code id}, валидирует данные книги
-     * Если все проверки проходят, добавляет книгу в репозиторий</p>
+     * Если все проверки проходят, добавляет книгу в репозиторий и в журнал изменений в одной транзакции</p>
      *
      * @param bookDTO объект {@link CreateOrUpdateBookDTO}, содержащий название книги, жанр, год издания и id автора
      * @return сохраненный объект {@link Book}
      * @throws AuthorNotFoundException если автор с указанным id не найден
      * @throws BookAlreadyExistsException если книга с таким названием, годом издания и автором уже существует
      */
+    @Transactional
     public Book addBook(CreateOrUpdateBookDTO bookDTO) {
+        Book book = prepareBook(bookDTO);
+        long started = System.nanoTime();
+        Book saved = bookRepository.save(book);
+        bookChangeLog.recordUpsert(saved);
+        addPhases.persist.record(started);
+        log.atInfo().addKeyValue("bookId", saved.getId()).addKeyValue("authorId", saved.getAuthor().getId()).log("Добавлена книга");
+        return saved;
+    }
+
+    /**
+     * Готовит новую книгу к сохранению, не сохраняя её.
+     *
+     * <p>Выполняет те же проверки, что и {@link #addBook(CreateOrUpdateBookDTO)}: существование автора,
+     * валидацию данных и отсутствие дубликата. Используется там, где сохранение выполняется пакетно.</p>
+     *
+     * @param bookDTO объект {@link CreateOrUpdateBookDTO}, содержащий название книги, жанр, год издания и id автора
+     * @return несохранённый объект {@link Book}
+     * @throws AuthorNotFoundException если автор с указанным id не найден
+     * @throws BookAlreadyExistsException если книга с таким названием, годом издания и автором уже существует
+     */
+    public Book prepareBook(CreateOrUpdateBookDTO bookDTO) {
+        long started = System.nanoTime();
         Long authorId = bookDTO.getAuthorId();
         Author author = authorRepository.findById(authorId).orElseThrow(() -> {
-            log.error("Не удалось добавить книгу {}: автора с id {} не существует. Сначала добавьте автора", bookDTO.getTitle(), authorId);
+            log.info(LogMarkers.NOT_FOUND, "Не удалось добавить книгу {}: автора с id {} не существует. Сначала добавьте автора", bookDTO.getTitle(), authorId);
             return new AuthorNotFoundException("Автор с id " + authorId + " не найден");
         });
+        started = addPhases.authorLookup.record(started);
         validateBook(bookDTO, author);
+        started = addPhases.validation.record(started);
 
-        if (bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorId(bookDTO.getTitle(), bookDTO.getYear(), bookDTO.getAuthorId())) {
-            log.error("Не удалось добавить книгу: книга с таким названием, автором и годом издания уже существует");
+        boolean duplicate = bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorId(bookDTO.getTitle(), bookDTO.getYear(), bookDTO.getAuthorId());
+        addPhases.duplicateCheck.record(started);
+        if (duplicate) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось добавить книгу: книга с таким названием, автором и годом издания уже существует");
             throw new BookAlreadyExistsException("Книга с таким названием, автором и годом издания уже существует");
         }
 
@@ -59,19 +108,19 @@ public class BookService {
         book.setTitle(bookDTO.getTitle());
         book.setGenre(bookDTO.getGenre());
         book.setYear(bookDTO.getYear());
-        log.info("Добавляем книгу:{}, автор: {}", book, author.getName());
-        return bookRepository.save(book);
+        return book;
     }
 
     /**
      * Получает список всех книг.
      *
-     * <p> Каждая книга преобразуется в {@link BookResponseDTO} для передачи клиенту
+     * <p> Каждая книга преобразуется в {@link BookResponseDTO} для передачи клиенту, книги упорядочены по {@code id}
      * </p>
      * @return список объектов {@link BookResponseDTO}, представляющих все добавленные книги
      */
+    @Transactional(readOnly = true)
     public List<BookResponseDTO> getAllBooks() {
-        return bookRepository.findAll().stream()
+        return bookRepository.findAll(Sort.by("id")).stream()
                 .map(BookResponseDTO::fromEntity)
                 .collect(Collectors.toList());
     }
@@ -79,18 +128,24 @@ public class BookService {
     /**
      * Получает книгу по {@code id}.
      *
-     * <p>Если книга с указанным id не найдена, выбрасывается исключение {@link BookNotFoundException}.</p>
+     * <p>Если книга с указанным id не найдена, выбрасывается исключение {@link BookNotFoundException}.
+     * Одновременные запросы одной и той же книги объединяются в одно обращение к репозиторию. Читающая транзакция
+     * открывается в {@code findById} репозитория, а не на методе, чтобы ожидающие вызовы не занимали соединений.
+     * Поток, закреплённый за основной базой, читает сам: общая загрузка могла идти в реплику, ещё не получившую запись клиента.</p>
      *
      * @param id искомой книги
      * @return объект {@link BookResponseDTO}, представляющий найденную книгу
      * @throws BookNotFoundException если книга с указанным {@code id} не существует
      */
     public BookResponseDTO getBookById(Long id) {
-        Book book = bookRepository.findById(id).orElseThrow(() -> {
-            log.error("Книга с id {} не найдена", id);
-            return new BookNotFoundException("Книга с id :" + id + " не найдена");
-        });
-        return BookResponseDTO.fromEntity(book);
+        Supplier<BookResponseDTO> loader = () -> {
+            Book book = bookRepository.findById(id).orElseThrow(() -> {
+                log.info(LogMarkers.NOT_FOUND, "Книга с id {} не найдена", id);
+                return new BookNotFoundException("Книга с id :" + id + " не найдена");
+            });
+            return BookResponseDTO.fromEntity(book);
+        };
+        return ReadWriteRoutingDataSource.isPinnedToPrimary() ? loader.get() : bookLoads.load(id, loader);
     }
 
     /**
@@ -108,23 +163,29 @@ public class BookService {
      * @throws AuthorNotFoundException если автор с id из {@code updatedBook} не найден
      * @throws BookAlreadyExistsException если существует другая книга с таким же названием, годом издания и автором
      */
+    @Transactional
     public BookResponseDTO updateBook(Long bookId, CreateOrUpdateBookDTO updatedBook) {
         Book book = bookRepository.findById(bookId).orElseThrow(() -> {
-            log.error("Не удалось обновить книгу с id {}: книга не найдена", bookId);
+            log.info(LogMarkers.NOT_FOUND, "Не удалось обновить книгу с id {}: книга не найдена", bookId);
             return new BookNotFoundException("Книга с id " + bookId + " не найдена");
         });
 
+        long started = System.nanoTime();
         Long authorId = updatedBook.getAuthorId();
         Author author;
         author = authorRepository.findById(authorId).orElseThrow(() -> {
-            log.error("Не удалось обновить книгу: автор с id {} не найден", authorId);
+            log.info(LogMarkers.NOT_FOUND, "Не удалось обновить книгу: автор с id {} не найден", authorId);
             return new AuthorNotFoundException("Автор с id " + authorId + " не найден");
         });
+        started = updatePhases.authorLookup.record(started);
 
         validateBook(updatedBook, author);
+        started = updatePhases.validation.record(started);
 
-        if (bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorId(updatedBook.getTitle(), updatedBook.getYear(), updatedBook.getAuthorId())) {
-            log.error("Не удалось обновить книгу: книга с таким названием, автором и годом издания уже существует");
+        boolean duplicate = bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorId(updatedBook.getTitle(), updatedBook.getYear(), updatedBook.getAuthorId());
+        started = updatePhases.duplicateCheck.record(started);
+        if (duplicate) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось обновить книгу: книга с таким названием, автором и годом издания уже существует");
             throw new BookAlreadyExistsException("Книга с таким названием, автором и годом издания уже существует");
         }
 
@@ -134,26 +195,144 @@ public class BookService {
         book.setAuthor(author);
 
         bookRepository.save(book);
-        log.info("Обновлена книга: {}", book);
+        bookChangeLog.recordUpsert(book);
+        updatePhases.persist.record(started);
+        log.atInfo().addKeyValue("bookId", book.getId()).addKeyValue("authorId", book.getAuthor().getId()).log("Обновлена книга");
         return BookResponseDTO.fromEntity(book);
     }
 
     /**
-     * Удаляет книгу по {@code id}.
+     * Частично обновляет книгу по {@code bookId} (JSON Merge Patch).
+     *
+     * <p>Проверяются только изменившиеся поля. Автор загружается, только если он меняется, проверка дубликата
+     * выполняется, только если меняются название, год или автор. {@code UPDATE} затрагивает лишь изменённые
+     * столбцы; если ничего не изменилось, запись и журнал изменений не трогаются.</p>
+     *
+     * @param bookId идентификатор книги для обновления
+     * @param patch объект {@link PatchBookDTO} с изменяемыми полями
+     * @return объект {@link BookResponseDTO} с актуальными данными книги
+     * @throws BookNotFoundException если книга с указанным {@code bookId} не найдена
+     * @throws AuthorNotFoundException если новый автор не найден
+     * @throws InvalidBookAuthorException если передан {@code authorId: null}
+     * @throws BookAlreadyExistsException если существует другая книга с таким же названием, годом издания и автором
+     */
+    @Transactional
+    public BookResponseDTO patchBook(Long bookId, PatchBookDTO patch) {
+        Book book = bookRepository.findById(bookId).orElseThrow(() -> {
+            log.info(LogMarkers.NOT_FOUND, "Не удалось обновить книгу с id {}: книга не найдена", bookId);
+            return new BookNotFoundException("Книга с id " + bookId + " не найдена");
+        });
+
+        boolean titleChanged = patch.hasTitle() && !Objects.equals(patch.getTitle(), book.getTitle());
+        boolean genreChanged = patch.hasGenre() && !Objects.equals(patch.getGenre(), book.getGenre());
+        boolean yearChanged = patch.hasYear() && !Objects.equals(patch.getYear(), book.getYear());
+        boolean authorChanged = patch.hasAuthorId() && !Objects.equals(patch.getAuthorId(), book.getAuthor().getId());
+        if (!titleChanged && !genreChanged && !yearChanged && !authorChanged) {
+            log.atDebug().addKeyValue("bookId", bookId).log("Книга не изменилась");
+            return BookResponseDTO.fromEntity(book);
+        }
+
+        if (titleChanged) {
+            Validation.validateBookTitle(patch.getTitle());
+        }
+        if (genreChanged) {
+            Validation.validateBookGenre(patch.getGenre());
+        }
+        if (yearChanged) {
+            Validation.validatePublishingYear(patch.getYear());
+        }
+        Author author = book.getAuthor();
+        if (authorChanged) {
+            Long authorId = patch.getAuthorId();
+            if (authorId == null) {
+                log.info(LogMarkers.INVALID_REQUEST, "Не удалось обновить книгу: автор не может быть удалён");
+                throw new InvalidBookAuthorException("Автор книги обязателен");
+            }
+            author = authorRepository.findById(authorId).orElseThrow(() -> {
+                log.info(LogMarkers.NOT_FOUND, "Не удалось обновить книгу: автор с id {} не найден", authorId);
+                return new AuthorNotFoundException("Автор с id " + authorId + " не найден");
+            });
+        }
+
+        String title = titleChanged ? patch.getTitle() : book.getTitle();
+        int year = yearChanged ? patch.getYear() : book.getYear();
+        if (yearChanged || authorChanged) {
+            if (author.getBirth_year() != null && year < author.getBirth_year()) {
+                log.info(LogMarkers.INVALID_REQUEST, "Год издания книги не может быть раньше года рождения автора");
+                throw new InvalidBookPublishingYearException("Год издания книги не может быть раньше года рождения автора");
+            }
+        }
+        if ((titleChanged || yearChanged || authorChanged)
+                && bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorIdAndIdNot(title, year, author.getId(), bookId)) {
+            log.info(LogMarkers.INVALID_REQUEST, "Не удалось обновить книгу: книга с таким названием, автором и годом издания уже существует");
+            throw new BookAlreadyExistsException("Книга с таким названием, автором и годом издания уже существует");
+        }
+
+        book.setTitle(title);
+        book.setYear(year);
+        book.setAuthor(author);
+        if (genreChanged) {
+            book.setGenre(patch.getGenre());
+        }
+
+        bookRepository.save(book);
+        bookChangeLog.recordUpsert(book);
+        log.atInfo().addKeyValue("bookId", book.getId()).addKeyValue("authorId", book.getAuthor().getId()).log("Обновлена книга");
+        return BookResponseDTO.fromEntity(book);
+    }
+
+    /**
+     * Удаляет книгу по {@code id} одним выражением {@code DELETE}.
      *
      * <p>Если книга с указанным {@code id} не найдена, выбрасывается исключение {@link BookNotFoundException}.</p>
      *
      * @param id идентификатор книги для удаления
      * @throws BookNotFoundException если книга с указанным {@code id} не существует
      */
+    @Transactional
     public void deleteBook(Long id) {
-        log.info("Удаляем книгу с id {}", id);
-        if (!bookRepository.existsById(id)) {
-            log.error("Не удалось удалить книгу с id {}: книга не найдена", id);
+        if (bookRepository.deleteBookById(id) == 0) {
+            log.info(LogMarkers.NOT_FOUND, "Не удалось удалить книгу с id {}: книга не найдена", id);
             throw new BookNotFoundException("Книга с id " + id + " не найдена");
         }
-        log.info("Удаляем книгу: id: {}", id);
-        bookRepository.deleteById(id);
+        bookChangeLog.recordDelete(id);
+        log.atInfo().addKeyValue("bookId", id).log("Удалена книга");
+    }
+
+    /**
+     * Удаляет книги автора или книги из списка {@code id}.
+     *
+     * <p>Должен быть задан ровно один фильтр. Несуществующие {@code id} пропускаются. Книги удаляются выражениями
+     * {@code DELETE} по {@link #MAX_BULK_DELETE_IDS} {@code id}, поэтому список {@code IN} ограничен и для автора
+     * с любым количеством книг. Об удалении каждой книги делается запись в журнале изменений одним пакетом JDBC,
+     * по ней обновляются подписчики и производные представления.</p>
+     *
+     * @param authorId id автора, книги которого удаляются
+     * @param ids      id удаляемых книг, не более {@link #MAX_BULK_DELETE_IDS}
+     * @return объект {@link BooksDeletedDTO} с id удалённых книг
+     * @throws InvalidBulkDeleteException если фильтр не задан, задано оба фильтра или список {@code id} слишком длинный
+     */
+    @Transactional
+    public BooksDeletedDTO deleteBooks(Long authorId, List<Long> ids) {
+        boolean byIds = ids != null && !ids.isEmpty();
+        if ((authorId == null) == !byIds) {
+            log.info(LogMarkers.INVALID_REQUEST, "Некорректный фильтр массового удаления: authorId={}, ids={}", authorId, ids);
+            throw new InvalidBulkDeleteException("Укажите ровно один фильтр: authorId или ids");
+        }
+        if (byIds && ids.size() > MAX_BULK_DELETE_IDS) {
+            log.info(LogMarkers.INVALID_REQUEST, "Слишком много id для массового удаления: {}", ids.size());
+            throw new InvalidBulkDeleteException("Можно удалить не более " + MAX_BULK_DELETE_IDS + " книг по списку id");
+        }
+
+        List<Long> deleted = byIds ? bookRepository.findExistingIds(ids) : bookRepository.findIdsByAuthorId(authorId);
+        if (!deleted.isEmpty()) {
+            for (int from = 0; from < deleted.size(); from += MAX_BULK_DELETE_IDS) {
+                bookRepository.deleteBooksByIds(deleted.subList(from, Math.min(from + MAX_BULK_DELETE_IDS, deleted.size())));
+            }
+            bookChangeLog.recordDeletesBatch(deleted);
+        }
+        log.atInfo().addKeyValue("authorId", authorId).addKeyValue("deleted", deleted.size()).log("Удалены книги");
+        return new BooksDeletedDTO(deleted);
     }
 
     /**
@@ -175,8 +354,26 @@ public class BookService {
         Validation.validatePublishingYear(bookDTO.getYear());
 
         if (author.getBirth_year()!= null && bookDTO.getYear() < author.getBirth_year()) {
-            log.error("Год издания книги не может быть раньше года рождения автора");
+            log.info(LogMarkers.INVALID_REQUEST, "Год издания книги не может быть раньше года рождения автора");
             throw new InvalidBookPublishingYearException("Год издания книги не может быть раньше года рождения автора");
         }
     }
+
+    /**
+     * Таймеры этапов изменения книги. Этап {@code persist} - вставка книги и записи журнала без фиксации транзакции,
+     * фиксация и запись ответа входят в задержку эндпоинта.
+     */
+    private static final class Phases {
+        private final LatencyHistograms.Timer authorLookup;
+        private final LatencyHistograms.Timer validation;
+        private final LatencyHistograms.Timer duplicateCheck;
+        private final LatencyHistograms.Timer persist;
+
+        private Phases(LatencyHistograms latencyHistograms, String operation) {
+            this.authorLookup = latencyHistograms.timer(operation, "author-lookup");
+            this.validation = latencyHistograms.timer(operation, "validation");
+            this.duplicateCheck = latencyHistograms.timer(operation, "duplicate-check");
+            this.persist = latencyHistograms.timer(operation, "persist");
+        }
+    }
 }
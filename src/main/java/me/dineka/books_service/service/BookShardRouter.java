@@ -0,0 +1,478 @@
+package me.dineka.books_service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import me.dineka.books_service.config.ShardSet;
+import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.CatalogCounter;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Маршрутизация операций с книгами по шардам (при {@code books.sharding.enabled=true}).
+ *
+ * <p>Книги автора живут на одном шарде, номер которого вычисляется jump consistent hash от {@code authorId}:
+ * при увеличении числа шардов переезжает только часть авторов. Операции одного автора выполняются на его шарде,
+ * операции по {@code id} книги - на шарде, где книга найдена, списки собираются со всех шардов со слиянием по {@code id}.
+ * Авторы хранятся в глобальной базе, на шарды копируются как справочные данные для проверок и соединений.
+ * Без шардирования все методы выполняют действие как есть.</p>
+ *
+ * <p>Книга ищется сначала на шарде, выдавшем её {@code id} (диапазон {@link #SHARD_ID_RANGE}), и только
+ * перенесённые книги - по справочнику {@code id} → шард в памяти; остальные шарды просматриваются, лишь если книги
+ * нет там, где она ожидалась. Количество активных шардов после перебалансировки сохраняется в глобальной базе
+ * ({@link CatalogCounter#ACTIVE_SHARDS}) и при запуске имеет приоритет над {@code books.sharding.active-shards}.</p>
+ */
+@Service
+public class BookShardRouter {
+    /**
+     * Размер диапазона {@code id} книг на шард: {@code id} остаются уникальными при переносе книг между шардами.
+     */
+    public static final long SHARD_ID_RANGE = 1_000_000_000_000L;
+
+    private static final String BOOK_COLUMNS = "id, title, author_id, \"year\", genre";
+    private static final String MERGE_AUTHOR = "merge into author (id, name, birth_year, normalized_name) key (id) values (?, ?, ?, ?)";
+
+    private final ShardSet shardSet;
+    private final EntityManagerFactory entityManagerFactory;
+    private final List<JdbcTemplate> shardJdbc = new ArrayList<>();
+    private final ExecutorService executor;
+    private final Map<Long, Integer> movedBooks = new ConcurrentHashMap<>();
+    private volatile int activeShards;
+
+    Logger log = LoggerFactory.getLogger(BookShardRouter.class);
+
+    public BookShardRouter(ObjectProvider<ShardSet> shardSet,
+                           EntityManagerFactory entityManagerFactory,
+                           @Value("${books.sharding.active-shards:0}") int activeShards) {
+        this.shardSet = shardSet.getIfAvailable();
+        this.entityManagerFactory = entityManagerFactory;
+        if (this.shardSet == null) {
+            this.executor = null;
+            this.activeShards = 1;
+            return;
+        }
+        int size = this.shardSet.size();
+        for (int i = 0; i < size; i++) {
+            shardJdbc.add(new JdbcTemplate(this.shardSet.getShard(i)));
+        }
+        this.activeShards = activeShards > 0 ? Math.min(activeShards, size) : size;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, "book-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Готовит шарды: создаёт схему на пустых, назначает каждому свой диапазон {@code id} книг
+     * и копирует авторов из глобальной базы. Количество активных шардов, сохранённое последней перебалансировкой,
+     * заменяет значение из настроек.
+     *
+     * @throws IllegalStateException если сохранённое количество активных шардов больше подключённых шардов
+     */
+    @PostConstruct
+    public void initShards() {
+        if (shardSet == null) {
+            return;
+        }
+        JdbcTemplate global = new JdbcTemplate(shardSet.getGlobal());
+        List<Long> saved = global.queryForList("select total from catalog_counter where name = ?", Long.class,
+                CatalogCounter.ACTIVE_SHARDS);
+        if (!saved.isEmpty()) {
+            int rebalanced = saved.get(0).intValue();
+            if (rebalanced > shardSet.size()) {
+                throw new IllegalStateException("Книги распределены по " + rebalanced + " шардам, подключено " + shardSet.size());
+            }
+            if (rebalanced != activeShards) {
+                log.warn("Активных шардов по последней перебалансировке: {}, в настройках: {}", rebalanced, activeShards);
+            }
+            activeShards = rebalanced;
+        }
+        List<Object[]> authors = global
+                .query("select id, name, birth_year, normalized_name from author",
+                        (rs, n) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getObject(3), rs.getString(4)});
+        for (int i = 0; i < shardSet.size(); i++) {
+            JdbcTemplate jdbc = shardJdbc.get(i);
+            Integer tables = jdbc.queryForObject("select count(*) from information_schema.tables where table_name = 'BOOK'", Integer.class);
+            if (tables == null || tables == 0) {
+                onShard(i, () -> {
+                    entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true);
+                    return null;
+                });
+            }
+            long start = (i + 1) * SHARD_ID_RANGE;
+            Long maxId = jdbc.queryForObject("select coalesce(max(id), 0) from book", Long.class);
+            if (maxId == null || maxId < start) {
+                jdbc.execute("alter table book alter column id restart with " + start);
+            }
+            jdbc.batchUpdate(MERGE_AUTHOR, authors);
+        }
+        log.info("Шардов книг: {}, активных: {}, авторов скопировано: {}", shardSet.size(), activeShards, authors.size());
+    }
+
+    public boolean isSharded() {
+        return shardSet != null;
+    }
+
+    /**
+     * Возвращает количество подключённых шардов, включая ещё не активные и освобождаемые.
+     *
+     * @return количество шардов, без шардирования {@code 1}
+     */
+    public int getShardCount() {
+        return shardSet == null ? 1 : shardSet.size();
+    }
+
+    /**
+     * Возвращает количество шардов, между которыми распределяются новые книги.
+     *
+     * @return количество активных шардов, без шардирования {@code 1}
+     */
+    public int getActiveShards() {
+        return activeShards;
+    }
+
+    /**
+     * Возвращает шард книг автора.
+     *
+     * @param authorId id автора
+     * @return номер шарда
+     */
+    public int shardOf(Long authorId) {
+        return authorId == null ? 0 : jumpHash(authorId, activeShards);
+    }
+
+    /**
+     * Выполняет действие на указанном шарде. Действие должно само открывать транзакцию.
+     *
+     * @param shard  номер шарда
+     * @param action действие
+     * @return результат действия
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (shardSet == null) {
+            return action.get();
+        }
+        Integer previous = ShardSet.enter(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardSet.enter(previous);
+        }
+    }
+
+    /**
+     * Выполняет действие на шарде книг автора.
+     *
+     * @param authorId id автора
+     * @param action   действие
+     * @return результат действия
+     */
+    public <T> T onAuthorShard(Long authorId, Supplier<T> action) {
+        return onShard(shardOf(authorId), action);
+    }
+
+    /**
+     * Выполняет действие на шарде, где хранится книга. Если книга не найдена, действие выполняется
+     * на первом шарде и само сообщает об отсутствии книги.
+     *
+     * @param bookId id книги
+     * @param action действие
+     * @return результат действия
+     */
+    public <T> T onBookShard(Long bookId, Supplier<T> action) {
+        if (shardSet == null) {
+            return action.get();
+        }
+        Integer shard = locate(bookId);
+        return onShard(shard == null ? 0 : shard, action);
+    }
+
+    /**
+     * Выполняет изменение книги, которое может сменить её автора. Если новый автор живёт на другом шарде,
+     * книга сначала переносится туда, чтобы проверки дубликатов и запись прошли на целевом шарде;
+     * при ошибке изменения книга возвращается обратно. Перенос между шардами не атомарен.
+     *
+     * @param bookId      id книги
+     * @param newAuthorId id нового автора или {@code null}, если автор не меняется
+     * @param action      изменение книги
+     * @return результат изменения
+     */
+    public <T> T onBookShard(Long bookId, Long newAuthorId, Supplier<T> action) {
+        if (shardSet == null) {
+            return action.get();
+        }
+        Integer from = locate(bookId);
+        if (from == null || newAuthorId == null || shardOf(newAuthorId) == from) {
+            return onShard(from == null ? 0 : from, action);
+        }
+        int to = shardOf(newAuthorId);
+        List<Long> ids = List.of(bookId);
+        move(ids, from, to);
+        try {
+            return onShard(to, action);
+        } catch (RuntimeException e) {
+            move(ids, to, from);
+            throw e;
+        }
+    }
+
+    /**
+     * Выполняет действие на всех шардах параллельно и сливает результаты. Результат каждого шарда
+     * должен быть отсортирован по {@code comparator}.
+     *
+     * @param action     действие, возвращающее отсортированный список
+     * @param comparator ключ сортировки
+     * @return объединённый отсортированный список
+     */
+    public <T> List<T> gather(Supplier<List<T>> action, Comparator<? super T> comparator) {
+        if (shardSet == null) {
+            return action.get();
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(shardSet.size());
+        for (int i = 0; i < shardSet.size(); i++) {
+            int shard = i;
+            futures.add(executor.submit(() -> onShard(shard, action)));
+        }
+        List<List<T>> results = new ArrayList<>(futures.size());
+        for (Future<List<T>> future : futures) {
+            results.add(join(future));
+        }
+        return merge(results, comparator);
+    }
+
+    /**
+     * Копирует новых авторов на все шарды, см. {@link #replicateAuthors(List)}.
+     *
+     * @param authors сохранённые авторы
+     */
+    public void replicateAuthors(Collection<Author> authors) {
+        replicateAuthors(authors.stream()
+                .map(author -> new Object[]{author.getId(), author.getName(), author.getBirth_year(), author.getNormalizedName()})
+                .toList());
+    }
+
+    /**
+     * Копирует пакет авторов на все шарды. Внутри транзакции копирование откладывается до её фиксации:
+     * шарды пишутся своими соединениями, и откат не убрал бы с них авторов. Копирование идемпотентно;
+     * если оно не удалось, авторы будут скопированы при следующем запуске ({@link #initShards()}).
+     *
+     * @param authors строки {@code id, name, birth_year, normalized_name}
+     */
+    public void replicateAuthors(List<Object[]> authors) {
+        if (shardSet == null || authors.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            copyAuthors(authors);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    copyAuthors(authors);
+                } catch (RuntimeException e) {
+                    log.error("Не удалось скопировать авторов на шарды: {}", authors.size(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Переносит книги так, чтобы они соответствовали распределению по {@code targetShards} шардам,
+     * и начинает распределять новые книги между ними. Книги со шардов за пределами нового количества
+     * переносятся полностью. Выполняется без входящей нагрузки на запись.
+     *
+     * @param targetShards новое количество активных шардов
+     * @return количество перенесённых книг
+     */
+    public synchronized int rebalance(int targetShards) {
+        if (shardSet == null || targetShards < 1 || targetShards > shardSet.size()) {
+            throw new IllegalArgumentException("Количество шардов должно быть от 1 до " + (shardSet == null ? 1 : shardSet.size()));
+        }
+        int moved = 0;
+        for (int from = 0; from < shardSet.size(); from++) {
+            JdbcTemplate jdbc = shardJdbc.get(from);
+            for (Long authorId : jdbc.queryForList("select distinct author_id from book", Long.class)) {
+                int to = jumpHash(authorId, targetShards);
+                if (to != from) {
+                    moved += move(jdbc.queryForList("select id from book where author_id = ?", Long.class, authorId), from, to);
+                }
+            }
+        }
+        new JdbcTemplate(shardSet.getGlobal()).update("merge into catalog_counter (name, total) key (name) values (?, ?)",
+                CatalogCounter.ACTIVE_SHARDS, targetShards);
+        activeShards = targetShards;
+        log.info("Перебалансировка на {} шардов завершена, перенесено книг: {}", targetShards, moved);
+        return moved;
+    }
+
+    /**
+     * Возвращает количество книг на шарде.
+     *
+     * @param shard номер шарда
+     * @return количество книг
+     */
+    public long countBooks(int shard) {
+        Long count = shardJdbc.get(shard).queryForObject("select count(*) from book", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Ищет шард, на котором хранится книга: сначала ожидаемый по справочнику перенесённых книг или по диапазону
+     * {@code id}, затем остальные.
+     *
+     * @param bookId id книги
+     * @return номер шарда или {@code null}, если книги нет
+     */
+    public Integer locate(Long bookId) {
+        if (shardSet == null) {
+            return 0;
+        }
+        int expected = movedBooks.getOrDefault(bookId, homeShard(bookId));
+        if (exists(expected, bookId)) {
+            return expected;
+        }
+        for (int i = 0; i < shardJdbc.size(); i++) {
+            if (i != expected && exists(i, bookId)) {
+                movedBooks.put(bookId, i);
+                return i;
+            }
+        }
+        movedBooks.remove(bookId);
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Возвращает шард, выдавший {@code id} книги, или первый шард для {@code id} вне диапазонов шардов.
+     */
+    private int homeShard(Long bookId) {
+        long shard = bookId / SHARD_ID_RANGE - 1;
+        return shard >= 0 && shard < shardJdbc.size() ? (int) shard : 0;
+    }
+
+    private boolean exists(int shard, Long bookId) {
+        Integer found = shardJdbc.get(shard).queryForObject("select count(*) from book where id = ?", Integer.class, bookId);
+        return found != null && found > 0;
+    }
+
+    private void copyAuthors(List<Object[]> authors) {
+        for (JdbcTemplate jdbc : shardJdbc) {
+            jdbc.batchUpdate(MERGE_AUTHOR, authors);
+        }
+    }
+
+    /**
+     * Jump consistent hash (Lamping, Veach): номер корзины от 0 до {@code buckets - 1}, при добавлении корзины
+     * в неё переезжает примерно {@code 1/buckets} ключей, остальные остаются на месте.
+     */
+    static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    /**
+     * Копирует книги на целевой шард с сохранением {@code id}, удаляет их с исходного и отмечает в справочнике
+     * перенесённых книг. Повторный перенос после сбоя безопасен: запись на целевом шарде перезаписывается. Перенос идёт мимо Hibernate,
+     * поэтому кэшированные результаты запросов сбрасываются.
+     */
+    private int move(List<Long> ids, int from, int to) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        JdbcTemplate source = shardJdbc.get(from);
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.addAll(source.query("select " + BOOK_COLUMNS + " from book where id = ?",
+                    (rs, n) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getInt(4), rs.getString(5)}, id));
+        }
+        shardJdbc.get(to).batchUpdate("merge into book (" + BOOK_COLUMNS + ") key (id) values (?, ?, ?, ?, ?)", rows);
+        source.batchUpdate("delete from book where id = ?", rows.stream().map(row -> new Object[]{row[0]}).toList());
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            if (homeShard(id) == to) {
+                movedBooks.remove(id);
+            } else {
+                movedBooks.put(id, to);
+            }
+        }
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        return rows.size();
+    }
+
+    private static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> comparator) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> comparator.compare(a.value, b.value));
+        int total = 0;
+        for (List<T> list : sorted) {
+            total += list.size();
+            Iterator<T> iterator = list.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+        List<T> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.value);
+            if (head.rest.hasNext()) {
+                heads.add(new Head<>(head.rest.next(), head.rest));
+            }
+        }
+        return merged;
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Head<T>(T value, Iterator<T> rest) {
+    }
+}
@@ -0,0 +1,560 @@
+package me.dineka.books_service.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import me.dineka.books_service.config.SecondLevelCacheConfig;
+import me.dineka.books_service.exception.DomainException;
+import me.dineka.books_service.exception.InvalidBookPublishingYearException;
+import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.repository.BookRepository;
+import me.dineka.books_service.util.Validation;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Импорт каталога из CSV-файла ({@code books.import.file}, см. {@link me.dineka.books_service.config.CatalogImportRunner}).
+ *
+ * <p>Первая строка файла - заголовок, далее по книге в строке: {@code title,genre,year,author,author_birth_year}.
+ * Поля в кавычках могут содержать запятые и удвоенные кавычки, но не переводы строк. Файл отображается в память
+ * частями по {@code books.import.chunk-size}, границы частей сдвигаются к концу строки, части разбираются
+ * параллельно в {@code books.import.threads} потоках.</p>
+ *
+ * <p>Строки проверяются правилами {@link Validation} и, как в API, отклоняются, если год издания раньше года рождения
+ * автора. Авторы сопоставляются по нормализованному имени и году рождения
+ * через словарь в памяти, отсутствующие создаются. Книги и записи журнала изменений вставляются пакетами JDBC
+ * по {@code books.import.batch-size} строк в транзакции шарда автора. Повторы книги внутри файла отсекаются
+ * по набору ключей (название без учёта регистра и год) на автора в памяти; для авторов, существовавших до импорта,
+ * книга дополнительно проверяется на дубликат в базе. Отклонённые строки с причиной пишутся в файл
+ * {@code <file>.rejected.csv}.</p>
+ */
+@Service
+public class CatalogImporter {
+    private static final int FIELD_COUNT = 5;
+    private static final String INSERT_BOOK = "insert into book (title, author_id, \"year\", genre) values (?, ?, ?, ?)";
+    private static final String REJECTED_SUFFIX = ".rejected.csv";
+
+    private final AuthorRepository authorRepository;
+    private final BookRepository bookRepository;
+    private final AuthorService authorService;
+    private final BookChangeLog bookChangeLog;
+    private final BookShardRouter bookShardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int threads;
+    private final long chunkSize;
+    private final int batchSize;
+
+    Logger log = LoggerFactory.getLogger(CatalogImporter.class);
+
+    public CatalogImporter(AuthorRepository authorRepository,
+                           BookRepository bookRepository,
+                           AuthorService authorService,
+                           BookChangeLog bookChangeLog,
+                           BookShardRouter bookShardRouter,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           EntityManagerFactory entityManagerFactory,
+                           @Value("${books.import.threads:0}") int threads,
+                           @Value("${books.import.chunk-size:8MB}") DataSize chunkSize,
+                           @Value("${books.import.batch-size:1000}") int batchSize) {
+        this.authorRepository = authorRepository;
+        this.bookRepository = bookRepository;
+        this.authorService = authorService;
+        this.bookChangeLog = bookChangeLog;
+        this.bookShardRouter = bookShardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.min(chunkSize.toBytes(), Integer.MAX_VALUE);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Импортирует книги и авторов из CSV-файла.
+     *
+     * @param file путь к CSV-файлу
+     * @return отчёт {@link Report} о количестве строк, скорости и файле отклонённых строк
+     * @throws IOException если файл не удаётся прочитать или файл отклонённых строк - записать
+     */
+    public Report importFile(Path file) throws IOException {
+        long started = System.nanoTime();
+        Path rejectedFile = file.resolveSibling(file.getFileName() + REJECTED_SUFFIX);
+        Run run;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedWriter rejected = Files.newBufferedWriter(rejectedFile, StandardCharsets.UTF_8)) {
+            run = new Run(loadAuthors(), rejected);
+            long size = channel.size();
+            long headerEnd = nextLineStart(channel, 0, size);
+            rejected.write(readHeader(channel, headerEnd) + ",error");
+            rejected.newLine();
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "catalog-import-" + run.threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> chunks = new ArrayList<>();
+                for (long start = headerEnd; start < size; ) {
+                    long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize - 1, size);
+                    long from = start;
+                    chunks.add(executor.submit(() -> importChunk(run, channel, from, end)));
+                    start = end;
+                }
+                for (Future<?> chunk : chunks) {
+                    await(chunk);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // книги вставлены в обход Hibernate: закэшированные ответы проверки дубликатов книг могли устареть
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(SecondLevelCacheConfig.BOOK_DUPLICATE_CHECK_REGION);
+        if (run.rejectedRows.get() == 0) {
+            Files.delete(rejectedFile);
+            rejectedFile = null;
+        }
+        Report report = new Report(run.rows.get(), run.importedRows.get(), run.rejectedRows.get(),
+                run.createdAuthors.size(), Duration.ofNanos(System.nanoTime() - started), rejectedFile);
+        log.atInfo()
+                .addKeyValue("rows", report.rows())
+                .addKeyValue("imported", report.imported())
+                .addKeyValue("rejected", report.rejected())
+                .addKeyValue("authorsCreated", report.authorsCreated())
+                .addKeyValue("rowsPerSecond", report.rowsPerSecond())
+                .log("Импорт каталога из {} завершён", file);
+        return report;
+    }
+
+    private Map<String, Long> loadAuthors() {
+        Map<String, Long> authors = new ConcurrentHashMap<>();
+        for (Object[] author : authorRepository.findAllKeys()) {
+            authors.put(authorKey((String) author[1], (Integer) author[2]), (Long) author[0]);
+        }
+        return authors;
+    }
+
+    /**
+     * Разбирает часть файла и сохраняет её книги пакетами. Часть начинается с начала строки и заканчивается концом строки.
+     */
+    private void importChunk(Run run, FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limit = buffer.limit();
+        byte[] line = new byte[256];
+        List<Row> batch = new ArrayList<>(batchSize);
+        int position = 0;
+        while (position < limit) {
+            int length = 0;
+            byte b;
+            while (position < limit && (b = buffer.get(position++)) != '\n') {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            if (length == 0) {
+                continue;
+            }
+            run.rows.incrementAndGet();
+            Row row = parseRow(run, new String(line, 0, length, StandardCharsets.UTF_8));
+            if (row != null) {
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    write(run, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(run, batch);
+        }
+    }
+
+    private Row parseRow(Run run, String line) {
+        List<String> fields = split(line);
+        if (fields == null || fields.size() != FIELD_COUNT) {
+            reject(run, line, "Ожидается " + FIELD_COUNT + " полей: title,genre,year,author,author_birth_year");
+            return null;
+        }
+        try {
+            String title = fields.get(0);
+            String genre = fields.get(1);
+            Integer year = parseYear(fields.get(2));
+            String authorName = fields.get(3);
+            Integer birthYear = fields.get(4).isBlank() ? null : parseYear(fields.get(4));
+            Validation.validateBookTitle(title);
+            Validation.validateBookGenre(genre);
+            Validation.validatePublishingYear(year);
+            Validation.validateAuthorName(authorName);
+            Validation.validateBirthYear(birthYear);
+            if (birthYear != null && year < birthYear) {
+                throw new InvalidBookPublishingYearException("Год издания книги не может быть раньше года рождения автора");
+            }
+            return new Row(line, title, genre, year, authorName, birthYear, authorKey(authorName, birthYear));
+        } catch (NumberFormatException e) {
+            reject(run, line, "Некорректный год: " + e.getMessage());
+        } catch (DomainException e) {
+            reject(run, line, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Сохраняет пакет разобранных строк: создаёт недостающих авторов, затем вставляет книги по шардам авторов.
+     */
+    private void write(Run run, List<Row> rows) {
+        resolveAuthors(run, rows);
+        Map<Integer, List<Row>> byShard = new TreeMap<>();
+        for (Row row : rows) {
+            byShard.computeIfAbsent(bookShardRouter.shardOf(row.authorId), shard -> new ArrayList<>()).add(row);
+        }
+        byShard.forEach((shard, shardRows) -> bookShardRouter.onShard(shard, () -> {
+            writeShard(run, shardRows);
+            return null;
+        }));
+    }
+
+    private void writeShard(Run run, List<Row> rows) {
+        List<Row> accepted = new ArrayList<>(rows.size());
+        List<Row> duplicates = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Book> books = new ArrayList<>(rows.size());
+                for (Row row : rows) {
+                    if (!run.claim(row) || !run.createdAuthors.contains(row.authorId)
+                            && bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorId(row.title, row.year, row.authorId)) {
+                        duplicates.add(row);
+                        continue;
+                    }
+                    accepted.add(row);
+                    books.add(row.toBook());
+                }
+                if (!books.isEmpty()) {
+                    insertBooks(books);
+                    bookChangeLog.recordUpsertsBatch(books);
+                }
+            });
+            run.importedRows.addAndGet(accepted.size());
+            for (Row row : duplicates) {
+                reject(run, row.line, "Книга с таким названием, автором и годом издания уже существует");
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить пакет импорта", e);
+            // книги не сохранены: такие же строки дальше в файле снова могут быть импортированы
+            accepted.forEach(run::release);
+            for (Row row : rows) {
+                reject(run, row.line, "Не удалось сохранить книгу");
+            }
+        }
+    }
+
+    private void insertBooks(List<Book> books) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_BOOK, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Book book = books.get(i);
+                        statement.setString(1, book.getTitle());
+                        statement.setLong(2, book.getAuthor().getId());
+                        statement.setInt(3, book.getYear());
+                        statement.setString(4, book.getGenre());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> ids = keys.getKeyList();
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setId(((Number) ids.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    /**
+     * Проставляет строкам {@code id} авторов. Недостающие авторы создаются под блокировкой: параллельные части
+     * файла с одним новым автором не создают его дважды.
+     */
+    private void resolveAuthors(Run run, List<Row> rows) {
+        Map<String, Row> missing = new LinkedHashMap<>();
+        for (Row row : rows) {
+            row.authorId = run.authors.get(row.authorKey);
+            if (row.authorId == null) {
+                missing.putIfAbsent(row.authorKey, row);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        synchronized (run) {
+            missing.keySet().removeIf(run.authors::containsKey);
+            if (!missing.isEmpty()) {
+                List<Author> authors = new ArrayList<>(missing.size());
+                for (Row row : missing.values()) {
+                    Author author = new Author();
+                    author.setName(row.authorName);
+                    author.setBirth_year(row.birthYear);
+                    authors.add(author);
+                }
+                for (Author author : authorService.importAuthors(authors)) {
+                    run.createdAuthors.add(author.getId());
+                    run.authors.put(authorKey(author.getName(), author.getBirth_year()), author.getId());
+                }
+            }
+        }
+        for (Row row : rows) {
+            if (row.authorId == null) {
+                row.authorId = run.authors.get(row.authorKey);
+            }
+        }
+    }
+
+    private void reject(Run run, String line, String reason) {
+        run.rejectedRows.incrementAndGet();
+        synchronized (run.rejected) {
+            try {
+                run.rejected.write(line);
+                run.rejected.write(",\"");
+                run.rejected.write(reason.replace("\"", "\"\""));
+                run.rejected.write('"');
+                run.rejected.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Делит строку CSV на поля.
+     *
+     * @return поля строки или {@code null}, если кавычка не закрыта
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            field.setLength(0);
+            if (i < length && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return null;
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                fields.add(field.toString());
+                if (i < length && line.charAt(i) != ',') {
+                    return null;
+                }
+            } else {
+                int comma = line.indexOf(',', i);
+                int fieldEnd = comma < 0 ? length : comma;
+                fields.add(line.substring(i, fieldEnd));
+                i = fieldEnd;
+            }
+            if (i >= length) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    private static Integer parseYear(String value) {
+        return Integer.valueOf(value.trim());
+    }
+
+    private static String authorKey(String name, Integer birthYear) {
+        return Author.normalizeName(name) + '|' + birthYear;
+    }
+
+    /**
+     * Возвращает позицию начала строки, следующей за переводом строки, найденным начиная с {@code position}.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static String readHeader(FileChannel channel, long headerEnd) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) headerEnd);
+        channel.read(buffer, 0);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).stripTrailing();
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Импорт прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Отчёт об импорте.
+     *
+     * @param rows           количество строк с данными
+     * @param imported       количество добавленных книг
+     * @param rejected       количество отклонённых строк
+     * @param authorsCreated количество созданных авторов
+     * @param elapsed        длительность импорта
+     * @param rejectedFile   файл отклонённых строк или {@code null}, если отклонённых нет
+     */
+    public record Report(long rows, long imported, long rejected, int authorsCreated, Duration elapsed, Path rejectedFile) {
+        public long rowsPerSecond() {
+            long nanos = Math.max(elapsed.toNanos(), 1);
+            return rows * 1_000_000_000L / nanos;
+        }
+    }
+
+    /**
+     * Состояние одного импорта, общее для потоков разбора.
+     */
+    private static final class Run {
+        private final Map<String, Long> authors;
+        private final Set<Long> createdAuthors = ConcurrentHashMap.newKeySet();
+        private final Map<Long, Set<String>> books = new ConcurrentHashMap<>();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong importedRows = new AtomicLong();
+        private final AtomicLong rejectedRows = new AtomicLong();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+        private final BufferedWriter rejected;
+
+        private Run(Map<String, Long> authors, BufferedWriter rejected) {
+            this.authors = authors;
+            this.rejected = rejected;
+        }
+
+        /**
+         * Запоминает книгу строки за её автором.
+         *
+         * @return {@code false}, если такая книга уже встречалась в файле
+         */
+        private boolean claim(Row row) {
+            return books.computeIfAbsent(row.authorId, id -> ConcurrentHashMap.newKeySet()).add(row.bookKey());
+        }
+
+        private void release(Row row) {
+            books.get(row.authorId).remove(row.bookKey());
+        }
+    }
+
+    private static final class Row {
+        private final String line;
+        private final String title;
+        private final String genre;
+        private final int year;
+        private final String authorName;
+        private final Integer birthYear;
+        private final String authorKey;
+        private Long authorId;
+
+        private Row(String line, String title, String genre, int year, String authorName, Integer birthYear, String authorKey) {
+            this.line = line;
+            this.title = title;
+            this.genre = genre;
+            this.year = year;
+            this.authorName = authorName;
+            this.birthYear = birthYear;
+            this.authorKey = authorKey;
+        }
+
+        private String bookKey() {
+            return title.toLowerCase(Locale.ROOT) + '|' + year;
+        }
+
+        private Book toBook() {
+            Author author = new Author();
+            author.setId(authorId);
+            Book book = new Book();
+            book.setTitle(title);
+            book.setGenre(genre);
+            book.setYear(year);
+            book.setAuthor(author);
+            return book;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package me.dineka.books_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Прогрев каталога после старта: {@link AuthorService#initCatalog()} (имена и счётчик авторов, индексы подсказок
+ * и поиска) и построение колоночной модели {@link BookColumnStore}.
+ *
+ * <p>При {@code books.catalog.async-warmup=true} прогрев идёт в отдельном потоке и не задерживает старт.
+ * До его окончания приложение остаётся в состоянии {@link ReadinessState#REFUSING_TRAFFIC}, а запросы к API каталога
+ * отклоняет {@link me.dineka.books_service.filter.CatalogReadinessFilter}. Ошибка прогрева логируется и не держит
+ * приложение закрытым: индексы и модель перестраиваются по расписанию.</p>
+ */
+@Component
+public class CatalogWarmup {
+    private final AuthorService authorService;
+    private final BookColumnStore bookColumnStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean async;
+    private volatile boolean ready;
+
+    Logger log = LoggerFactory.getLogger(CatalogWarmup.class);
+
+    public CatalogWarmup(AuthorService authorService,
+                         BookColumnStore bookColumnStore,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${books.catalog.async-warmup:false}") boolean async) {
+        this.authorService = authorService;
+        this.bookColumnStore = bookColumnStore;
+        this.eventPublisher = eventPublisher;
+        this.async = async;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!async) {
+            warmUp();
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "catalog-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Держит приложение неготовым, пока прогрев не закончен: готовность публикуется сразу после {@link ApplicationReadyEvent}.
+     *
+     * @param event смена состояния готовности
+     */
+    @EventListener
+    public synchronized void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !ready) {
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    /**
+     * Закончен ли прогрев каталога.
+     *
+     * @return {@code true}, если индексы авторов и колоночная модель построены
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void warmUp() {
+        long started = System.nanoTime();
+        try {
+            authorService.initCatalog();
+            bookColumnStore.rebuild();
+            log.info("Каталог прогрет за {} мс", (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Не удалось прогреть каталог, индексы и модель будут перестроены по расписанию", e);
+        } finally {
+            opened();
+        }
+    }
+
+    private synchronized void opened() {
+        ready = true;
+        if (async) {
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.model.BookChange;
+import me.dineka.books_service.repository.BookChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Перенос журналов изменений шардов в глобальный журнал (при {@code books.sharding.enabled=true}).
+ *
+ * <p>Изменение книги и запись о нём фиксируются в одной транзакции шарда, затем запись переносится
+ * в глобальный журнал и удаляется с шарда. Доставка не реже одного раза: при сбое между переносом
+ * и удалением запись попадёт в глобальный журнал повторно, что безопасно для применения изменений по {@code bookId}.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "books.sharding.enabled", havingValue = "true")
+public class ShardOutboxRelay {
+    private final BookShardRouter bookShardRouter;
+    private final BookChangeRepository bookChangeRepository;
+    private final BookChangeLog bookChangeLog;
+    private final TransactionTemplate transactionTemplate;
+
+    Logger log = LoggerFactory.getLogger(ShardOutboxRelay.class);
+
+    public ShardOutboxRelay(BookShardRouter bookShardRouter,
+                            BookChangeRepository bookChangeRepository,
+                            BookChangeLog bookChangeLog,
+                            PlatformTransactionManager transactionManager) {
+        this.bookShardRouter = bookShardRouter;
+        this.bookChangeRepository = bookChangeRepository;
+        this.bookChangeLog = bookChangeLog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Переносит накопившиеся записи со всех шардов.
+     *
+     * @return количество перенесённых записей
+     */
+    @Scheduled(fixedDelayString = "${books.sharding.relay-interval:PT0.2S}")
+    public synchronized int relay() {
+        int relayed = 0;
+        for (int shard = 0; shard < bookShardRouter.getShardCount(); shard++) {
+            List<BookChange> changes;
+            do {
+                changes = bookShardRouter.onShard(shard, () -> transactionTemplate.execute(status ->
+                        bookChangeRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(BookChangeLog.MAX_LIMIT))));
+                if (changes.isEmpty()) {
+                    break;
+                }
+                bookChangeLog.relay(changes);
+                List<Long> ids = changes.stream().map(BookChange::getId).toList();
+                bookShardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+                    bookChangeRepository.deleteAllByIdInBatch(ids);
+                    return null;
+                }));
+                relayed += changes.size();
+            } while (changes.size() == BookChangeLog.MAX_LIMIT);
+        }
+        if (relayed > 0) {
+            log.debug("Из журналов шардов перенесено записей: {}", relayed);
+        }
+        return relayed;
+    }
+}
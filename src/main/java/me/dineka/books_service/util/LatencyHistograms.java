@@ -0,0 +1,128 @@
+package me.dineka.books_service.util;
+
+import me.dineka.books_service.DTO.LatencyStatsDTO;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гистограммы задержек эндпоинтов и этапов операций {@code BookService} ({@code GET /internal/latency}).
+ *
+ * <p>Запись идёт в {@link Recorder} HdrHistogram: без блокировок и выделения памяти, поэтому таймеры можно держать
+ * на горячем пути. Раз в {@code books.latency.interval} у каждого таймера забирается гистограмма интервала и кладётся
+ * в кольцо последних интервалов. Перцентили окна из {@code books.latency.windows} - сумма последних интервалов окна,
+ * текущий незавершённый интервал в окна не входит.</p>
+ */
+@Component
+public class LatencyHistograms {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final Duration interval;
+    private final List<Duration> windows;
+    private final int history;
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public LatencyHistograms(@Value("${books.latency.interval:PT10S}") Duration interval,
+                             @Value("${books.latency.windows:PT10S,PT1M,PT5M}") List<Duration> windows) {
+        this.interval = interval;
+        this.windows = windows;
+        this.history = windows.stream().mapToInt(this::intervalsOf).max().orElse(1);
+    }
+
+    /**
+     * Возвращает таймер этапа, создавая его при первом обращении. Таймер стоит получить один раз и хранить в поле.
+     *
+     * @param name  операция или эндпоинт, например {@code BookService.addBook} или {@code GET /books}
+     * @param phase этап операции, например {@code validation}
+     * @return таймер {@link Timer}
+     */
+    public Timer timer(String name, String phase) {
+        return timers.computeIfAbsent(name + ' ' + phase, key -> new Timer(name, phase));
+    }
+
+    /**
+     * Закрывает текущий интервал всех таймеров.
+     */
+    @Scheduled(fixedRateString = "${books.latency.interval:PT10S}", initialDelayString = "${books.latency.interval:PT10S}")
+    public void rotate() {
+        timers.values().forEach(Timer::rotate);
+    }
+
+    /**
+     * Перцентили всех таймеров по каждому окну, в микросекундах. Таймеры без записей в окне пропускаются.
+     *
+     * @return список объектов {@link LatencyStatsDTO}, упорядоченный по операции, этапу и окну
+     */
+    public List<LatencyStatsDTO> getStats() {
+        List<LatencyStatsDTO> stats = new ArrayList<>();
+        List<Timer> sorted = new ArrayList<>(timers.values());
+        sorted.sort(Comparator.comparing((Timer timer) -> timer.name).thenComparing(timer -> timer.phase));
+        for (Timer timer : sorted) {
+            for (Duration window : windows) {
+                Histogram histogram = timer.window(intervalsOf(window));
+                if (histogram.getTotalCount() > 0) {
+                    stats.add(LatencyStatsDTO.fromHistogram(timer.name, timer.phase, window, histogram));
+                }
+            }
+        }
+        return stats;
+    }
+
+    private int intervalsOf(Duration window) {
+        return (int) Math.max(1, window.toNanos() / interval.toNanos());
+    }
+
+    /**
+     * Таймер одного этапа. Запись - из любого потока, закрытие интервала и чтение окон синхронизированы между собой.
+     */
+    public final class Timer {
+        private final String name;
+        private final String phase;
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        private final Histogram[] intervals = new Histogram[history];
+        private int next;
+
+        private Timer(String name, String phase) {
+            this.name = name;
+            this.phase = phase;
+        }
+
+        /**
+         * Записывает время от {@code startNanos} до текущего момента.
+         *
+         * @param startNanos начало этапа по {@link System#nanoTime()}
+         * @return текущее {@link System#nanoTime()} - начало следующего этапа
+         */
+        public long record(long startNanos) {
+            long now = System.nanoTime();
+            recorder.recordValue(Math.min(Math.max(now - startNanos, 0), HIGHEST_TRACKABLE_NANOS));
+            return now;
+        }
+
+        private synchronized void rotate() {
+            Histogram recycled = intervals[next];
+            intervals[next] = recycled == null ? recorder.getIntervalHistogram() : recorder.getIntervalHistogram(recycled);
+            next = (next + 1) % intervals.length;
+        }
+
+        private synchronized Histogram window(int count) {
+            Histogram sum = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+            for (int i = 1; i <= count; i++) {
+                Histogram histogram = intervals[Math.floorMod(next - i, intervals.length)];
+                if (histogram != null) {
+                    sum.add(histogram);
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package me.dineka.books_service.util;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Маркеры частых событий, которые логируются с выборкой ({@link SamplingTurboFilter}, {@code logback-spring.xml}).
+ */
+public final class LogMarkers {
+    /** Запрошенная запись не найдена (ответ 404). */
+    public static final Marker NOT_FOUND = MarkerFactory.getMarker("NOT_FOUND");
+    /** Запрос не прошёл проверку: некорректные данные, дубликат, неверный токен (ответы 400 и 410). */
+    public static final Marker INVALID_REQUEST = MarkerFactory.getMarker("INVALID_REQUEST");
+
+    private LogMarkers() {
+    }
+}
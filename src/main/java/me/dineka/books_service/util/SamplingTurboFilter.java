@@ -0,0 +1,55 @@
+package me.dineka.books_service.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пропускает в лог одно из {@code every} событий с маркером {@code marker}, остальные отбрасывает.
+ *
+ * <p>Turbo-фильтр вызывается до создания события logback, поэтому у отброшенного события
+ * не форматируются аргументы и не создаются объекты. Первое событие проходит всегда.
+ * Настраивается в {@code logback-spring.xml}, {@code every} не больше 1 отключает выборку.</p>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+    private final AtomicLong seen = new AtomicLong();
+    private String marker;
+    private int every = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || every <= 1 || !isStarted() || !marker.contains(this.marker)) {
+            return FilterReply.NEUTRAL;
+        }
+        return seen.getAndIncrement() % every == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (marker == null || marker.isBlank()) {
+            addError("Не задан маркер для выборки событий");
+            return;
+        }
+        super.start();
+    }
+
+    public String getMarker() {
+        return marker;
+    }
+
+    public void setMarker(String marker) {
+        this.marker = marker;
+    }
+
+    public int getEvery() {
+        return every;
+    }
+
+    public void setEvery(int every) {
+        this.every = every;
+    }
+}
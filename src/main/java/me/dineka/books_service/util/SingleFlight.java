@@ -0,0 +1,63 @@
+package me.dineka.books_service.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных загрузок по ключу (single flight).
+ *
+ * <p>Первый вызов для ключа выполняет загрузку, вызовы с тем же ключом, пришедшие до её окончания,
+ * ждут и получают тот же результат или то же исключение. После завершения ключ освобождается,
+ * следующий вызов загружает заново - результаты не кэшируются.</p>
+ *
+ * @param <K> тип ключа
+ * @param <V> тип результата
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Возвращает результат загрузки для ключа, присоединяясь к уже идущей загрузке, если она есть.
+     *
+     * @param key    ключ загрузки
+     * @param loader загрузка, выполняется в потоке первого вызывающего
+     * @return результат загрузки
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (Throwable e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Year;
+import java.util.regex.Pattern;
 
 public class Validation {
     public static final String BOOKTITLE_REGEX = "^[A-Za-zА-Яа-яЁё0-9 -.]+$";
@@ -12,6 +13,10 @@ public class Validation {
     public static final String AUTHORNAME_REGEX = "^[A-Za-zА-Яа-яЁё -.']+$";
     public static final int CURRENT_YEAR = Year.now().getValue();
 
+    private static final Pattern BOOKTITLE_PATTERN = Pattern.compile(BOOKTITLE_REGEX);
+    private static final Pattern BOOKGENRE_PATTERN = Pattern.compile(BOOKGENRE_REGEX);
+    private static final Pattern AUTHORNAME_PATTERN = Pattern.compile(AUTHORNAME_REGEX);
+
     private static final Logger log = LoggerFactory.getLogger(Validation.class);
 
     /**
@@ -29,7 +34,7 @@ public class Validation {
             return;
         }
         if (year <= 0 || year > CURRENT_YEAR - 18) {     //исходим из того, автору не может быть меньше 18 лет
-            log.error("Некорректный год рождения автора");
+            log.info(LogMarkers.INVALID_REQUEST, "Некорректный год рождения автора");
             throw new InvalidAuthorBirthYearException("Некорректный год рождения автора: автору не может быть меньше 18 лет");
         }
     }
@@ -44,7 +49,7 @@ public class Validation {
      */
     public static void validatePublishingYear(Integer year) {
         if (year == null || year < 0 || year > CURRENT_YEAR) {
-            log.error("Некорректный год издания книги");
+            log.info(LogMarkers.INVALID_REQUEST, "Некорректный год издания книги");
             throw new InvalidBookPublishingYearException("Некорректный год издания книги");
         }
     }
@@ -59,8 +64,8 @@ public class Validation {
      * @throws InvalidAuthorNameException если имя {@code null}, пустое или не соответствует шаблону {@code AUTHORNAME_REGEX}
      */
     public static void validateAuthorName(String string) {
-        if (string == null || string.isBlank() || !string.matches(AUTHORNAME_REGEX)) {
-            log.error("Некорректное имя автора");
+        if (string == null || string.isBlank() || !AUTHORNAME_PATTERN.matcher(string).matches()) {
+            log.info(LogMarkers.INVALID_REQUEST, "Некорректное имя автора");
             throw new InvalidAuthorNameException("Некорректное имя автора");
         }
     }
@@ -75,8 +80,8 @@ public class Validation {
      * @throws InvalidBookTitleException если название {@code null}, пустое или не соответствует шаблону {@code BOOKTITLE_REGEX}
      */
     public static void validateBookTitle(String string) {
-        if (string == null || string.isBlank() || !string.matches(BOOKTITLE_REGEX)) {
-            log.error("Некорректное название книги");
+        if (string == null || string.isBlank() || !BOOKTITLE_PATTERN.matcher(string).matches()) {
+            log.info(LogMarkers.INVALID_REQUEST, "Некорректное название книги");
             throw new InvalidBookTitleException("Некорректное название книги");
         }
     }
@@ -91,8 +96,8 @@ public class Validation {
      * @throws InvalidBookGenreException если жанр {@code null}, пустой или не соответствует шаблону {@code BOOKGENRE_REGEX}
      */
     public static void validateBookGenre(String string) {
-        if (string == null || string.isBlank() || !string.matches(BOOKGENRE_REGEX)) {
-            log.error("Некорректный жанр книги");
+        if (string == null || string.isBlank() || !BOOKGENRE_PATTERN.matcher(string).matches()) {
+            log.info(LogMarkers.INVALID_REQUEST, "Некорректный жанр книги");
             throw new InvalidBookGenreException("Некорректный жанр книги");
         }
     }
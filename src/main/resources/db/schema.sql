@@ -0,0 +1,10 @@
+-- Схема каталога для профиля prod: Hibernate только проверяет её (ddl-auto=validate).
+-- Повторный запуск на существующей базе ничего не меняет. Имя внешнего ключа совпадает с тем,
+-- которое выдавал ddl-auto=update, чтобы на базах, созданных им, ключ не дублировался.
+create table if not exists author (birth_year integer, id bigint generated by default as identity, name varchar(255), normalized_name varchar(255), primary key (id));
+create table if not exists book ("year" integer, author_id bigint, id bigint generated by default as identity, genre varchar(255), title varchar(255), primary key (id));
+create table if not exists book_change ("year" integer, author_id bigint, book_id bigint not null, changed_at timestamp(6) with time zone not null, id bigint not null, genre varchar(255), title varchar(255), type enum ('DELETE','UPSERT') not null, primary key (id));
+create table if not exists catalog_counter (total bigint not null, name varchar(32) not null, primary key (name));
+create index if not exists idx_author_normalized_name on author (normalized_name, id);
+create index if not exists idx_book_change_changed_at on book_change (changed_at);
+alter table book add constraint if not exists FKklnrv3weler2ftkweewlky958 foreign key (author_id) references author;
@@ -0,0 +1,79 @@
+package me.dineka.books_service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер пропускной способности на некорректных запросах (404 и 400): стандартная обработка ошибок Spring
+ * через {@code /error} против {@code ProblemDetailsHandler}.
+ *
+ * <p>Запуск: {@code mvn test -Dtest=ErrorResponseBenchmarkTest -Dbenchmark=true -Dbenchmark.requests=200000}</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ErrorResponseBenchmarkTest {
+    private static final int CLIENTS = 8;
+
+    @Test
+    @DisplayName("Некорректные запросы в секунду до и после обработчика problem+json")
+    void invalidRequestThroughput() throws Exception {
+        int requests = Integer.getInteger("benchmark.requests", 50_000);
+        double before = measure(false, requests);
+        double after = measure(true, requests);
+        System.out.printf("Некорректные запросы: %.0f/с через /error, %.0f/с через problem+json (x%.2f)%n",
+                before, after, after / before);
+    }
+
+    private double measure(boolean problemDetails, int requests) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BooksServiceApplication.class)
+                .run("--server.port=0", "--books.admission.enabled=false", "--books.errors.problem-details=" + problemDetails,
+                        "--logging.level.me.dineka=WARN")) {
+            String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpRequest notFound = HttpRequest.newBuilder(URI.create(base + "/books/" + Long.MAX_VALUE)).GET().build();
+            HttpRequest badRequest = HttpRequest.newBuilder(URI.create(base + "/authors/scroll?size=0")).GET().build();
+
+            run(client, executor, notFound, badRequest, requests / 10);
+            long started = System.nanoTime();
+            run(client, executor, notFound, badRequest, requests);
+            return requests / ((System.nanoTime() - started) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void run(HttpClient client, ExecutorService executor, HttpRequest notFound, HttpRequest badRequest, int requests)
+            throws Exception {
+        List<Future<?>> futures = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            int from = c;
+            futures.add(executor.submit(() -> {
+                for (int i = from; i < requests; i += CLIENTS) {
+                    HttpRequest request = i % 2 == 0 ? notFound : badRequest;
+                    HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    assertEquals(i % 2 == 0 ? 404 : 400, response.statusCode());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
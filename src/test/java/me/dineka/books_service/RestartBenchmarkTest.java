@@ -0,0 +1,99 @@
+package me.dineka.books_service;
+
+import me.dineka.books_service.service.AuthorNameIndex;
+import me.dineka.books_service.service.BookColumnStore;
+import me.dineka.books_service.service.BookService;
+import me.dineka.books_service.service.CatalogWarmup;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Замер времени рестарта с файловым хранилищем (профиль {@code prod}).
+ *
+ * <p>Запуск: {@code mvn test -Dtest=RestartBenchmarkTest -Dbenchmark=true -Dbenchmark.books=1000000}.
+ * Кроме готовности контекста и первого чтения замеряется фоновый прогрев каталога ({@link CatalogWarmup}):
+ * индексы авторов и колоночная модель книг.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RestartBenchmarkTest {
+    private static final int BATCH_SIZE = 10_000;
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    @DisplayName("Время рестарта до первого ответа на заполненной базе")
+    void restartTime() {
+        int books = Integer.getInteger("benchmark.books", 200_000);
+
+        try (ConfigurableApplicationContext context = start()) {
+            seed(context.getBean(JdbcTemplate.class), books);
+        }
+
+        long started = System.nanoTime();
+        try (ConfigurableApplicationContext context = start()) {
+            long ready = System.nanoTime();
+            long id = books / 2;
+            assertEquals(id, context.getBean(BookService.class).getBookById(id).getId());
+            long firstRead = System.nanoTime();
+            awaitWarmup(context.getBean(CatalogWarmup.class));
+            long warmedUp = System.nanoTime();
+            assertEquals(ReadinessState.ACCEPTING_TRAFFIC, context.getBean(ApplicationAvailability.class).getReadinessState());
+            assertEquals(books, context.getBean(BookColumnStore.class).size());
+            assertEquals(books / 10, context.getBean(AuthorNameIndex.class).size());
+            System.out.printf("Рестарт на %d книгах: контекст готов за %d мс, первое чтение через %d мс, каталог прогрет через %d мс%n",
+                    books, (ready - started) / 1_000_000, (firstRead - started) / 1_000_000, (warmedUp - started) / 1_000_000);
+        }
+    }
+
+    private static void awaitWarmup(CatalogWarmup warmup) {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+        while (!warmup.isReady()) {
+            assertTrue(System.nanoTime() < deadline, "Каталог не прогрет за 5 минут");
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BooksServiceApplication.class)
+                .profiles("prod")
+                .run("--books.storage.dir=" + storageDir, "--server.port=0");
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate, int books) {
+        int authors = Math.max(1, books / 10);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= authors; i++) {
+            batch.add(new Object[]{i, "Автор " + i, 1900 + i % 100});
+            if (batch.size() == BATCH_SIZE || i == authors) {
+                jdbcTemplate.batchUpdate("insert into author(id, name, birth_year) values (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        for (int i = 1; i <= books; i++) {
+            batch.add(new Object[]{i, "Книга " + i, 1 + i % authors, 2000 + i % 20, "Роман"});
+            if (batch.size() == BATCH_SIZE || i == books) {
+                jdbcTemplate.batchUpdate("insert into book(id, title, author_id, \"year\", genre) values (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("alter table author alter column id restart with " + (authors + 1));
+        jdbcTemplate.execute("alter table book alter column id restart with " + (books + 1));
+    }
+}
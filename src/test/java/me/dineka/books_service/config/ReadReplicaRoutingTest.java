@@ -0,0 +1,68 @@
+package me.dineka.books_service.config;
+
+import me.dineka.books_service.config.ReadWriteRoutingDataSource.Route;
+import me.dineka.books_service.filter.AdmissionControlFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "books.datasource.replica.enabled=true",
+        "books.datasource.replica.read-your-writes-window=PT1M"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("routingDataSource")
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Test
+    @DisplayName("Читающие запросы идут в реплику")
+    void reads_UseReplica() throws Exception {
+        long before = routingDataSource.getConnectionCount(Route.REPLICA);
+
+        //test
+        mockMvc.perform(get("/books/{id}", Long.MAX_VALUE).header(AdmissionControlFilter.CLIENT_ID_HEADER, "reader"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/authors").param("page", "0").param("size", "10")
+                        .header(AdmissionControlFilter.CLIENT_ID_HEADER, "reader"))
+                .andExpect(status().isOk());
+
+        //check
+        assertTrue(routingDataSource.getConnectionCount(Route.REPLICA) >= before + 2);
+    }
+
+    @Test
+    @DisplayName("После записи клиент читает из основной базы")
+    void readAfterWrite_UsesPrimary() throws Exception {
+        mockMvc.perform(post("/authors").contentType(MediaType.APPLICATION_JSON)
+                        .header(AdmissionControlFilter.CLIENT_ID_HEADER, "writer")
+                        .content("{\"name\":\"Автор Реплики\",\"birth_year\":1970}"))
+                .andExpect(status().isOk());
+        long replicaBefore = routingDataSource.getConnectionCount(Route.REPLICA);
+        long primaryBefore = routingDataSource.getConnectionCount(Route.PRIMARY);
+
+        //test
+        mockMvc.perform(get("/authors").param("page", "0").param("size", "10")
+                        .header(AdmissionControlFilter.CLIENT_ID_HEADER, "writer"))
+                .andExpect(status().isOk());
+
+        //check
+        assertEquals(replicaBefore, routingDataSource.getConnectionCount(Route.REPLICA));
+        assertTrue(routingDataSource.getConnectionCount(Route.PRIMARY) > primaryBefore);
+    }
+}
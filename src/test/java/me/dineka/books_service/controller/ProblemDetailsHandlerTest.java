@@ -0,0 +1,66 @@
+package me.dineka.books_service.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.dineka.books_service.exception.BookNotFoundException;
+import me.dineka.books_service.exception.InvalidBookTitleException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProblemDetailsHandlerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("404 в формате problem+json")
+    void notFound() throws Exception {
+        mockMvc.perform(get("/books/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type").value("about:blank"))
+                .andExpect(jsonPath("$.title").value("Not Found"))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.detail").value("Книга с id :" + Long.MAX_VALUE + " не найдена"))
+                .andExpect(jsonPath("$.instance").value("/books/" + Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("400 на некорректные данные в формате problem+json")
+    void badRequest() throws Exception {
+        mockMvc.perform(get("/authors/scroll").param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.instance").value("/authors/scroll"));
+    }
+
+    @Test
+    @DisplayName("Шаблон экранирует detail и instance, исключения без стека")
+    void template() throws Exception {
+        ProblemDetailsHandler.Template template = new ProblemDetailsHandler.Template(HttpStatus.BAD_REQUEST);
+
+        //test
+        JsonNode body = new ObjectMapper().readTree(template.render("Название \"A\\B\"\n\u0001", "/books"));
+
+        //check
+        assertEquals("Название \"A\\B\"\n\u0001", body.get("detail").asText());
+        assertEquals(400, body.get("status").asInt());
+        assertEquals("Bad Request", body.get("title").asText());
+        assertEquals(0, new BookNotFoundException("нет").getStackTrace().length);
+        assertEquals(0, new InvalidBookTitleException("нет").getStackTrace().length);
+    }
+}
@@ -0,0 +1,310 @@
+package me.dineka.books_service.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.repository.BookRepository;
+import me.dineka.books_service.sql.QueryCounter;
+import me.dineka.books_service.sql.QueryCountingConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Бюджеты SQL-выражений на запрос для каждого эндпоинта.
+ *
+ * <p>Тест падает, если изменение добавило запросы к базе (например, N+1 на {@code Book.author}),
+ * и печатает выполненный SQL.</p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryCountingConfig.class)
+class QueryBudgetTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private QueryCounter queryCounter;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private Author author;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            Author other = new Author();
+            other.setName("Автор " + letters());
+            other.setBirth_year(1950);
+            authorRepository.save(other);
+            bookRepository.save(book(other));
+        }
+        author = new Author();
+        author.setName("Автор " + letters());
+        author.setBirth_year(1950);
+        authorRepository.save(author);
+        book = bookRepository.save(book(author));
+        queryCounter.reset();
+    }
+
+    @Test
+    @DisplayName("POST /authors: проверка дубликата, вставка и счётчик авторов")
+    void addAuthor() throws Exception {
+        mockMvc.perform(post("/authors").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Автор " + letters() + "\",\"birth_year\":1960}"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(3);
+        queryCounter.assertStatements("insert", 1);
+    }
+
+    @Test
+    @DisplayName("POST /authors с повторным Idempotency-Key: ответ без обращения к базе")
+    void addAuthorIdempotent() throws Exception {
+        String body = "{\"name\":\"Автор " + letters() + "\",\"birth_year\":1960}";
+        String key = "key-" + letters();
+        String first = mockMvc.perform(post("/authors").contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", key).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        queryCounter.reset();
+
+        mockMvc.perform(post("/authors").contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", key).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotency-Replayed", "true"))
+                .andExpect(content().json(first));
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("GET /authors: одна страница без подсчёта количества")
+    void getAllAuthors() throws Exception {
+        mockMvc.perform(get("/authors").param("page", "0").param("size", "2"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(1);
+    }
+
+    @Test
+    @DisplayName("GET /authors/scroll: порция после токена одним select, общее количество - чтение счётчика")
+    void scrollAuthors() throws Exception {
+        String token = JsonPath.read(mockMvc.perform(get("/authors/scroll").param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.nextToken");
+        queryCounter.reset();
+
+        mockMvc.perform(get("/authors/scroll").param("after", token).param("size", "2"))
+                .andExpect(status().isOk());
+        queryCounter.assertStatements(1);
+        queryCounter.reset();
+
+        mockMvc.perform(get("/authors/scroll").param("size", "3").param("withTotal", "true"))
+                .andExpect(status().isOk());
+        queryCounter.assertStatements(2);
+    }
+
+    @Test
+    @DisplayName("GET /authors/suggest: из индекса в памяти, без запросов")
+    void suggestAuthors() throws Exception {
+        mockMvc.perform(get("/authors/suggest").param("prefix", "авт"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("GET /authors/search: из триграммного индекса в памяти, без запросов")
+    void searchAuthors() throws Exception {
+        mockMvc.perform(get("/authors/search").param("q", author.getName()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").exists());
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("GET /authors/{id}: один select")
+    void getAuthor() throws Exception {
+        mockMvc.perform(get("/authors/{id}", author.getId()))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(1);
+    }
+
+    @Test
+    @DisplayName("POST /books: поиск автора, проверка дубликата, вставка книги, номер журнала и запись журнала")
+    void addBook() throws Exception {
+        mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Книга " + letters() + "\",\"genre\":\"Роман\",\"year\":2000,\"authorId\":" + author.getId() + "}"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(5);
+        queryCounter.assertStatements("insert", 2);
+    }
+
+    @Test
+    @DisplayName("GET /books: список из колоночной модели, без обращений к базе")
+    void getAllBooks() throws Exception {
+        mockMvc.perform(get("/books").param("genre", "Роман"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("POST /books/aggregate: агрегирование колоночной модели без обращений к базе")
+    void aggregateBooks() throws Exception {
+        mockMvc.perform(post("/books/aggregate").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"groupBy\":[\"genre\"],\"yearFrom\":1990}"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("POST /books/aggregate с фильтром по году рождения автора: один select id авторов")
+    void aggregateBooksByAuthorBirthYear() throws Exception {
+        mockMvc.perform(post("/books/aggregate").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"groupBy\":[\"genre\"],\"authorBirthYearFrom\":1940,\"authorBirthYearTo\":1960}"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(1);
+    }
+
+    @Test
+    @DisplayName("GET /books/{id}: один select")
+    void getBook() throws Exception {
+        mockMvc.perform(get("/books/{id}", book.getId()))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(1);
+    }
+
+    @Test
+    @DisplayName("PUT /books/{id}: загрузка книги, проверка дубликата, обновление, номер журнала и запись журнала")
+    void updateBook() throws Exception {
+        mockMvc.perform(put("/books/{id}", book.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Книга " + letters() + "\",\"genre\":\"Роман\",\"year\":2001,\"authorId\":" + author.getId() + "}"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(5);
+        queryCounter.assertStatements("update", 1);
+    }
+
+    @Test
+    @DisplayName("PATCH /books/{id}: смена жанра без поиска автора и проверки дубликата, UPDATE только жанра")
+    void patchBookGenre() throws Exception {
+        mockMvc.perform(patch("/books/{id}", book.getId()).contentType("application/merge-patch+json")
+                        .content("{\"genre\":\"Повесть\"}"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(4);
+        queryCounter.assertStatements("update", 1);
+        String update = queryCounter.getStatements().stream().filter(sql -> sql.startsWith("update")).findFirst().orElseThrow();
+        assertFalse(update.contains("title"), update);
+    }
+
+    @Test
+    @DisplayName("PATCH /books/{id}: без изменений - только загрузка книги")
+    void patchBookNoop() throws Exception {
+        mockMvc.perform(patch("/books/{id}", book.getId()).contentType("application/merge-patch+json")
+                        .content("{\"genre\":\"" + book.getGenre() + "\",\"authorId\":" + author.getId() + "}"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(1);
+    }
+
+    @Test
+    @DisplayName("DELETE /books/{id}: одно удаление, номер журнала и запись журнала")
+    void deleteBook() throws Exception {
+        mockMvc.perform(delete("/books/{id}", book.getId()))
+                .andExpect(status().isNoContent());
+
+        queryCounter.assertStatements(3);
+        queryCounter.assertStatements("delete", 1);
+    }
+
+    @Test
+    @DisplayName("DELETE /books?authorId: выбор id, одно удаление, номера журнала и записи журнала")
+    void deleteBooksByAuthor() throws Exception {
+        bookRepository.save(book(author));
+        queryCounter.reset();
+
+        mockMvc.perform(delete("/books").param("authorId", author.getId().toString()))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(5);
+        queryCounter.assertStatements("delete", 1);
+        queryCounter.assertStatements("insert", 2);
+    }
+
+    @Test
+    @DisplayName("DELETE /books?ids: выбор существующих id, одно удаление, номера журнала и записи журнала")
+    void deleteBooksByIds() throws Exception {
+        Book other = bookRepository.save(book(author));
+        queryCounter.reset();
+
+        mockMvc.perform(delete("/books").param("ids", book.getId().toString(), other.getId().toString(), "999999"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(5);
+        queryCounter.assertStatements("delete", 1);
+        queryCounter.assertStatements("insert", 2);
+    }
+
+    @Test
+    @DisplayName("GET /books/changes: минимальный id журнала и одна страница изменений")
+    void getChanges() throws Exception {
+        mockMvc.perform(get("/books/changes").param("since", "0").param("limit", "10"))
+                .andExpect(status().isOk());
+
+        queryCounter.assertStatements(2);
+    }
+
+    private static Book book(Author author) {
+        Book book = new Book();
+        book.setTitle("Книга " + letters());
+        book.setGenre("Роман");
+        book.setYear(2000);
+        book.setAuthor(author);
+        return book;
+    }
+
+    /**
+     * Уникальный суффикс из букв: имена авторов не допускают цифр.
+     */
+    private static String letters() {
+        int n = SEQUENCE.incrementAndGet();
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('а' + n % 32));
+            n /= 32;
+        } while (n > 0);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package me.dineka.books_service.controller;
+
+import me.dineka.books_service.model.Author;
+import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.sql.QueryCounter;
+import me.dineka.books_service.sql.QueryCountingConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Повторные чтения авторов и проверки дубликатов обслуживаются кэшем второго уровня без обращения к базе.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryCountingConfig.class)
+class SecondLevelCacheTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private QueryCounter queryCounter;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    private Author author;
+
+    @BeforeEach
+    void setUp() {
+        author = new Author();
+        author.setName("Автор Кэша");
+        author.setBirth_year(1950);
+        authorRepository.save(author);
+    }
+
+    @Test
+    @DisplayName("GET /authors/{id}: повторное чтение из кэша")
+    void getAuthor_Cached() throws Exception {
+        mockMvc.perform(get("/authors/{id}", author.getId())).andExpect(status().isOk());
+        queryCounter.reset();
+
+        mockMvc.perform(get("/authors/{id}", author.getId())).andExpect(status().isOk());
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("GET /authors: повторная страница из кэша запросов")
+    void getAllAuthors_Cached() throws Exception {
+        mockMvc.perform(get("/authors").param("page", "0").param("size", "5")).andExpect(status().isOk());
+        queryCounter.reset();
+
+        mockMvc.perform(get("/authors").param("page", "0").param("size", "5")).andExpect(status().isOk());
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("POST /books: повторная проверка дубликата без записи между ними берётся из кэша")
+    void duplicateCheck_Cached() throws Exception {
+        String book = "{\"title\":\"Книга Кэша\",\"genre\":\"Роман\",\"year\":2000,\"authorId\":" + author.getId() + "}";
+        mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON).content(book)).andExpect(status().isOk());
+        mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON).content(book)).andExpect(status().isBadRequest());
+        queryCounter.reset();
+
+        mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON).content(book)).andExpect(status().isBadRequest());
+
+        queryCounter.assertStatements(0);
+    }
+
+    @Test
+    @DisplayName("GET /internal/cache: статистика по регионам")
+    void getStats() throws Exception {
+        mockMvc.perform(get("/authors/{id}", author.getId())).andExpect(status().isOk());
+
+        mockMvc.perform(get("/internal/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].region", hasItem("author")));
+    }
+}
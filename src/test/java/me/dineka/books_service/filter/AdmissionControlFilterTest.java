@@ -0,0 +1,125 @@
+package me.dineka.books_service.filter;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTest {
+
+    @Test
+    @DisplayName("Классификация эндпоинтов")
+    void endpointClass() {
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/books", null));
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/authors", "page=0&size=10"));
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/books/changes", "since=1"));
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/authors/scroll", "size=20"));
+        assertEquals(EndpointClass.LIST, EndpointClass.of("GET", "/authors/search", "q=test"));
+        assertEquals(EndpointClass.READ, EndpointClass.of("GET", "/books/1", null));
+        assertEquals(EndpointClass.READ, EndpointClass.of("GET", "/authors/1", null));
+        assertEquals(EndpointClass.STREAM, EndpointClass.of("GET", "/books/stream", null));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("POST", "/books", null));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("DELETE", "/books/1", null));
+        assertEquals(EndpointClass.BULK, EndpointClass.of("DELETE", "/books", "authorId=1"));
+        assertEquals(EndpointClass.BULK, EndpointClass.of("POST", "/books/aggregate", null));
+        assertNull(EndpointClass.of("GET", "/swagger-ui/index.html", null));
+        assertNull(EndpointClass.of("GET", "/bookshelf", null));
+    }
+
+    @Test
+    @DisplayName("Token bucket выдаёт burst запросов подряд, затем по одному за интервал")
+    void rateLimiter() {
+        long now = 0;
+        RateLimiter limiter = new RateLimiter(10, 3, now);
+
+        assertEquals(0, limiter.tryAcquire(now));
+        assertEquals(0, limiter.tryAcquire(now));
+        assertEquals(0, limiter.tryAcquire(now));
+        long wait = limiter.tryAcquire(now);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+        assertEquals(0, limiter.tryAcquire(now + wait));
+        assertFalse(limiter.isIdle(now + wait));
+        assertTrue(limiter.isIdle(now + TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    @DisplayName("Превышение частоты отвечает 429 с Retry-After, клиенты ограничиваются независимо")
+    void rateLimitPerClient() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1, 2, 10, 10, 10, 10);
+
+        assertEquals(200, perform(filter, "GET", "/books/1", "a").getStatus());
+        assertEquals(200, perform(filter, "GET", "/books/1", "a").getStatus());
+        MockHttpServletResponse rejected = perform(filter, "GET", "/books/1", "a");
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+        assertEquals(200, perform(filter, "GET", "/books/1", "b").getStatus());
+    }
+
+    @Test
+    @DisplayName("Превышение параллелизма класса отвечает 503, другие классы не затрагиваются")
+    void concurrencyLimit() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1000, 1000, 1, 10, 10, 10);
+        AtomicInteger nestedStatus = new AtomicInteger();
+        AtomicInteger otherClassStatus = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            nestedStatus.set(perform(filter, "GET", "/books", "b").getStatus());
+            otherClassStatus.set(perform(filter, "GET", "/books/1", "b").getStatus());
+        };
+
+        MockHttpServletRequest request = request("GET", "/books", "a");
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(503, nestedStatus.get());
+        assertEquals(200, otherClassStatus.get());
+        assertEquals(0, filter.getInFlight(EndpointClass.LIST));
+    }
+
+    @Test
+    @DisplayName("Класс эндпоинта определяется по пути без контекста приложения")
+    void contextPath() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1000, 1000, 1, 10, 10, 10);
+        AtomicInteger nestedStatus = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            MockHttpServletResponse nested = new MockHttpServletResponse();
+            filter.doFilter(withContextPath("GET", "/books", "b"), nested, new MockFilterChain());
+            nestedStatus.set(nested.getStatus());
+        };
+
+        //test
+        filter.doFilter(withContextPath("GET", "/books", "a"), new MockHttpServletResponse(), chain);
+
+        //check
+        assertEquals("/books", AdmissionControlFilter.path(withContextPath("GET", "/books", "a")));
+        assertEquals(503, nestedStatus.get());
+        assertEquals(0, filter.getInFlight(EndpointClass.LIST));
+    }
+
+    static MockHttpServletRequest withContextPath(String method, String path, String client) {
+        MockHttpServletRequest request = request(method, "/api" + path, client);
+        request.setContextPath("/api");
+        return request;
+    }
+
+    private static MockHttpServletResponse perform(AdmissionControlFilter filter, String method, String path, String client) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request(method, path, client), response, new MockFilterChain());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.addHeader(AdmissionControlFilter.CLIENT_ID_HEADER, client);
+        return request;
+    }
+}
@@ -0,0 +1,156 @@
+package me.dineka.books_service.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    @Test
+    @DisplayName("Повтор с тем же ключом возвращает сохранённый ответ без выполнения запроса")
+    void replay() throws Exception {
+        IdempotencyFilter filter = new IdempotencyFilter(Duration.ofHours(1), 100);
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = created(executions);
+
+        //test
+        MockHttpServletResponse first = perform(filter, chain, "k1", "{\"name\":\"a\"}");
+        MockHttpServletResponse second = perform(filter, chain, "k1", "{\"name\":\"a\"}");
+
+        //check
+        assertEquals(1, executions.get());
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(201, second.getStatus());
+        assertEquals("true", second.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals(1, filter.getStoredCount());
+    }
+
+    @Test
+    @DisplayName("Ключ с другим телом запроса отклоняется 422, запросы без ключа выполняются всегда")
+    void mismatchAndNoKey() throws Exception {
+        IdempotencyFilter filter = new IdempotencyFilter(Duration.ofHours(1), 100);
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = created(executions);
+
+        //test
+        perform(filter, chain, "k1", "{\"name\":\"a\"}");
+        MockHttpServletResponse mismatch = perform(filter, chain, "k1", "{\"name\":\"b\"}");
+        perform(filter, chain, null, "{\"name\":\"a\"}");
+        perform(filter, chain, null, "{\"name\":\"a\"}");
+
+        //check
+        assertEquals(422, mismatch.getStatus());
+        assertTrue(mismatch.getContentType().startsWith("application/problem+json"));
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    @DisplayName("Ошибки сервера не сохраняются, истёкшие ответы удаляются")
+    void serverErrorsAndExpiry() throws Exception {
+        IdempotencyFilter filter = new IdempotencyFilter(Duration.ZERO, 100);
+        AtomicInteger executions = new AtomicInteger();
+
+        //test
+        perform(filter, (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(503);
+        }, "k1", "{}");
+        perform(filter, created(executions), "k1", "{}");
+        perform(filter, created(executions), "k1", "{}");
+        filter.evictExpired();
+
+        //check
+        assertEquals(3, executions.get());
+        assertEquals(0, filter.getStoredCount());
+    }
+
+    @Test
+    @DisplayName("Одновременные запросы с одним ключом выполняются один раз")
+    void concurrentRequestsCollapse() throws Exception {
+        IdempotencyFilter filter = new IdempotencyFilter(Duration.ofHours(1), 100);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain chain = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            created(executions).doFilter(request, response);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            //test
+            Future<MockHttpServletResponse> leader = executor.submit(() -> perform(filter, chain, "k1", "{}"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<MockHttpServletResponse> follower = executor.submit(() -> perform(filter, chain, "k1", "{}"));
+            Thread.sleep(100);
+            release.countDown();
+
+            //check
+            assertEquals(201, leader.get(5, TimeUnit.SECONDS).getStatus());
+            MockHttpServletResponse replayed = follower.get(5, TimeUnit.SECONDS);
+            assertEquals(201, replayed.getStatus());
+            assertEquals("true", replayed.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Фильтр применяется к созданию книг и авторов и при контексте приложения")
+    void contextPath() {
+        IdempotencyFilter filter = new IdempotencyFilter(Duration.ofHours(1), 100);
+
+        //check
+        assertFalse(filter.shouldNotFilter(AdmissionControlFilterTest.withContextPath("POST", "/authors", "a")));
+        assertFalse(filter.shouldNotFilter(AdmissionControlFilterTest.withContextPath("POST", "/books", "a")));
+        assertTrue(filter.shouldNotFilter(AdmissionControlFilterTest.withContextPath("POST", "/books/aggregate", "a")));
+        assertTrue(filter.shouldNotFilter(AdmissionControlFilterTest.withContextPath("GET", "/authors", "a")));
+    }
+
+    private static FilterChain created(AtomicInteger executions) {
+        return (request, response) -> {
+            int id = executions.incrementAndGet();
+            request.getInputStream().readAllBytes();
+            ((HttpServletResponse) response).setStatus(201);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"id\":" + id + "}");
+        };
+    }
+
+    private static MockHttpServletResponse perform(IdempotencyFilter filter, FilterChain chain, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/authors");
+        request.addHeader(AdmissionControlFilter.CLIENT_ID_HEADER, "a");
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        }
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
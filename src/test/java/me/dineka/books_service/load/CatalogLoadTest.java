@@ -0,0 +1,218 @@
+package me.dineka.books_service.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.dineka.books_service.model.CatalogCounter;
+import me.dineka.books_service.service.AuthorService;
+import me.dineka.books_service.service.BookColumnStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест: приложение на случайном порту с заполненной H2, смешанные сценарии с фиксированной
+ * частотой, отчёт по пропускной способности и перцентилям, проверка SLO по p99.
+ *
+ * <p>Запуск: {@code mvn -Pload-test test}. Параметры задаются системными свойствами:
+ * {@code load.books}, {@code load.authors}, {@code load.warmup}, {@code load.duration} (секунды),
+ * {@code load.<сценарий>.rate} (запросов в секунду), {@code load.<сценарий>.slo-p99-ms}.</p>
+ */
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CatalogLoadTest {
+    private static final int BATCH_SIZE = 1_000;
+    private static final int AUTHORS = Integer.getInteger("load.authors", 500);
+    private static final int BOOKS = Integer.getInteger("load.books", 5_000);
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final Queue<Long> createdBooks = new ConcurrentLinkedQueue<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadGenerator generator = new LoadGenerator(64);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private BookColumnStore bookColumnStore;
+
+    /**
+     * Заполняет базу пакетами JDBC с известными {@code id}, затем приводит производные данные в то состояние,
+     * в котором их оставил бы импорт: нормализованные имена, счётчик авторов, индексы подсказок и поиска,
+     * колоночное хранилище книг.
+     */
+    @BeforeAll
+    void seed() {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= AUTHORS; i++) {
+            batch.add(new Object[]{i, "Автор " + letters(i), 1900 + i % 50});
+            if (batch.size() == BATCH_SIZE || i == AUTHORS) {
+                jdbcTemplate.batchUpdate("insert into author(id, name, birth_year) values (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        for (int i = 1; i <= BOOKS; i++) {
+            batch.add(new Object[]{i, "Книга " + i, 1 + i % AUTHORS, 2000 + i % 20, "Роман"});
+            if (batch.size() == BATCH_SIZE || i == BOOKS) {
+                jdbcTemplate.batchUpdate("insert into book(id, title, author_id, \"year\", genre) values (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("alter table author alter column id restart with " + (AUTHORS + 1));
+        jdbcTemplate.execute("alter table book alter column id restart with " + (BOOKS + 1));
+
+        // счётчик авторов заведён при запуске по пустой базе: initCatalog заведёт его заново по таблице
+        jdbcTemplate.update("delete from catalog_counter where name = ?", CatalogCounter.AUTHORS);
+        authorService.initCatalog();
+        bookColumnStore.rebuild();
+    }
+
+    @Test
+    @DisplayName("Сценарий с преобладанием чтения")
+    void readHeavy() throws Exception {
+        Workload workload = workload("read-heavy", 150, 250)
+                .operation("GET /books/{id}", 60, () -> get("/books/" + randomBook()), status -> status == 200)
+                .operation("GET /authors/{id}", 20, () -> get("/authors/" + randomAuthor()), status -> status == 200)
+                .operation("GET /authors?page", 14, () -> get("/authors?page=" + random(10) + "&size=20"), status -> status == 200)
+                .operation("GET /books", 1, () -> get("/books"), status -> status == 200)
+                .operation("POST /books", 3, this::addBook, status -> status == 200, this::rememberBook)
+                .operation("PUT /books/{id}", 2, this::updateBook, status -> status == 200);
+        check(generator.run(workload));
+    }
+
+    @Test
+    @DisplayName("Сценарий с преобладанием записи")
+    void writeHeavy() throws Exception {
+        Workload workload = workload("write-heavy", 100, 500)
+                .operation("POST /books", 40, this::addBook, status -> status == 200, this::rememberBook)
+                .operation("PUT /books/{id}", 20, this::updateBook, status -> status == 200)
+                .operation("DELETE /books/{id}", 15, this::deleteBook, status -> status == 204)
+                .operation("POST /authors", 10, this::addAuthor, status -> status == 200)
+                .operation("GET /books/{id}", 15, () -> get("/books/" + randomBook()), status -> status == 200);
+        check(generator.run(workload));
+    }
+
+    @Test
+    @DisplayName("Сценарий с крупными выборками")
+    void bulk() throws Exception {
+        Workload workload = workload("bulk", 10, 2_000)
+                .operation("GET /books", 50, () -> get("/books"), status -> status == 200)
+                .operation("GET /authors?size=500", 50, () -> get("/authors?page=0&size=500"), status -> status == 200);
+        check(generator.run(workload));
+    }
+
+    private Workload workload(String name, int defaultRate, long defaultSloP99Millis) {
+        return new Workload(name,
+                Integer.getInteger("load." + name + ".rate", defaultRate),
+                Duration.ofSeconds(Integer.getInteger("load.warmup", 10)),
+                Duration.ofSeconds(Integer.getInteger("load.duration", 15)),
+                Long.getLong("load." + name + ".slo-p99-ms", defaultSloP99Millis));
+    }
+
+    private void check(LoadGenerator.Report report) {
+        System.out.println(report.format());
+        double p99 = LoadGenerator.Report.millis(report.total().getValueAtPercentile(99));
+        assertEquals(0, report.errors(), "Неожиданные ответы в сценарии " + report.workload().getName());
+        assertTrue(p99 <= report.workload().getSloP99Millis(),
+                "SLO нарушен в сценарии " + report.workload().getName() + ": p99 " + p99 + " мс > " + report.workload().getSloP99Millis() + " мс");
+    }
+
+    private HttpRequest addBook() {
+        return post("/books", "{\"title\":\"Нагрузка " + sequence.incrementAndGet() + "\",\"genre\":\"Роман\",\"year\":2010,\"authorId\":" + randomAuthor() + "}");
+    }
+
+    private HttpRequest updateBook() {
+        long id = randomBook();
+        return HttpRequest.newBuilder(uri("/books/" + id))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"title\":\"Правка " + sequence.incrementAndGet() + "\",\"genre\":\"Роман\",\"year\":2010,\"authorId\":" + (1 + id % AUTHORS) + "}"))
+                .build();
+    }
+
+    private HttpRequest deleteBook() {
+        Long id = createdBooks.poll();
+        if (id == null) {
+            return null;
+        }
+        return HttpRequest.newBuilder(uri("/books/" + id)).DELETE().build();
+    }
+
+    private HttpRequest addAuthor() {
+        return post("/authors", "{\"name\":\"Нагрузка " + letters(sequence.incrementAndGet()) + "\",\"birth_year\":1950}");
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    /**
+     * Запоминает созданную книгу для последующего удаления: посеянные книги не удаляются,
+     * поэтому чтения и правки по ним всегда находят запись.
+     */
+    private void rememberBook(String body) {
+        try {
+            createdBooks.add(objectMapper.readTree(body).get("id").asLong());
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось разобрать ответ POST /books", e);
+        }
+    }
+
+    private long randomBook() {
+        return 1 + random(BOOKS);
+    }
+
+    private long randomAuthor() {
+        return 1 + random(AUTHORS);
+    }
+
+    private static int random(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    /**
+     * Уникальный суффикс из букв: имена авторов не допускают цифр.
+     */
+    private static String letters(int n) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('а' + n % 32));
+            n /= 32;
+        } while (n > 0);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package me.dineka.books_service.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки с открытой моделью: запросы отправляются по расписанию с фиксированной частотой
+ * независимо от времени ответа.
+ *
+ * <p>Задержка считается от запланированного момента отправки, а не от фактического, поэтому очередь
+ * перед медленным сервером попадает в перцентили (поправка на coordinated omission).</p>
+ */
+public class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final HttpClient client;
+    private final int concurrency;
+
+    public LoadGenerator(int concurrency) {
+        this.concurrency = concurrency;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    /**
+     * Выполняет сценарий: прогрев без записи в гистограммы, затем замер.
+     *
+     * @param workload сценарий нагрузки
+     * @return результаты замера по операциям
+     */
+    public Report run(Workload workload) throws InterruptedException {
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        for (Workload.Operation operation : workload.getOperations()) {
+            recorders.put(operation.name(), new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+        }
+        AtomicLong errors = new AtomicLong();
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / workload.getRatePerSecond();
+        long warmupNanos = workload.getWarmup().toNanos();
+        long totalNanos = warmupNanos + workload.getDuration().toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + i * periodNanos;
+                if (intended - start >= totalNanos) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Workload.Operation operation = workload.pick(i);
+                boolean measured = intended >= measureStart;
+                executor.execute(() -> {
+                    boolean ok = send(operation);
+                    if (measured) {
+                        recorders.get(operation.name()).recordValue(Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_NANOS));
+                        if (!ok) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - measureStart;
+
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        recorders.forEach((name, recorder) -> histograms.put(name, recorder.getIntervalHistogram()));
+        return new Report(workload, histograms, errors.get(), elapsedNanos);
+    }
+
+    private boolean send(Workload.Operation operation) {
+        try {
+            HttpRequest request = operation.request().get();
+            if (request == null) {
+                return true;
+            }
+            if (operation.onBody() == null) {
+                return operation.expectedStatus().test(client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+            }
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (!operation.expectedStatus().test(response.statusCode())) {
+                return false;
+            }
+            operation.onBody().accept(response.body());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Результаты сценария: пропускная способность и перцентили задержки по операциям и суммарно.
+     */
+    public record Report(Workload workload, Map<String, Histogram> histograms, long errors, long elapsedNanos) {
+
+        public Histogram total() {
+            Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+            histograms.values().forEach(total::add);
+            return total;
+        }
+
+        public double throughput() {
+            return total().getTotalCount() * 1e9 / elapsedNanos;
+        }
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%n=== %s: %d req/s, %.1f req/s фактически, ошибок: %d ===%n",
+                    workload.getName(), workload.getRatePerSecond(), throughput(), errors));
+            sb.append(String.format("%-22s %8s %9s %9s %9s %9s %9s%n", "операция", "запросов", "p50 мс", "p95 мс", "p99 мс", "p99.9 мс", "max мс"));
+            histograms.forEach((name, histogram) -> appendRow(sb, name, histogram));
+            appendRow(sb, "ВСЕГО", total());
+            return sb.toString();
+        }
+
+        private static void appendRow(StringBuilder sb, String name, Histogram histogram) {
+            sb.append(String.format("%-22s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())));
+        }
+
+        static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package me.dineka.books_service.load;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Сценарий нагрузки: фиксированная частота запросов и взвешенная смесь операций.
+ */
+public class Workload {
+    private final String name;
+    private final int ratePerSecond;
+    private final Duration warmup;
+    private final Duration duration;
+    private final long sloP99Millis;
+    private final List<Operation> operations = new ArrayList<>();
+    private int totalWeight;
+
+    public Workload(String name, int ratePerSecond, Duration warmup, Duration duration, long sloP99Millis) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.sloP99Millis = sloP99Millis;
+    }
+
+    /**
+     * Добавляет операцию в смесь.
+     *
+     * @param name          имя операции в отчёте
+     * @param weight        относительный вес операции
+     * @param request       построитель запроса, вызывается на каждое выполнение
+     * @param expectedStatus проверка статуса ответа
+     * @return этот сценарий
+     */
+    public Workload operation(String name, int weight, Supplier<HttpRequest> request, IntPredicate expectedStatus) {
+        return operation(name, weight, request, expectedStatus, null);
+    }
+
+    /**
+     * Добавляет операцию, тело успешного ответа которой передаётся в {@code onBody}.
+     * Для остальных операций тело ответа не читается.
+     */
+    public Workload operation(String name, int weight, Supplier<HttpRequest> request, IntPredicate expectedStatus,
+                              Consumer<String> onBody) {
+        operations.add(new Operation(name, weight, request, expectedStatus, onBody));
+        totalWeight += weight;
+        return this;
+    }
+
+    /**
+     * Выбирает операцию по номеру запроса: смесь детерминирована и воспроизводима между запусками.
+     */
+    Operation pick(long sequence) {
+        int point = (int) Long.remainderUnsigned(sequence * 0x9E3779B97F4A7C15L >>> 16, totalWeight);
+        for (Operation operation : operations) {
+            point -= operation.weight();
+            if (point < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public long getSloP99Millis() {
+        return sloP99Millis;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    record Operation(String name, int weight, Supplier<HttpRequest> request, IntPredicate expectedStatus,
+                     Consumer<String> onBody) {
+    }
+}
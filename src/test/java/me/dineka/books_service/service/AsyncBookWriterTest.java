@@ -0,0 +1,158 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookJobDTO;
+import me.dineka.books_service.DTO.CreateOrUpdateBookDTO;
+import me.dineka.books_service.exception.*;
+import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static me.dineka.books_service.service.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AsyncBookWriterTest {
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookChangeLog bookChangeLog;
+
+    @Mock
+    private BookShardRouter bookShardRouter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(bookService.prepareBook(any(CreateOrUpdateBookDTO.class))).thenAnswer(invocation -> book(invocation.getArgument(0)));
+        when(bookShardRouter.onShard(anyInt(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(bookRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(ids.incrementAndGet()));
+            return books;
+        });
+    }
+
+    @Test
+    @DisplayName("Принятая заявка записывается при остановке и получает id книги")
+    void submit_FlushedOnStop() {
+        AsyncBookWriter writer = new AsyncBookWriter(bookService, bookRepository, bookChangeLog, bookShardRouter, transactionManager, 10, 5, 100);
+        writer.start();
+
+        BookJobDTO job = writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_1, GENRE_1, PUBLISHING_YEAR_1, 1L));
+        assertEquals(BookJobDTO.Status.PENDING, job.getStatus());
+        writer.stop();
+
+        BookJobDTO actual = writer.getJob(job.getId());
+        assertEquals(BookJobDTO.Status.DONE, actual.getStatus());
+        assertEquals(1L, actual.getBookId());
+        verify(bookChangeLog).recordUpserts(anyList());
+    }
+
+    @Test
+    @DisplayName("Некорректная книга отклоняется сразу, без постановки в очередь")
+    void submit_InvalidBook() {
+        AsyncBookWriter writer = new AsyncBookWriter(bookService, bookRepository, bookChangeLog, bookShardRouter, transactionManager, 10, 5, 100);
+        writer.start();
+
+        assertThrows(InvalidBookTitleException.class, () -> writer.submit(new CreateOrUpdateBookDTO("@", GENRE_1, PUBLISHING_YEAR_1, 1L)));
+        assertThrows(InvalidBookGenreException.class, () -> writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_1, "111", PUBLISHING_YEAR_1, 1L)));
+        writer.stop();
+
+        verify(bookService, never()).prepareBook(any());
+    }
+
+    @Test
+    @DisplayName("Переполненная очередь отклоняет заявку")
+    void submit_QueueFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookService.prepareBook(any(CreateOrUpdateBookDTO.class))).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return book(invocation.getArgument(0));
+        });
+        AsyncBookWriter writer = new AsyncBookWriter(bookService, bookRepository, bookChangeLog, bookShardRouter, transactionManager, 1, 1, 100);
+        writer.start();
+
+        writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_1, GENRE_1, PUBLISHING_YEAR_1, 1L));
+        writing.await();
+        writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_2, GENRE_1, PUBLISHING_YEAR_1, 1L));
+        assertThrows(BookWriteQueueFullException.class,
+                () -> writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_3, GENRE_1, PUBLISHING_YEAR_1, 1L)));
+
+        release.countDown();
+        writer.stop();
+        verify(bookRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Ошибка одной заявки не мешает записи остальных в пакете")
+    void write_PartialFailure() throws InterruptedException {
+        // первая заявка держит писателя, пока остальные три не окажутся в очереди: они уходят одним пакетом
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookService.prepareBook(argThat(dto -> dto != null && BOOK_TITLE_3.equals(dto.getTitle())))).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return book(invocation.getArgument(0));
+        });
+        when(bookService.prepareBook(argThat(dto -> dto != null && BOOK_TITLE_2.equals(dto.getTitle()))))
+                .thenThrow(new AuthorNotFoundException("Автор с id 2 не найден"));
+        AsyncBookWriter writer = new AsyncBookWriter(bookService, bookRepository, bookChangeLog, bookShardRouter, transactionManager, 10, 10, 100);
+
+        writer.start();
+        writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_3, GENRE_1, PUBLISHING_YEAR_1, 1L));
+        writing.await();
+        BookJobDTO first = writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_1, GENRE_1, PUBLISHING_YEAR_1, 1L));
+        BookJobDTO second = writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_2, GENRE_1, PUBLISHING_YEAR_1, 2L));
+        BookJobDTO duplicate = writer.submit(new CreateOrUpdateBookDTO(BOOK_TITLE_1, GENRE_1, PUBLISHING_YEAR_1, 1L));
+        release.countDown();
+        writer.stop();
+
+        assertEquals(BookJobDTO.Status.DONE, writer.getJob(first.getId()).getStatus());
+        assertEquals(BookJobDTO.Status.FAILED, writer.getJob(second.getId()).getStatus());
+        assertEquals(BookJobDTO.Status.FAILED, writer.getJob(duplicate.getId()).getStatus());
+        verify(bookRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Выбрасывает исключение для неизвестной заявки")
+    void getJob_NotFound() {
+        AsyncBookWriter writer = new AsyncBookWriter(bookService, bookRepository, bookChangeLog, bookShardRouter, transactionManager, 10, 5, 100);
+        assertThrows(BookJobNotFoundException.class, () -> writer.getJob("unknown"));
+    }
+
+    private static Book book(CreateOrUpdateBookDTO bookDTO) {
+        Author author = new Author();
+        author.setId(bookDTO.getAuthorId());
+        author.setName(AUTHOR_NAME_1);
+        author.setBirth_year(BIRTH_YEAR_1);
+        Book book = new Book();
+        book.setTitle(bookDTO.getTitle());
+        book.setGenre(bookDTO.getGenre());
+        book.setYear(bookDTO.getYear());
+        book.setAuthor(author);
+        return book;
+    }
+}
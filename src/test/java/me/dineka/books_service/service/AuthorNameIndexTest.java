@@ -0,0 +1,104 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorNameIndexTest {
+    private final AuthorSuggestionDTO tolstoyLev = new AuthorSuggestionDTO(1L, "Лев Толстой");
+    private final AuthorSuggestionDTO tolstoyAlexey = new AuthorSuggestionDTO(2L, "Алексей Толстой");
+    private final AuthorSuggestionDTO lermontov = new AuthorSuggestionDTO(3L, "Михаил Лермонтов");
+    private final AuthorSuggestionDTO london = new AuthorSuggestionDTO(4L, "Jack London");
+
+    private AuthorNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AuthorNameIndex();
+        index.rebuild(List.of(lermontov, tolstoyLev, london, tolstoyAlexey));
+    }
+
+    @Test
+    @DisplayName("Подсказки по префиксу без учёта регистра, кириллица и латиница")
+    void suggest() {
+        //test & check
+        assertEquals(List.of(tolstoyLev), index.suggest("ЛЕВ", 10));
+        assertEquals(List.of(london), index.suggest("  jack l", 10));
+        assertEquals(List.of(tolstoyAlexey), index.suggest("а", 10));
+        assertTrue(index.suggest("толстой", 10).isEmpty());
+        assertTrue(index.suggest(" ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Лимит подсказок и буква ё")
+    void suggest_LimitAndYo() {
+        AuthorSuggestionDTO yolkin = new AuthorSuggestionDTO(5L, "Ёлкин");
+        AuthorSuggestionDTO elkina = new AuthorSuggestionDTO(6L, "Елкина");
+        index.add(elkina);
+        index.add(yolkin);
+
+        //test
+        List<AuthorSuggestionDTO> actual = index.suggest("ёлк", 10);
+
+        //check
+        assertEquals(List.of(yolkin, elkina), actual);
+        assertEquals(List.of(yolkin), index.suggest("елк", 1));
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    @DisplayName("Добавленный автор с тем же именем идёт после существующего")
+    void add_SameName() {
+        AuthorSuggestionDTO namesake = new AuthorSuggestionDTO(7L, "лев толстой");
+
+        //test
+        index.add(namesake);
+
+        //check
+        assertEquals(List.of(tolstoyLev, namesake), index.suggest("лев", 10));
+        assertThrows(UnsupportedOperationException.class, () -> index.suggest("лев", 10).set(0, london));
+    }
+
+    @Test
+    @DisplayName("Автор, добавленный во время перестройки, не теряется и не дублируется")
+    void rebuild_KeepsConcurrentAdds() {
+        AuthorSuggestionDTO committedDuringRead = new AuthorSuggestionDTO(8L, "Лев Гумилёв");
+        AuthorSuggestionDTO committedBeforeRead = new AuthorSuggestionDTO(9L, "Лев Кассиль");
+
+        //test
+        index.beginRebuild();
+        index.add(committedDuringRead);
+        index.rebuild(List.of(lermontov, tolstoyLev, london, tolstoyAlexey, committedBeforeRead));
+        index.add(committedBeforeRead);
+
+        //check
+        assertEquals(List.of(committedDuringRead, committedBeforeRead, tolstoyLev), index.suggest("лев", 10));
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    @DisplayName("Пакет авторов добавляется одним слиянием, переполненная добавка сливается с основным массивом")
+    void addAll_MergesDelta() {
+        List<AuthorSuggestionDTO> batch = new ArrayList<>();
+        for (long id = 100; id < 100 + AuthorNameIndex.MAX_DELTA + 1; id++) {
+            batch.add(new AuthorSuggestionDTO(id, "Лев Автор " + id));
+        }
+
+        //test
+        index.addAll(batch);
+        index.addAll(batch);
+        index.add(new AuthorSuggestionDTO(5000L, "Лев Абрамов"));
+
+        //check
+        assertEquals(4 + batch.size() + 1, index.size());
+        List<AuthorSuggestionDTO> actual = index.suggest("лев а", 3);
+        assertEquals(List.of(5000L, 100L, 1000L), actual.stream().map(AuthorSuggestionDTO::getId).toList());
+        assertEquals(List.of(tolstoyLev), index.suggest("лев т", 10));
+    }
+}
@@ -1,25 +1,37 @@
 package me.dineka.books_service.service;
 
+import me.dineka.books_service.DTO.AuthorSliceDTO;
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
 import me.dineka.books_service.DTO.CreateAuthorDTO;
+import me.dineka.books_service.config.ReadWriteRoutingDataSource;
 import me.dineka.books_service.exception.AuthorAlreadyExistsException;
 import me.dineka.books_service.exception.AuthorNotFoundException;
 import me.dineka.books_service.exception.InvalidAuthorBirthYearException;
 import me.dineka.books_service.exception.InvalidAuthorNameException;
+import me.dineka.books_service.exception.InvalidAuthorScrollException;
+import me.dineka.books_service.exception.InvalidAuthorSuggestException;
 import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.CatalogCounter;
 import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.repository.CatalogCounterRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
 import java.time.Year;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static me.dineka.books_service.service.TestData.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,6 +41,18 @@ class AuthorServiceTest {
     @Mock
     private AuthorRepository authorRepository;
 
+    @Mock
+    private CatalogCounterRepository catalogCounterRepository;
+
+    @Mock
+    private AuthorNameIndex authorNameIndex;
+
+    @Mock
+    private AuthorTrigramIndex authorTrigramIndex;
+
+    @Mock
+    private BookShardRouter bookShardRouter;
+
     @InjectMocks
     private AuthorService authorService;
 
@@ -53,6 +77,9 @@ class AuthorServiceTest {
 
         //check
         verify(authorRepository).save(author);
+        verify(catalogCounterRepository).add(CatalogCounter.AUTHORS, 1);
+        verify(authorNameIndex).addAll(List.of(AuthorSuggestionDTO.fromEntity(author)));
+        verify(authorTrigramIndex).addAll(List.of(AuthorSuggestionDTO.fromEntity(author)));
         assertNotNull(actual);
         assertEquals(AUTHOR_NAME_1, actual.getName());
         assertEquals(BIRTH_YEAR_1, actual.getBirth_year());
@@ -93,7 +120,7 @@ class AuthorServiceTest {
     void testAddAuthor_Negative_6() {
         CreateAuthorDTO dto = new CreateAuthorDTO(AUTHOR_NAME_1, BIRTH_YEAR_1);
 
-        when(authorRepository.existsByNameIgnoreCaseAndBirthYear(dto.getName(), dto.getBirth_year())).thenReturn(true);
+        when(authorRepository.existsByNormalizedNameAndBirthYear(Author.normalizeName(dto.getName()), dto.getBirth_year())).thenReturn(true);
 
         //test & check
         assertThrows(AuthorAlreadyExistsException.class, () -> authorService.addAuthor(dto));
@@ -119,6 +146,41 @@ class AuthorServiceTest {
         verify(authorRepository, times(1)).findById(1L);
     }
 
+    @Test
+    @DisplayName("Закреплённый за основной базой поток не присоединяется к идущей загрузке автора")
+    void testGetAuthor_PinnedBypassesSharedLoad() throws Exception {
+        Author stale = new Author();
+        stale.setName(AUTHOR_NAME_1);
+        Author fresh = new Author();
+        fresh.setName(AUTHOR_NAME_2);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authorRepository.findById(1L))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return Optional.of(stale);
+                })
+                .thenReturn(Optional.of(fresh));
+        CompletableFuture<Author> shared = CompletableFuture.supplyAsync(() -> authorService.getAuthorById(1L));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        //test
+        ReadWriteRoutingDataSource.pinToPrimary();
+        Author actual;
+        try {
+            actual = authorService.getAuthorById(1L);
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+            release.countDown();
+        }
+
+        //check
+        assertSame(fresh, actual);
+        assertSame(stale, shared.get(5, TimeUnit.SECONDS));
+        verify(authorRepository, times(2)).findById(1L);
+    }
+
     @Test
     @DisplayName("Выбрасывает исключение если автор не найден")
     void testGetAuthorNegative_1() {
@@ -141,9 +203,9 @@ class AuthorServiceTest {
         List<Author> authorList = List.of(author1, author2);
 
         PageRequest pageRequest = PageRequest.of(0, 5);
-        Page<Author> page = new PageImpl<>(authorList, pageRequest, authorList.size());
+        Pageable sorted = PageRequest.of(0, 5, Sort.by("normalizedName", "id"));
 
-        when(authorRepository.findAll(pageRequest)).thenReturn(page);
+        when(authorRepository.findAllBy(sorted)).thenReturn(new SliceImpl<>(authorList, sorted, false));
 
         //test
         List<Author> actual = authorService.getAllAuthors(pageRequest);
@@ -153,7 +215,8 @@ class AuthorServiceTest {
         assertEquals(2, actual.size());
         assertEquals(AUTHOR_NAME_1, actual.get(0).getName());
         assertEquals(AUTHOR_NAME_2, actual.get(1).getName());
-        verify(authorRepository).findAll(pageRequest);
+        verify(authorRepository).findAllBy(sorted);
+        verify(authorRepository, never()).count();
     }
 
     @Test
@@ -174,4 +237,75 @@ class AuthorServiceTest {
     void testGetAllAuthorsNegative_3() {
         assertThrows(IllegalArgumentException.class, () -> authorService.getAllAuthors(PageRequest.of(5, 0)));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Прокрутка авторов: токен следующей порции указывает на последнего автора")
+    void testScrollAuthors_Positive() {
+        Author author1 = author(1L, AUTHOR_NAME_1);
+        Author author2 = author(2L, AUTHOR_NAME_2);
+        Author author3 = author(3L, AUTHOR_NAME_2);
+
+        when(authorRepository.findAllByOrderByNormalizedNameAscIdAsc(Limit.of(3))).thenReturn(List.of(author1, author2, author3));
+        when(authorRepository.findAfter(author2.getNormalizedName(), 2L, Limit.of(3))).thenReturn(List.of(author3));
+
+        //test
+        AuthorSliceDTO first = authorService.scrollAuthors(null, 2, false);
+        AuthorSliceDTO second = authorService.scrollAuthors(first.getNextToken(), 2, false);
+
+        //check
+        assertEquals(List.of(author1, author2), first.getAuthors());
+        assertTrue(first.isHasNext());
+        assertNull(first.getTotal());
+        assertEquals(List.of(author3), second.getAuthors());
+        assertFalse(second.isHasNext());
+        assertNull(second.getNextToken());
+        verifyNoInteractions(catalogCounterRepository);
+    }
+
+    @Test
+    @DisplayName("Прокрутка авторов: общее количество берётся из счётчика")
+    void testScrollAuthors_Total() {
+        when(authorRepository.findAllByOrderByNormalizedNameAscIdAsc(Limit.of(3))).thenReturn(List.of(author(1L, AUTHOR_NAME_1)));
+        when(catalogCounterRepository.findTotal(CatalogCounter.AUTHORS)).thenReturn(Optional.of(42L));
+
+        //test
+        AuthorSliceDTO actual = authorService.scrollAuthors("", 2, true);
+
+        //check
+        assertEquals(42L, actual.getTotal());
+        verify(authorRepository, never()).count();
+    }
+
+    @Test
+    @DisplayName("Прокрутка авторов: некорректный токен или размер порции")
+    void testScrollAuthors_Negative() {
+        assertThrows(InvalidAuthorScrollException.class, () -> authorService.scrollAuthors("не токен", 2, false));
+        assertThrows(InvalidAuthorScrollException.class, () -> authorService.scrollAuthors("bm90LWEtbnVtYmVy", 2, false));
+        assertThrows(InvalidAuthorScrollException.class, () -> authorService.scrollAuthors(null, 0, false));
+        assertThrows(InvalidAuthorScrollException.class, () -> authorService.scrollAuthors(null, AuthorService.MAX_SCROLL_SIZE + 1, false));
+    }
+
+    @Test
+    @DisplayName("Подсказки авторов берутся из индекса без обращения к базе")
+    void testSuggestAuthors() {
+        List<AuthorSuggestionDTO> expected = List.of(new AuthorSuggestionDTO(1L, AUTHOR_NAME_1));
+        when(authorNameIndex.suggest("ав", 10)).thenReturn(expected);
+
+        //test
+        List<AuthorSuggestionDTO> actual = authorService.suggestAuthors("ав", 10);
+
+        //check
+        assertEquals(expected, actual);
+        verifyNoInteractions(authorRepository);
+        assertThrows(InvalidAuthorSuggestException.class, () -> authorService.suggestAuthors("ав", 0));
+        assertThrows(InvalidAuthorSuggestException.class, () -> authorService.suggestAuthors("ав", AuthorService.MAX_SUGGEST_LIMIT + 1));
+    }
+
+    private static Author author(Long id, String name) {
+        Author author = new Author();
+        author.setId(id);
+        author.setName(name);
+        author.setBirth_year(BIRTH_YEAR_1);
+        return author;
+    }
+}
@@ -0,0 +1,88 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.AuthorMatchDTO;
+import me.dineka.books_service.DTO.AuthorSuggestionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorTrigramIndexTest {
+    private AuthorTrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AuthorTrigramIndex(0.3);
+        index.rebuild(List.of(
+                new AuthorSuggestionDTO(1L, "Фёдор Достоевский"),
+                new AuthorSuggestionDTO(2L, "Лев Толстой"),
+                new AuthorSuggestionDTO(3L, "Алексей Толстой"),
+                new AuthorSuggestionDTO(4L, "Arthur Conan Doyle")));
+    }
+
+    @Test
+    @DisplayName("Находит автора с опечаткой и переставленными словами")
+    void search_Typos() {
+        //test
+        List<AuthorMatchDTO> misspelled = index.search("Достоевкий Федор", 10);
+        List<AuthorMatchDTO> latin = index.search("conan doyl", 10);
+
+        //check
+        assertEquals(1L, misspelled.get(0).getId());
+        assertEquals(1, misspelled.size());
+        assertEquals(4L, latin.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Кандидаты упорядочены по сходству, лимит соблюдается")
+    void search_Ranking() {
+        //test
+        List<AuthorMatchDTO> actual = index.search("лев толстой", 10);
+
+        //check
+        assertEquals(2, actual.size());
+        assertEquals(2L, actual.get(0).getId());
+        assertEquals(1.0, actual.get(0).getSimilarity());
+        assertEquals(3L, actual.get(1).getId());
+        assertTrue(actual.get(1).getSimilarity() < 1.0);
+        assertEquals(List.of(actual.get(0)), index.search("лев толстой", 1));
+        assertTrue(index.search("Шолохов", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Добавленный автор сразу находится поиском")
+    void add() {
+        for (long id = 5; id < 40; id++) {
+            index.add(new AuthorSuggestionDTO(id, "Автор " + id));
+        }
+
+        //test
+        index.add(new AuthorSuggestionDTO(40L, "Михаил Булгаков"));
+
+        //check
+        assertEquals(40L, index.search("булгаков", 10).get(0).getId());
+        assertEquals(40, index.size());
+    }
+
+    @Test
+    @DisplayName("Автор, добавленный во время перестройки, не теряется и не дублируется")
+    void rebuild_KeepsConcurrentAdds() {
+        AuthorSuggestionDTO committedDuringRead = new AuthorSuggestionDTO(5L, "Михаил Булгаков");
+        AuthorSuggestionDTO committedBeforeRead = new AuthorSuggestionDTO(6L, "Иван Бунин");
+
+        //test
+        index.beginRebuild();
+        index.add(committedDuringRead);
+        index.rebuild(List.of(new AuthorSuggestionDTO(2L, "Лев Толстой"), committedBeforeRead));
+        index.addAll(List.of(committedBeforeRead, committedDuringRead));
+
+        //check
+        assertEquals(List.of(5L), index.search("булгаков", 10).stream().map(AuthorMatchDTO::getId).toList());
+        assertEquals(List.of(6L), index.search("бунин", 10).stream().map(AuthorMatchDTO::getId).toList());
+        assertEquals(3, index.size());
+    }
+}
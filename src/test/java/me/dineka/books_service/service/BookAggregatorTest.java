@@ -0,0 +1,155 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookAggregateDTO;
+import me.dineka.books_service.DTO.BookAggregateRequestDTO;
+import me.dineka.books_service.DTO.BookChangeDTO;
+import me.dineka.books_service.DTO.BookGroupDTO;
+import me.dineka.books_service.exception.InvalidBookAggregateException;
+import me.dineka.books_service.model.BookChange;
+import me.dineka.books_service.repository.AuthorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookAggregatorTest {
+    private static final String[] GENRES = {"Роман", "Поэзия", "Драма"};
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BookShardRouter bookShardRouter;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    private BookColumnStore store;
+    private BookAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(bookShardRouter.getShardCount()).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        store = new BookColumnStore(jdbcTemplate, bookShardRouter, 2);
+        store.rebuild();
+        aggregator = new BookAggregator(store, authorRepository, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregator.shutdown();
+    }
+
+    @Test
+    @DisplayName("Книги по жанру и десятилетию для авторов, родившихся до 1900 года")
+    void aggregate_GenreAndDecade() {
+        // книга i: автор i % 4 + 1, жанр i % 3, год 1850 + i
+        for (int i = 0; i < 100; i++) {
+            store.onChange(upsert(i + 1, i + 1, i % 4 + 1, GENRES[i % 3], 1850 + i));
+        }
+        store.onChange(new BookChangeEvent(new BookChangeDTO(101L, BookChange.Type.DELETE, 1L, null, null, null, null)));
+        when(authorRepository.findIdsByBirthYearBetween(Integer.MIN_VALUE, 1899)).thenReturn(List.of(1L, 2L));
+
+        //test
+        BookAggregateDTO actual = aggregator.aggregate(new BookAggregateRequestDTO(List.of("genre", "decade"),
+                List.of("роман", "драма"), 1850, 1869, null, null, 1899));
+
+        //check
+        // авторы 1 и 2 - книги с i % 4 в {0, 1}, жанры 0 и 2 - i % 3 в {0, 2}, годы 1850-1869 - i < 20, книга i = 0 удалена
+        assertEquals(List.of("genre", "decade"), actual.getGroupBy());
+        assertEquals(5, actual.getCount());
+        assertEquals(List.of(
+                Map.of("genre", "Драма", "decade", 1850),
+                Map.of("genre", "Драма", "decade", 1860),
+                Map.of("genre", "Роман", "decade", 1850),
+                Map.of("genre", "Роман", "decade", 1860)
+        ), actual.getGroups().stream().map(BookGroupDTO::getKey).toList());
+        BookGroupDTO dramaFifties = actual.getGroups().get(0);
+        assertEquals(2, dramaFifties.getCount());
+        assertEquals(1855, dramaFifties.getMinYear());
+        assertEquals(1858, dramaFifties.getMaxYear());
+    }
+
+    @Test
+    @DisplayName("Без группировки - одна группа по всему каталогу, группировка по автору и году")
+    void aggregate_TotalAndAuthor() {
+        for (int i = 0; i < 60; i++) {
+            store.onChange(upsert(i + 1, i + 1, i % 3 + 1, GENRES[0], 2000 + i % 2));
+        }
+
+        //test
+        BookAggregateDTO total = aggregator.aggregate(new BookAggregateRequestDTO());
+        BookAggregateDTO byAuthor = aggregator.aggregate(new BookAggregateRequestDTO(List.of("authorId", "year"),
+                null, null, null, List.of(3L, 1L), null, null));
+
+        //check
+        assertEquals(1, total.getGroups().size());
+        assertEquals(60, total.getGroups().get(0).getCount());
+        assertEquals(2000, total.getGroups().get(0).getMinYear());
+        assertEquals(2001, total.getGroups().get(0).getMaxYear());
+        assertEquals(List.of(1L, 1L, 3L, 3L), byAuthor.getGroups().stream().map(group -> group.getKey().get("authorId")).toList());
+        assertEquals(List.of(2000, 2001, 2000, 2001), byAuthor.getGroups().stream().map(group -> group.getKey().get("year")).toList());
+        assertEquals(40, byAuthor.getCount());
+    }
+
+    @Test
+    @DisplayName("Неизвестное, повторяющееся поле и слишком широкий ключ группы")
+    void aggregate_InvalidGroupBy() {
+        //test & check
+        assertThrows(InvalidBookAggregateException.class,
+                () -> aggregator.aggregate(new BookAggregateRequestDTO(List.of("title"), null, null, null, null, null, null)));
+        assertThrows(InvalidBookAggregateException.class,
+                () -> aggregator.aggregate(new BookAggregateRequestDTO(List.of("year", "YEAR"), null, null, null, null, null, null)));
+        assertThrows(InvalidBookAggregateException.class,
+                () -> aggregator.aggregate(new BookAggregateRequestDTO(List.of("authorId", "genre", "year"), null, null, null, null, null, null)));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Скорость агрегации: 5 000 000 книг, один поток и общий пул")
+    void aggregate_Throughput() {
+        store = new BookColumnStore(jdbcTemplate, bookShardRouter, 4096);
+        store.rebuild();
+        for (int i = 0; i < 5_000_000; i++) {
+            store.onChange(upsert(i + 1, i + 1, i % 20_000 + 1, GENRES[i % 3], 1800 + i % 220));
+        }
+        BookAggregateRequestDTO request = new BookAggregateRequestDTO(List.of("genre", "decade"), null, null, null, null, null, null);
+        BookAggregator single = new BookAggregator(store, authorRepository, 1);
+        BookAggregator common = new BookAggregator(store, authorRepository, 0);
+        for (int i = 0; i < 5; i++) {
+            single.aggregate(request);
+            common.aggregate(request);
+        }
+
+        long started = System.nanoTime();
+        single.aggregate(request);
+        long singleMillis = (System.nanoTime() - started) / 1_000_000;
+        started = System.nanoTime();
+        BookAggregateDTO actual = common.aggregate(request);
+        long commonMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.printf("Агрегация 5M книг: 1 поток %d мс, общий пул (%d потоков) %d мс%n",
+                singleMillis, ForkJoinPool.getCommonPoolParallelism(), commonMillis);
+        assertEquals(5_000_000, actual.getCount());
+        single.shutdown();
+    }
+
+    private static BookChangeEvent upsert(long sequence, long bookId, long authorId, String genre, int year) {
+        return new BookChangeEvent(new BookChangeDTO(sequence, BookChange.Type.UPSERT, bookId, "Книга", authorId, genre, year));
+    }
+}
@@ -0,0 +1,165 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookChangesDTO;
+import me.dineka.books_service.exception.ChangeTokenExpiredException;
+import me.dineka.books_service.exception.InvalidChangeTokenException;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.model.BookChange;
+import me.dineka.books_service.model.CatalogCounter;
+import me.dineka.books_service.repository.BookChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookChangeLogTest {
+    @Mock
+    private BookChangeRepository bookChangeRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private BookChangeLog bookChangeLog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookChangeLog = new BookChangeLog(bookChangeRepository, eventPublisher, jdbcTemplate, Duration.ofDays(7));
+    }
+
+    @Test
+    @DisplayName("Возвращает страницу изменений и токен продолжения")
+    void getChanges_Positive() {
+        when(bookChangeRepository.findMinId()).thenReturn(1L);
+        when(bookChangeRepository.findByIdGreaterThanOrderByIdAsc(5L, Limit.of(3))).thenReturn(changes(6, 7, 8));
+
+        //test
+        BookChangesDTO actual = bookChangeLog.getChanges("5", 2);
+
+        //check
+        assertEquals(2, actual.getChanges().size());
+        assertEquals(BookChange.Type.DELETE, actual.getChanges().get(0).getType());
+        assertEquals("7", actual.getNextToken());
+        assertTrue(actual.isHasMore());
+    }
+
+    @Test
+    @DisplayName("Без новых изменений возвращает тот же токен")
+    void getChanges_Empty() {
+        when(bookChangeRepository.findMinId()).thenReturn(1L);
+        when(bookChangeRepository.findByIdGreaterThanOrderByIdAsc(8L, Limit.of(101))).thenReturn(List.of());
+
+        BookChangesDTO actual = bookChangeLog.getChanges("8", 100);
+
+        assertTrue(actual.getChanges().isEmpty());
+        assertEquals("8", actual.getNextToken());
+        assertFalse(actual.isHasMore());
+    }
+
+    @Test
+    @DisplayName("Выбрасывает исключение, когда изменения после токена удалены по сроку хранения")
+    void getChanges_Expired() {
+        when(bookChangeRepository.findMinId()).thenReturn(50L);
+
+        assertThrows(ChangeTokenExpiredException.class, () -> bookChangeLog.getChanges("10", 100));
+        assertDoesNotThrow(() -> bookChangeLog.getChanges("49", 100));
+    }
+
+    @Test
+    @DisplayName("Выбрасывает исключение при некорректном токене или лимите")
+    void getChanges_Invalid() {
+        assertThrows(InvalidChangeTokenException.class, () -> bookChangeLog.getChanges("abc", 100));
+        assertThrows(InvalidChangeTokenException.class, () -> bookChangeLog.getChanges("-1", 100));
+        assertThrows(InvalidChangeTokenException.class, () -> bookChangeLog.getChanges("1", 0));
+        assertThrows(InvalidChangeTokenException.class, () -> bookChangeLog.getChanges("1", BookChangeLog.MAX_LIMIT + 1));
+    }
+
+    @Test
+    @DisplayName("Номера записей выдаются подряд из счётчика, счётчик заводится при первой записи")
+    void recordDeletes_SequencesFromCounter() {
+        when(jdbcTemplate.queryForList(startsWith("select total from final table"), eq(Long.class), eq(2), eq(CatalogCounter.BOOK_CHANGES)))
+                .thenReturn(List.of(), List.of(12L));
+        when(bookChangeRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //test
+        bookChangeLog.recordDeletes(List.of(100L, 200L));
+
+        //check
+        verify(jdbcTemplate).update(startsWith("insert into catalog_counter"), eq(CatalogCounter.BOOK_CHANGES));
+        ArgumentCaptor<List<BookChange>> saved = ArgumentCaptor.forClass(List.class);
+        verify(bookChangeRepository).saveAll(saved.capture());
+        assertEquals(List.of(11L, 12L), saved.getValue().stream().map(BookChange::getId).toList());
+        assertTrue(saved.getValue().get(0).isNew());
+        verify(eventPublisher, times(2)).publishEvent(any(BookChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Удаления пакетом JDBC получают номера из счётчика и публикуются")
+    void recordDeletesBatch_SequencesFromCounter() {
+        when(jdbcTemplate.queryForList(startsWith("select total from final table"), eq(Long.class), eq(3), eq(CatalogCounter.BOOK_CHANGES)))
+                .thenReturn(List.of(7L));
+
+        //test
+        bookChangeLog.recordDeletesBatch(List.of(100L, 200L, 300L));
+
+        //check
+        ArgumentCaptor<BatchPreparedStatementSetter> batch = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into book_change"), batch.capture());
+        assertEquals(3, batch.getValue().getBatchSize());
+        verify(bookChangeRepository, never()).saveAll(anyList());
+        ArgumentCaptor<BookChangeEvent> events = ArgumentCaptor.forClass(BookChangeEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        assertEquals(List.of(5L, 6L, 7L), events.getAllValues().stream().map(event -> event.change().getSequence()).toList());
+    }
+
+    @Test
+    @DisplayName("Счётчик номеров заводится при запуске только если его ещё нет")
+    void initSequence() {
+        when(jdbcTemplate.queryForList(startsWith("select total from catalog_counter"), eq(Long.class), eq(CatalogCounter.BOOK_CHANGES)))
+                .thenReturn(List.of(), List.of(5L));
+
+        //test
+        bookChangeLog.initSequence();
+        bookChangeLog.initSequence();
+
+        //check
+        verify(jdbcTemplate, times(1)).update(startsWith("insert into catalog_counter"), eq(CatalogCounter.BOOK_CHANGES));
+    }
+
+    @Test
+    @DisplayName("Пустой пакет не обращается к счётчику")
+    void recordUpserts_Empty() {
+        //test
+        bookChangeLog.recordUpserts(List.<Book>of());
+
+        //check
+        verifyNoInteractions(jdbcTemplate, bookChangeRepository, eventPublisher);
+    }
+
+    private static List<BookChange> changes(long... ids) {
+        List<BookChange> changes = new ArrayList<>();
+        for (long id : ids) {
+            BookChange change = BookChange.delete(id * 10);
+            change.setId(id);
+            changes.add(change);
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,134 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookChangeDTO;
+import me.dineka.books_service.DTO.BookResponseDTO;
+import me.dineka.books_service.model.BookChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookColumnStoreTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BookShardRouter bookShardRouter;
+
+    @Mock
+    private ResultSet rs;
+
+    private BookColumnStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(bookShardRouter.getShardCount()).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(10L);
+        when(rs.getLong(1)).thenReturn(1L, 2L, 3L);
+        when(rs.getString(2)).thenReturn("Книга", "Повесть", "Рассказы");
+        when(rs.getLong(3)).thenReturn(100L, 100L, 200L);
+        when(rs.getInt(4)).thenReturn(1990, 2000, 2010);
+        when(rs.getString(5)).thenReturn("Роман", "Повесть", "Роман");
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        store = new BookColumnStore(jdbcTemplate, bookShardRouter, 2);
+        store.rebuild();
+    }
+
+    @Test
+    @DisplayName("Фильтр по автору, жанру без учёта регистра и диапазону лет")
+    void find() {
+        //test & check
+        assertEquals(List.of(1L, 2L, 3L), ids(BookFilter.ALL));
+        assertEquals(List.of(1L, 2L), ids(new BookFilter(100L, null, null, null)));
+        assertEquals(List.of(1L, 3L), ids(new BookFilter(null, "роман", null, null)));
+        assertEquals(List.of(3L), ids(new BookFilter(null, "Роман", 2000, null)));
+        assertEquals(List.of(2L), ids(new BookFilter(null, null, 1995, 2005)));
+        assertEquals(List.of(), ids(new BookFilter(null, "Поэзия", null, null)));
+        assertEquals("Повесть", store.find(new BookFilter(null, "повесть", null, null)).get(0).getTitle());
+        assertTrue(store.isServing());
+    }
+
+    @Test
+    @DisplayName("Изменения применяются по порядку журнала: новые книги, правки, удаления и вставки в середину")
+    void onChange() {
+        //test
+        store.onChange(upsert(11, 4, "Новая", 300L, "Фэнтези", 2020));
+        store.onChange(upsert(12, 2, "Повесть", 100L, "Роман", 2001));
+        store.onChange(delete(13, 1));
+        store.onChange(upsert(9, 3, "Старое состояние", 100L, "Роман", 1900));
+        store.onChange(upsert(12, 1, "Устаревшее событие", 100L, "Роман", 1900));
+        for (long id = 100; id > 4; id -= 10) {
+            store.onChange(upsert(100 + id, id, "Книга " + id, 400L, "Роман", 2022));
+        }
+
+        //check
+        List<Long> expected = new ArrayList<>(List.of(2L, 3L, 4L));
+        LongStream.iterate(10, id -> id <= 100, id -> id + 10).forEach(expected::add);
+        assertEquals(expected, ids(BookFilter.ALL));
+        assertEquals(expected.size(), store.size());
+        assertEquals(List.of(2L, 3L), ids(new BookFilter(null, "Роман", 2001, 2010)));
+        assertEquals(List.of(4L), ids(new BookFilter(null, "фэнтези", null, null)));
+        assertEquals("Рассказы", store.find(new BookFilter(200L, null, null, null)).get(0).getTitle());
+    }
+
+    @Test
+    @DisplayName("Изменения во время перестройки применяются к новой модели")
+    void rebuild_KeepsConcurrentChanges() throws Exception {
+        when(rs.getLong(1)).thenReturn(1L);
+        when(rs.getString(2)).thenReturn("Книга");
+        when(rs.getLong(3)).thenReturn(100L);
+        when(rs.getInt(4)).thenReturn(1990);
+        when(rs.getString(5)).thenReturn("Роман");
+        doAnswer(invocation -> {
+            store.onChange(upsert(11, 5, "Во время перестройки", 100L, "Роман", 2024));
+            // номер не больше отметки, но транзакция зафиксирована после чтения книг
+            store.onChange(upsert(9, 6, "Поздняя фиксация", 100L, "Роман", 2024));
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        // книга 1 прочитана с состоянием отметки 10, более старое изменение её не перетирает
+        store.onChange(upsert(8, 1, "Старое событие", 100L, "Роман", 1900));
+
+        //test
+        store.rebuild();
+        store.onChange(upsert(7, 1, "Событие после перестройки", 100L, "Роман", 1900));
+
+        //check
+        assertEquals(List.of(1L, 5L, 6L), ids(BookFilter.ALL));
+        assertEquals("Книга", store.find(new BookFilter(null, null, 1990, 1990)).get(0).getTitle());
+    }
+
+    private List<Long> ids(BookFilter filter) {
+        return store.find(filter).stream().map(BookResponseDTO::getId).toList();
+    }
+
+    private static BookChangeEvent upsert(long sequence, long bookId, String title, Long authorId, String genre, int year) {
+        return new BookChangeEvent(new BookChangeDTO(sequence, BookChange.Type.UPSERT, bookId, title, authorId, genre, year));
+    }
+
+    private static BookChangeEvent delete(long sequence, long bookId) {
+        return new BookChangeEvent(new BookChangeDTO(sequence, BookChange.Type.DELETE, bookId, null, null, null, null));
+    }
+}
@@ -0,0 +1,178 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.DTO.BookChangeDTO;
+import me.dineka.books_service.DTO.BookChangesDTO;
+import me.dineka.books_service.model.BookChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static me.dineka.books_service.service.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class BookEventStreamTest {
+    @Mock
+    private BookChangeLog bookChangeLog;
+
+    private BookEventStream bookEventStream;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookEventStream = new BookEventStream(bookChangeLog, 2, 2, Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookEventStream.shutdown();
+    }
+
+    @Test
+    @DisplayName("Событие доставляется всем подписчикам")
+    void publish_AllSubscribers() throws InterruptedException {
+        RecordingEmitter first = new RecordingEmitter(1);
+        RecordingEmitter second = new RecordingEmitter(1);
+        bookEventStream.register(first, null);
+        bookEventStream.register(second, null);
+
+        bookEventStream.onChange(new BookChangeEvent(change(1)));
+
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertEquals(List.of("1"), first.ids);
+        assertEquals(List.of("1"), second.ids);
+    }
+
+    @Test
+    @DisplayName("Медленный подписчик отключается, не задерживая остальных")
+    void publish_SlowSubscriberDropped() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(1) {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(builder);
+            }
+        };
+        RecordingEmitter fast = new RecordingEmitter(5);
+        bookEventStream.register(slow, null);
+        bookEventStream.register(fast, null);
+
+        for (int i = 1; i <= 5; i++) {
+            bookEventStream.onChange(new BookChangeEvent(change(i)));
+            assertTrue(fast.awaitIds(i));
+        }
+
+        assertEquals(1, bookEventStream.getSubscriberCount());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Зависшие подписчики отключаются по тайм-ауту отправки и не занимают потоки остальных")
+    void dropStalled_FreesDelivery() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingEmitter> stalled = List.of(stalledEmitter(sending, release), stalledEmitter(sending, release));
+        RecordingEmitter fast = new RecordingEmitter(1);
+        stalled.forEach(emitter -> bookEventStream.register(emitter, null));
+        bookEventStream.onChange(new BookChangeEvent(change(1)));
+        // оба потока доставки заблокированы в отправке зависшим подписчикам
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        bookEventStream.register(fast, null);
+        bookEventStream.onChange(new BookChangeEvent(change(2)));
+        Thread.sleep(100);
+
+        //test
+        bookEventStream.dropStalled();
+
+        //check
+        assertTrue(fast.await());
+        assertEquals(List.of("2"), fast.ids);
+        assertEquals(1, bookEventStream.getSubscriberCount());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Подписчик с Last-Event-ID получает пропущенные события из журнала без дублей")
+    void register_ResumeFromLastEventId() throws InterruptedException {
+        when(bookChangeLog.getChanges(eq("3"), anyInt()))
+                .thenReturn(new BookChangesDTO(List.of(change(4), change(5)), "5", false));
+        RecordingEmitter emitter = new RecordingEmitter(3);
+
+        bookEventStream.register(emitter, "3");
+        bookEventStream.onChange(new BookChangeEvent(change(5)));
+        bookEventStream.onChange(new BookChangeEvent(change(6)));
+
+        assertTrue(emitter.await());
+        assertEquals(List.of("4", "5", "6"), emitter.ids);
+    }
+
+    private static RecordingEmitter stalledEmitter(CountDownLatch sending, CountDownLatch release) {
+        return new RecordingEmitter(1) {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(builder);
+            }
+        };
+    }
+
+    private static BookChangeDTO change(long sequence) {
+        return new BookChangeDTO(sequence, BookChange.Type.UPSERT, sequence, BOOK_TITLE_1, 1L, GENRE_1, PUBLISHING_YEAR_1);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> ids = new CopyOnWriteArrayList<>();
+        private final CountDownLatch received;
+
+        private RecordingEmitter(int expected) {
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            builder.build().stream()
+                    .map(data -> data.getData().toString())
+                    .filter(data -> data.startsWith("id:"))
+                    .forEach(data -> {
+                        ids.add(data.substring(3, data.indexOf('\n')));
+                        received.countDown();
+                    });
+        }
+
+        boolean awaitIds(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (ids.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return ids.size() >= count;
+        }
+
+        boolean await() throws InterruptedException {
+            return received.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -1,22 +1,33 @@
 package me.dineka.books_service.service;
 
 import me.dineka.books_service.DTO.BookResponseDTO;
+import me.dineka.books_service.DTO.BooksDeletedDTO;
 import me.dineka.books_service.DTO.CreateOrUpdateBookDTO;
+import me.dineka.books_service.DTO.PatchBookDTO;
+import me.dineka.books_service.config.ReadWriteRoutingDataSource;
 import me.dineka.books_service.exception.*;
 import me.dineka.books_service.model.Author;
 import me.dineka.books_service.model.Book;
 import me.dineka.books_service.repository.AuthorRepository;
 import me.dineka.books_service.repository.BookRepository;
+import me.dineka.books_service.util.LatencyHistograms;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Sort;
 
+import java.time.Duration;
 import java.time.Year;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 
 import static me.dineka.books_service.service.TestData.*;
 import static me.dineka.books_service.util.Validation.CURRENT_YEAR;
@@ -30,6 +41,12 @@ class BookServiceTest {
     @Mock
     private AuthorRepository authorRepository;
 
+    @Mock
+    private BookChangeLog bookChangeLog;
+
+    @Spy
+    private LatencyHistograms latencyHistograms = new LatencyHistograms(Duration.ofSeconds(10), List.of(Duration.ofSeconds(10)));
+
     @InjectMocks
     private BookService bookService;
 
@@ -193,6 +210,48 @@ class BookServiceTest {
         verify(bookRepository).findById(1L);
     }
 
+    @Test
+    @DisplayName("Закреплённый за основной базой поток не присоединяется к идущей загрузке книги")
+    void testGetBookById_PinnedBypassesSharedLoad() throws Exception {
+        Author author = new Author();
+        author.setId(1L);
+        author.setName(AUTHOR_NAME_1);
+        Book stale = new Book();
+        stale.setId(1L);
+        stale.setTitle(BOOK_TITLE_1);
+        stale.setAuthor(author);
+        Book fresh = new Book();
+        fresh.setId(1L);
+        fresh.setTitle(BOOK_TITLE_2);
+        fresh.setAuthor(author);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookRepository.findById(1L))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return Optional.of(stale);
+                })
+                .thenReturn(Optional.of(fresh));
+        CompletableFuture<BookResponseDTO> shared = CompletableFuture.supplyAsync(() -> bookService.getBookById(1L));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        //test
+        ReadWriteRoutingDataSource.pinToPrimary();
+        BookResponseDTO actual;
+        try {
+            actual = bookService.getBookById(1L);
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+            release.countDown();
+        }
+
+        //check
+        assertEquals(BOOK_TITLE_2, actual.getTitle());
+        assertEquals(BOOK_TITLE_1, shared.get(5, TimeUnit.SECONDS).getTitle());
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
     @Test
     @DisplayName("Выбрасывает исключение когда книга с заданным id не найдена")
     void testGetBookById_Negative_NotFound() {
@@ -229,7 +288,7 @@ class BookServiceTest {
         book2.setAuthor(author2);
 
         List<Book> books = List.of(book1, book2);
-        when(bookRepository.findAll()).thenReturn(books);
+        when(bookRepository.findAll(any(Sort.class))).thenReturn(books);
 
         //test
         List<BookResponseDTO> actual = bookService.getAllBooks();
@@ -250,7 +309,7 @@ class BookServiceTest {
         assertEquals(book2.getYear(), actual.get(1).getYear());
         assertEquals(book2.getAuthor().getId(), actual.get(1).getAuthorId());
 
-        verify(bookRepository, times(1)).findAll();
+        verify(bookRepository, times(1)).findAll(Sort.by("id"));
     }
 
     @Test
@@ -458,26 +517,168 @@ class BookServiceTest {
         assertThrows(BookAlreadyExistsException.class, () -> bookService.updateBook(1L, bookDTO));
     }
 
+    @Test
+    @DisplayName("Частичное обновление жанра не загружает автора и не проверяет дубликат")
+    void patchBook_GenreOnly() {
+        Book book = existingBook();
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        PatchBookDTO patch = new PatchBookDTO();
+        patch.setGenre(GENRE_2);
+
+        //test
+        BookResponseDTO actual = bookService.patchBook(1L, patch);
+
+        //check
+        assertEquals(GENRE_2, actual.getGenre());
+        assertEquals(BOOK_TITLE_1, actual.getTitle());
+        verify(authorRepository, never()).findById(anyLong());
+        verify(bookRepository, never()).existsByTitleIgnoreCaseAndYearAndAuthorIdAndIdNot(any(), anyInt(), any(), any());
+        verify(bookRepository).save(book);
+        verify(bookChangeLog).recordUpsert(book);
+    }
+
+    @Test
+    @DisplayName("Частичное обновление без изменений ничего не записывает")
+    void patchBook_Noop() {
+        Book book = existingBook();
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        PatchBookDTO patch = new PatchBookDTO();
+        patch.setTitle(BOOK_TITLE_1);
+        patch.setYear(PUBLISHING_YEAR_1);
+
+        //test
+        bookService.patchBook(1L, patch);
+
+        //check
+        verify(bookRepository, never()).save(any());
+        verify(bookChangeLog, never()).recordUpsert(any());
+    }
+
+    @Test
+    @DisplayName("Частичное обновление названия проверяет дубликат, исключая саму книгу")
+    void patchBook_TitleDuplicate() {
+        Book book = existingBook();
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorIdAndIdNot(BOOK_TITLE_2, PUBLISHING_YEAR_1, 1L, 1L)).thenReturn(true);
+
+        PatchBookDTO patch = new PatchBookDTO();
+        patch.setTitle(BOOK_TITLE_2);
+
+        //test & check
+        assertThrows(BookAlreadyExistsException.class, () -> bookService.patchBook(1L, patch));
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Частичное обновление отклоняет некорректные и удаляемые поля")
+    void patchBook_Invalid() {
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(existingBook()));
+
+        PatchBookDTO nullTitle = new PatchBookDTO();
+        nullTitle.setTitle(null);
+        PatchBookDTO nullAuthor = new PatchBookDTO();
+        nullAuthor.setAuthorId(null);
+
+        //test & check
+        assertThrows(InvalidBookTitleException.class, () -> bookService.patchBook(1L, nullTitle));
+        assertThrows(InvalidBookAuthorException.class, () -> bookService.patchBook(1L, nullAuthor));
+        verify(bookRepository, never()).save(any());
+    }
+
+    private static Book existingBook() {
+        Author author = new Author();
+        author.setId(1L);
+        author.setName(AUTHOR_NAME_1);
+        author.setBirth_year(BIRTH_YEAR_1);
+
+        Book book = new Book();
+        book.setId(1L);
+        book.setTitle(BOOK_TITLE_1);
+        book.setGenre(GENRE_1);
+        book.setYear(PUBLISHING_YEAR_1);
+        book.setAuthor(author);
+        return book;
+    }
+
     @Test
     @DisplayName("Положительный тест на удаление книги")
     void testDeleteBook_Positive() {
-        when(bookRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.deleteBookById(1L)).thenReturn(1);
 
         // test
         bookService.deleteBook(1L);
 
         // check
-        verify(bookRepository).deleteById(1L);
+        verify(bookRepository).deleteBookById(1L);
+        verify(bookRepository, never()).existsById(anyLong());
+        verify(bookChangeLog).recordDelete(1L);
     }
 
     @Test
     @DisplayName("Выбрасывает исключение когда книга для удаления не найдена")
     void testDeleteBook_Negative() {
-        when(bookRepository.existsById(1L)).thenReturn(false);
+        when(bookRepository.deleteBookById(1L)).thenReturn(0);
 
         assertThrows(BookNotFoundException.class, () -> bookService.deleteBook(1L));
 
-        verify(bookRepository, never()).deleteById(anyLong());
+        verify(bookChangeLog, never()).recordDelete(anyLong());
+    }
+
+    @Test
+    @DisplayName("Массовое удаление книг автора")
+    void testDeleteBooks_ByAuthor() {
+        when(bookRepository.findIdsByAuthorId(1L)).thenReturn(List.of(10L, 11L));
+
+        // test
+        BooksDeletedDTO actual = bookService.deleteBooks(1L, null);
+
+        // check
+        assertEquals(2, actual.getDeleted());
+        verify(bookRepository).deleteBooksByIds(List.of(10L, 11L));
+        verify(bookChangeLog).recordDeletesBatch(List.of(10L, 11L));
+    }
+
+    @Test
+    @DisplayName("Массовое удаление книг автора выполняется частями по MAX_BULK_DELETE_IDS id")
+    void testDeleteBooks_ByAuthorChunked() {
+        List<Long> ids = LongStream.rangeClosed(1, BookService.MAX_BULK_DELETE_IDS * 2L + 1).boxed().toList();
+        when(bookRepository.findIdsByAuthorId(1L)).thenReturn(ids);
+
+        // test
+        BooksDeletedDTO actual = bookService.deleteBooks(1L, null);
+
+        // check
+        assertEquals(ids.size(), actual.getDeleted());
+        verify(bookRepository).deleteBooksByIds(ids.subList(0, BookService.MAX_BULK_DELETE_IDS));
+        verify(bookRepository).deleteBooksByIds(ids.subList(BookService.MAX_BULK_DELETE_IDS, BookService.MAX_BULK_DELETE_IDS * 2));
+        verify(bookRepository).deleteBooksByIds(ids.subList(BookService.MAX_BULK_DELETE_IDS * 2, ids.size()));
+        verify(bookChangeLog).recordDeletesBatch(ids);
+    }
+
+    @Test
+    @DisplayName("Массовое удаление по списку id пропускает несуществующие книги")
+    void testDeleteBooks_ByIds() {
+        when(bookRepository.findExistingIds(List.of(10L, 99L))).thenReturn(List.of(10L));
+
+        // test
+        BooksDeletedDTO actual = bookService.deleteBooks(null, List.of(10L, 99L));
+
+        // check
+        assertEquals(List.of(10L), actual.getIds());
+        verify(bookRepository).deleteBooksByIds(List.of(10L));
+        verify(bookChangeLog).recordDeletesBatch(List.of(10L));
+    }
+
+    @Test
+    @DisplayName("Массовое удаление требует ровно один фильтр")
+    void testDeleteBooks_InvalidFilter() {
+        assertThrows(InvalidBulkDeleteException.class, () -> bookService.deleteBooks(null, null));
+        assertThrows(InvalidBulkDeleteException.class, () -> bookService.deleteBooks(null, List.of()));
+        assertThrows(InvalidBulkDeleteException.class, () -> bookService.deleteBooks(1L, List.of(10L)));
+
+        verify(bookRepository, never()).deleteBooksByIds(any());
     }
 
-}
\ No newline at end of file
+}
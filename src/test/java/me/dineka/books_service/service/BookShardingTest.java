@@ -0,0 +1,203 @@
+package me.dineka.books_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.dineka.books_service.model.CatalogCounter;
+import me.dineka.books_service.repository.CatalogCounterRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "books.sharding.enabled=true",
+        "books.sharding.shard-count=3",
+        "books.sharding.relay-interval=PT1H"
+})
+@AutoConfigureMockMvc
+class BookShardingTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookShardRouter bookShardRouter;
+
+    @Autowired
+    private ShardOutboxRelay shardOutboxRelay;
+
+    @Autowired
+    private CatalogCounterRepository catalogCounterRepository;
+
+    @Test
+    @DisplayName("Jump hash: при добавлении шарда ключи переезжают только на новый шард")
+    void jumpHash_MinimalMovement() {
+        int[] perShard = new int[4];
+        for (long key = 1; key <= 10_000; key++) {
+            int before = BookShardRouter.jumpHash(key, 3);
+            int after = BookShardRouter.jumpHash(key, 4);
+            assertTrue(after == before || after == 3);
+            perShard[after]++;
+        }
+        for (int count : perShard) {
+            assertTrue(count > 2_000 && count < 3_000, "неравномерное распределение: " + count);
+        }
+    }
+
+    @Test
+    @DisplayName("Книга хранится на шарде автора, список собирается со всех шардов по возрастанию id")
+    void books_RoutedByAuthor() throws Exception {
+        List<Long> bookIds = new ArrayList<>();
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            long authorId = addAuthor();
+            long bookId = addBook(authorId);
+            int shard = bookShardRouter.shardOf(authorId);
+            shards.add(shard);
+            bookIds.add(bookId);
+
+            assertEquals(shard, bookShardRouter.locate(bookId));
+            assertEquals(shard + 1, bookId / BookShardRouter.SHARD_ID_RANGE);
+            mockMvc.perform(get("/books/{id}", bookId)).andExpect(status().isOk());
+        }
+        assertTrue(shards.size() > 1);
+
+        List<Long> listed = new ArrayList<>();
+        for (JsonNode book : json(mockMvc.perform(get("/books")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString())) {
+            listed.add(book.get("id").asLong());
+        }
+        assertTrue(listed.containsAll(bookIds));
+        assertEquals(listed.stream().sorted().toList(), listed);
+    }
+
+    @Test
+    @DisplayName("Смена автора переносит книгу на шард нового автора")
+    void updateBook_MovesBetweenShards() throws Exception {
+        long authorId = addAuthor();
+        long otherAuthorId = addAuthor();
+        while (bookShardRouter.shardOf(otherAuthorId) == bookShardRouter.shardOf(authorId)) {
+            otherAuthorId = addAuthor();
+        }
+        long bookId = addBook(authorId);
+
+        //test
+        mockMvc.perform(patch("/books/{id}", bookId).contentType("application/merge-patch+json")
+                        .content("{\"authorId\":" + otherAuthorId + "}"))
+                .andExpect(status().isOk());
+
+        //check
+        assertEquals(bookShardRouter.shardOf(otherAuthorId), bookShardRouter.locate(bookId));
+        JsonNode book = json(mockMvc.perform(get("/books/{id}", bookId)).andReturn().getResponse().getContentAsString());
+        assertEquals(otherAuthorId, book.get("authorId").asLong());
+    }
+
+    @Test
+    @DisplayName("Журналы шардов переносятся в глобальный журнал изменений")
+    void changes_RelayedToGlobalLog() throws Exception {
+        shardOutboxRelay.relay();
+        String latest = latestToken();
+
+        long bookId = addBook(addAuthor());
+        mockMvc.perform(delete("/books/{id}", bookId)).andExpect(status().isNoContent());
+        assertEquals(2, shardOutboxRelay.relay());
+
+        JsonNode changes = json(mockMvc.perform(get("/books/changes").param("since", latest).param("limit", "10"))
+                .andReturn().getResponse().getContentAsString()).get("changes");
+        assertEquals(2, changes.size());
+        assertEquals("UPSERT", changes.get(0).get("type").asText());
+        assertEquals("DELETE", changes.get(1).get("type").asText());
+        assertEquals(bookId, changes.get(1).get("bookId").asLong());
+    }
+
+    @Test
+    @DisplayName("Перебалансировка переносит книги под новое количество шардов")
+    void rebalance_MovesBooks() throws Exception {
+        List<Long> authorIds = new ArrayList<>();
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            long authorId = addAuthor();
+            authorIds.add(authorId);
+            bookIds.add(addBook(authorId));
+        }
+
+        try {
+            //test
+            bookShardRouter.rebalance(2);
+
+            //check
+            assertEquals(0, bookShardRouter.countBooks(2));
+            assertEquals(Optional.of(2L), catalogCounterRepository.findTotal(CatalogCounter.ACTIVE_SHARDS));
+            for (int i = 0; i < authorIds.size(); i++) {
+                assertEquals(BookShardRouter.jumpHash(authorIds.get(i), 2), bookShardRouter.locate(bookIds.get(i)));
+                mockMvc.perform(get("/books/{id}", bookIds.get(i))).andExpect(status().isOk());
+            }
+        } finally {
+            bookShardRouter.rebalance(3);
+        }
+        for (int i = 0; i < authorIds.size(); i++) {
+            assertEquals(bookShardRouter.shardOf(authorIds.get(i)), bookShardRouter.locate(bookIds.get(i)));
+        }
+    }
+
+    private String latestToken() throws Exception {
+        String token = "0";
+        JsonNode page;
+        do {
+            page = json(mockMvc.perform(get("/books/changes").param("since", token).param("limit", "1000"))
+                    .andReturn().getResponse().getContentAsString());
+            token = page.get("nextToken").asText();
+        } while (page.get("hasMore").asBoolean());
+        return token;
+    }
+
+    private long addAuthor() throws Exception {
+        String response = mockMvc.perform(post("/authors").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Шард " + letters() + "\",\"birth_year\":1950}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return json(response).get("id").asLong();
+    }
+
+    private long addBook(long authorId) throws Exception {
+        String response = mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Книга " + letters() + "\",\"genre\":\"Роман\",\"year\":2000,\"authorId\":" + authorId + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return json(response).get("id").asLong();
+    }
+
+    private JsonNode json(String content) throws Exception {
+        return objectMapper.readTree(content);
+    }
+
+    /**
+     * Уникальный суффикс из букв: имена авторов не допускают цифр.
+     */
+    private static String letters() {
+        int n = SEQUENCE.incrementAndGet() + 5000;
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('а' + n % 32));
+            n /= 32;
+        } while (n > 0);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,192 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.repository.BookChangeRepository;
+import me.dineka.books_service.repository.BookRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Импорт каталога из CSV. Своя база, чтобы импортированные книги не попадали в списки других тестов.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-import",
+        "books.import.chunk-size=1KB",
+        "books.import.batch-size=7"
+})
+class CatalogImporterTest {
+    @Autowired
+    private CatalogImporter catalogImporter;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookChangeRepository bookChangeRepository;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    @DisplayName("Импорт: авторы создаются один раз, некорректные строки и дубликаты попадают в файл отклонённых")
+    void importFile() throws Exception {
+        Author existing = new Author();
+        existing.setName("Импортный Автор");
+        existing.setBirth_year(1950);
+        authorRepository.save(existing);
+        Book existingBook = new Book();
+        existingBook.setTitle("Старая книга");
+        existingBook.setGenre("Роман");
+        existingBook.setYear(2000);
+        existingBook.setAuthor(existing);
+        bookRepository.save(existingBook);
+        long booksBefore = bookRepository.count();
+        long changesBefore = bookChangeRepository.count();
+
+        Path file = dir.resolve("books.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("title,genre,year,author,author_birth_year\r\n");
+            for (int i = 0; i < 100; i++) {
+                writer.write("Книга " + i + ",Роман," + (1990 + i % 30) + ",Новый Автор " + letters(i % 10) + ",1960\n");
+            }
+            writer.write("\"Книга, с запятой\",Роман,2001,\"Импортный Автор\",1950\n");
+            writer.write("старая книга,Роман,2000,импортный автор ,1950\n");
+            writer.write("Книга,Роман,год,Новый Автор б,1960\n");
+            writer.write("Книга <script>,Роман,2001,Новый Автор б,1960\n");
+            writer.write("Книга,Роман,2001\n");
+            writer.write("\"Незакрытая,Роман,2001,Новый Автор б,1960\n");
+            writer.write("Без года рождения,Роман,2001,Новый Автор б,");
+        }
+
+        //test
+        CatalogImporter.Report report = catalogImporter.importFile(file);
+
+        //check
+        assertEquals(107, report.rows());
+        assertEquals(102, report.imported());
+        assertEquals(5, report.rejected());
+        assertEquals(11, report.authorsCreated());
+        assertEquals(booksBefore + 102, bookRepository.count());
+        assertEquals(changesBefore + 102, bookChangeRepository.count());
+        assertTrue(bookRepository.existsByTitleIgnoreCaseAndYearAndAuthorId("Книга, с запятой", 2001, existing.getId()));
+
+        List<String> rejected = Files.readAllLines(report.rejectedFile(), StandardCharsets.UTF_8);
+        assertEquals("title,genre,year,author,author_birth_year,error", rejected.get(0));
+        assertEquals(6, rejected.size());
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("старая книга") && line.contains("уже существует")));
+    }
+
+    @Test
+    @DisplayName("Импорт: повторы книги нового автора внутри файла и в разных частях файла отклоняются")
+    void importFile_RepeatedRows() throws Exception {
+        long booksBefore = bookRepository.count();
+        Path file = dir.resolve("repeats.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("title,genre,year,author,author_birth_year\n");
+            writer.write("Повтор,Роман,2000,Повторный Автор,1970\n");
+            writer.write("Повтор,Роман,2000,Повторный Автор,1970\n");
+            for (int i = 0; i < 50; i++) {
+                writer.write("Заполнение " + i + ",Роман,2000,Повторный Автор,1970\n");
+            }
+            writer.write("ПОВТОР,Роман,2000,Повторный Автор,1970\n");
+            writer.write("Повтор,Роман,2001,Повторный Автор,1970\n");
+        }
+
+        //test
+        CatalogImporter.Report report = catalogImporter.importFile(file);
+
+        //check
+        assertEquals(54, report.rows());
+        assertEquals(52, report.imported());
+        assertEquals(2, report.rejected());
+        assertEquals(booksBefore + 52, bookRepository.count());
+        List<String> rejected = Files.readAllLines(report.rejectedFile(), StandardCharsets.UTF_8);
+        assertTrue(rejected.stream().skip(1).allMatch(line -> line.contains("уже существует")));
+    }
+
+    @Test
+    @DisplayName("Импорт: книга, изданная раньше года рождения автора, отклоняется, как и в API")
+    void importFile_YearBeforeBirthYear() throws Exception {
+        long booksBefore = bookRepository.count();
+        Path file = dir.resolve("years.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("title,genre,year,author,author_birth_year\n");
+            writer.write("Раньше автора,Роман,1969,Молодой Автор,1970\n");
+            writer.write("В год рождения,Роман,1970,Молодой Автор,1970\n");
+        }
+
+        //test
+        CatalogImporter.Report report = catalogImporter.importFile(file);
+
+        //check
+        assertEquals(2, report.rows());
+        assertEquals(1, report.imported());
+        assertEquals(1, report.rejected());
+        assertEquals(booksBefore + 1, bookRepository.count());
+        List<String> rejected = Files.readAllLines(report.rejectedFile(), StandardCharsets.UTF_8);
+        assertEquals(2, rejected.size());
+        assertTrue(rejected.get(1).startsWith("Раньше автора") && rejected.get(1).contains("раньше года рождения автора"));
+    }
+
+    @Test
+    @DisplayName("Пустой файл с заголовком: отклонённых строк нет, файл отклонённых удаляется")
+    void importFile_HeaderOnly() throws Exception {
+        Path file = dir.resolve("empty.csv");
+        Files.writeString(file, "title,genre,year,author,author_birth_year\n");
+
+        //test
+        CatalogImporter.Report report = catalogImporter.importFile(file);
+
+        //check
+        assertEquals(0, report.rows());
+        assertNull(report.rejectedFile());
+        assertFalse(Files.exists(dir.resolve("empty.csv.rejected.csv")));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Скорость импорта: 1 000 000 строк")
+    void importFile_Throughput() throws Exception {
+        Path file = dir.resolve("large.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("title,genre,year,author,author_birth_year\n");
+            for (int i = 0; i < 1_000_000; i++) {
+                writer.write("Книга номер " + i + ",Роман," + (1900 + i % 120) + ",Автор " + letters(i % 20_000) + ",1950\n");
+            }
+        }
+
+        CatalogImporter.Report report = catalogImporter.importFile(file);
+
+        System.out.printf("Импорт: %d строк за %d мс, %d строк/с%n", report.rows(), report.elapsed().toMillis(), report.rowsPerSecond());
+        assertEquals(1_000_000, report.imported());
+    }
+
+    /**
+     * Имя из букв по номеру: имена авторов не допускают цифр.
+     */
+    private static String letters(int n) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('а' + n % 32));
+            n /= 32;
+        } while (n > 0);
+        return sb.toString();
+    }
+}
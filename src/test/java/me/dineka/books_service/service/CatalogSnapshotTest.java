@@ -0,0 +1,153 @@
+package me.dineka.books_service.service;
+
+import me.dineka.books_service.model.Author;
+import me.dineka.books_service.model.Book;
+import me.dineka.books_service.repository.AuthorRepository;
+import me.dineka.books_service.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Выгрузка и загрузка снимка каталога. Своя база: тесты очищают каталог перед загрузкой.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-snapshot",
+        "books.snapshot.block-size=3"
+})
+class CatalogSnapshotTest {
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path dir;
+
+    @BeforeEach
+    void setUp() {
+        clear();
+    }
+
+    @Test
+    @DisplayName("Снимок восстанавливает авторов и книги с теми же id, новые записи получают следующие id")
+    void exportAndLoad() throws Exception {
+        List<Author> authors = new ArrayList<>();
+        for (String name : List.of("Марк Макаров", "Вадим Михайлов", "И.А. Родинский", "Анна")) {
+            Author author = new Author();
+            author.setName(name);
+            author.setBirth_year(name.equals("Анна") ? null : 1950 + authors.size());
+            authors.add(authorRepository.save(author));
+        }
+        String[] genres = {"Роман", "Фэнтези", "Нон-фикшн"};
+        for (int i = 0; i < 10; i++) {
+            Book book = new Book();
+            book.setTitle("Книга " + i % 4);
+            book.setGenre(genres[i % 3]);
+            book.setYear(2024 - i * 7);
+            book.setAuthor(authors.get(i % authors.size()));
+            bookRepository.save(book);
+        }
+        List<Map<String, Object>> authorsBefore = jdbcTemplate.queryForList("select id, name, birth_year, normalized_name from author order by id");
+        List<Map<String, Object>> booksBefore = jdbcTemplate.queryForList("select id, title, author_id, \"year\", genre from book order by id");
+        Path file = dir.resolve("catalog.snap");
+
+        //test
+        CatalogSnapshot.Summary exported = catalogSnapshot.export(file);
+        clear();
+        CatalogSnapshot.Summary loaded = catalogSnapshot.load(file);
+
+        //check
+        assertEquals(4, exported.authors());
+        assertEquals(10, exported.books());
+        assertEquals(Files.size(file), exported.bytes());
+        assertEquals(4, loaded.authors());
+        assertEquals(10, loaded.books());
+        assertEquals(authorsBefore, jdbcTemplate.queryForList("select id, name, birth_year, normalized_name from author order by id"));
+        assertEquals(booksBefore, jdbcTemplate.queryForList("select id, title, author_id, \"year\", genre from book order by id"));
+
+        Author next = new Author();
+        next.setName("Новый автор");
+        assertTrue(authorRepository.save(next).getId() > authors.get(authors.size() - 1).getId());
+    }
+
+    @Test
+    @DisplayName("Повреждённый снимок и непустой каталог отклоняются")
+    void load_Rejected() throws Exception {
+        Author author = new Author();
+        author.setName("Марк Макаров");
+        authorRepository.save(author);
+        Path file = dir.resolve("catalog.snap");
+        catalogSnapshot.export(file);
+
+        //check
+        assertThrows(IllegalStateException.class, () -> catalogSnapshot.load(file));
+
+        clear();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x55;
+        Path corrupted = dir.resolve("corrupted.snap");
+        Files.write(corrupted, bytes);
+        assertThrows(IOException.class, () -> catalogSnapshot.load(corrupted));
+
+        Path truncated = dir.resolve("truncated.snap");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(file), bytes.length - 4));
+        assertThrows(IOException.class, () -> catalogSnapshot.load(truncated));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Скорость снимка: 1 000 000 книг")
+    void exportAndLoad_Throughput() throws Exception {
+        List<Object[]> authors = new ArrayList<>();
+        for (long id = 1; id <= 50_000; id++) {
+            authors.add(new Object[]{id, "Автор " + id, 1950, "автор " + id});
+        }
+        jdbcTemplate.batchUpdate("insert into author (id, name, birth_year, normalized_name) values (?, ?, ?, ?)", authors);
+        String[] genres = {"Роман", "Фэнтези", "Нон-фикшн", "Детектив", "Поэзия"};
+        List<Object[]> books = new ArrayList<>();
+        for (long id = 1; id <= 1_000_000; id++) {
+            books.add(new Object[]{id, "Книга номер " + id, 1 + id % 50_000, (int) (1900 + id % 120), genres[(int) (id % genres.length)]});
+            if (books.size() == 50_000) {
+                jdbcTemplate.batchUpdate("insert into book (id, title, author_id, \"year\", genre) values (?, ?, ?, ?, ?)", books);
+                books.clear();
+            }
+        }
+        Path file = dir.resolve("large.snap");
+
+        CatalogSnapshot.Summary exported = catalogSnapshot.export(file);
+        clear();
+        CatalogSnapshot.Summary loaded = catalogSnapshot.load(file);
+
+        System.out.printf("Снимок: %d байт, выгрузка %d мс, загрузка %d мс%n",
+                exported.bytes(), exported.elapsed().toMillis(), loaded.elapsed().toMillis());
+        assertEquals(1_000_000, loaded.books());
+    }
+
+    private void clear() {
+        jdbcTemplate.update("delete from book");
+        jdbcTemplate.update("delete from author");
+    }
+}
@@ -0,0 +1,58 @@
+package me.dineka.books_service.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CatalogWarmupTest {
+    private final AuthorService authorService = mock(AuthorService.class);
+    private final BookColumnStore bookColumnStore = mock(BookColumnStore.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    @Test
+    @DisplayName("Фоновый прогрев: до окончания приложение не готово, затем готовность публикуется")
+    void start_Async() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(authorService).initCatalog();
+        CatalogWarmup warmup = new CatalogWarmup(authorService, bookColumnStore, eventPublisher, true);
+
+        //test
+        warmup.start();
+        warmup.onReadinessChange(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+
+        //check
+        assertFalse(warmup.isReady());
+        release.countDown();
+        verify(bookColumnStore, timeout(5000)).rebuild();
+        verify(eventPublisher, timeout(5000).times(2)).publishEvent(any(AvailabilityChangeEvent.class));
+        assertTrue(warmup.isReady());
+        ArgumentCaptor<AvailabilityChangeEvent<ReadinessState>> events = ArgumentCaptor.forClass(AvailabilityChangeEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(ReadinessState.REFUSING_TRAFFIC, events.getAllValues().get(0).getState());
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, events.getAllValues().get(1).getState());
+    }
+
+    @Test
+    @DisplayName("Прогрев без фона выполняется при старте, ошибка не оставляет приложение закрытым")
+    void start_SyncFailure() {
+        doThrow(new IllegalStateException("база недоступна")).when(authorService).initCatalog();
+        CatalogWarmup warmup = new CatalogWarmup(authorService, bookColumnStore, eventPublisher, false);
+
+        //test
+        warmup.start();
+
+        //check
+        assertTrue(warmup.isReady());
+        verify(bookColumnStore, never()).rebuild();
+        verifyNoInteractions(eventPublisher);
+    }
+}
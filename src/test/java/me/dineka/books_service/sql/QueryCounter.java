@@ -0,0 +1,88 @@
+package me.dineka.books_service.sql;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Считает SQL-выражения, прошедшие через проксированный {@link javax.sql.DataSource}.
+ *
+ * <p>Каждый элемент batch-выполнения считается отдельным выражением. Считаются только выражения потока,
+ * вызвавшего {@link #reset()}: запрос MockMvc выполняется в потоке теста, а выражения задач {@code @Scheduled}
+ * и других фоновых потоков в бюджет не попадают.</p>
+ */
+public class QueryCounter implements QueryExecutionListener {
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private volatile Thread owner;
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (Thread.currentThread() != owner) {
+            return;
+        }
+        for (QueryInfo queryInfo : queryInfoList) {
+            int times = Math.max(1, queryInfo.getParametersList().size());
+            for (int i = 0; i < times; i++) {
+                statements.add(queryInfo.getQuery());
+            }
+        }
+    }
+
+    /**
+     * Очищает выражения и начинает считать выражения текущего потока.
+     */
+    public void reset() {
+        owner = Thread.currentThread();
+        statements.clear();
+    }
+
+    public List<String> getStatements() {
+        return new ArrayList<>(statements);
+    }
+
+    public long count(String prefix) {
+        return statements.stream()
+                .filter(sql -> sql.stripLeading().regionMatches(true, 0, prefix, 0, prefix.length()))
+                .count();
+    }
+
+    /**
+     * Проверяет точное количество выражений, при расхождении печатает выполненный SQL.
+     *
+     * @param expected ожидаемое количество выражений
+     */
+    public void assertStatements(int expected) {
+        List<String> actual = getStatements();
+        if (actual.size() != expected) {
+            fail("Ожидалось SQL-выражений: " + expected + ", выполнено: " + actual.size() + "\n" + format(actual));
+        }
+    }
+
+    /**
+     * Проверяет точное количество выражений с заданным префиксом ({@code select}, {@code insert}, ...).
+     *
+     * @param prefix   начало SQL-выражения без учёта регистра
+     * @param expected ожидаемое количество выражений
+     */
+    public void assertStatements(String prefix, int expected) {
+        long actual = count(prefix);
+        if (actual != expected) {
+            fail("Ожидалось выражений " + prefix + ": " + expected + ", выполнено: " + actual + "\n" + format(getStatements()));
+        }
+    }
+
+    private static String format(List<String> statements) {
+        return statements.stream().map(sql -> "  " + sql).collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,43 @@
+package me.dineka.books_service.sql;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Role;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает {@link DataSource} приложения в прокси, передающий каждое выражение в {@link QueryCounter}.
+ */
+@TestConfiguration
+public class QueryCountingConfig {
+
+    /**
+     * Счётчик нужен постпроцессору до создания остальных бинов, поэтому объявлен инфраструктурным:
+     * постпроцессоры к нему не применяются.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static QueryCounter queryCounter() {
+        return new QueryCounter();
+    }
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(QueryCounter queryCounter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(queryCounter)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
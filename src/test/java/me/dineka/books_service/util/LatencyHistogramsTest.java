@@ -0,0 +1,58 @@
+package me.dineka.books_service.util;
+
+import me.dineka.books_service.DTO.LatencyStatsDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramsTest {
+    private final LatencyHistograms histograms = new LatencyHistograms(Duration.ofSeconds(10),
+            List.of(Duration.ofSeconds(10), Duration.ofSeconds(30)));
+
+    @Test
+    @DisplayName("Окна складываются из закрытых интервалов, старые интервалы выпадают из окна")
+    void getStats_Windows() {
+        LatencyHistograms.Timer timer = histograms.timer("BookService.addBook", "validation");
+        long now = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            timer.record(now - 2_000_000);
+        }
+        histograms.rotate();
+        timer.record(now - 50_000_000);
+        histograms.rotate();
+        //запись в незакрытом интервале в окна не попадает
+        timer.record(now);
+
+        //test
+        List<LatencyStatsDTO> actual = histograms.getStats();
+
+        //check
+        assertEquals(2, actual.size());
+        LatencyStatsDTO last = actual.get(0);
+        assertEquals("PT10S", last.getWindow());
+        assertEquals(1, last.getCount());
+        assertTrue(last.getP50Micros() >= 50_000);
+        LatencyStatsDTO wide = actual.get(1);
+        assertEquals("PT30S", wide.getWindow());
+        assertEquals(101, wide.getCount());
+        assertTrue(wide.getP50Micros() >= 2_000 && wide.getP50Micros() < 50_000);
+        assertTrue(wide.getMaxMicros() >= 50_000);
+
+        for (int i = 0; i < 4; i++) {
+            histograms.rotate();
+        }
+        assertTrue(histograms.getStats().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Один таймер на операцию и этап")
+    void timer_SameInstance() {
+        //test & check
+        assertSame(histograms.timer("GET /books", "total"), histograms.timer("GET /books", "total"));
+        assertNotSame(histograms.timer("GET /books", "total"), histograms.timer("GET /books", "serialize"));
+    }
+}
@@ -0,0 +1,68 @@
+package me.dineka.books_service.util;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SamplingTurboFilterTest {
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = new LoggerContext();
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setMarker(LogMarkers.NOT_FOUND.getName());
+        filter.setEvery(5);
+        filter.start();
+        context.addTurboFilter(filter);
+        appender.setContext(context);
+        appender.start();
+        logger = context.getLogger("test");
+        logger.addAppender(appender);
+    }
+
+    @Test
+    @DisplayName("Пропускает одно из N событий с маркером, аргументы отброшенных не форматируются")
+    void sample() {
+        AtomicInteger formatted = new AtomicInteger();
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                formatted.incrementAndGet();
+                return "42";
+            }
+        };
+
+        //test
+        for (int i = 0; i < 10; i++) {
+            logger.info(LogMarkers.NOT_FOUND, "Книга с id {} не найдена", argument);
+        }
+        appender.list.forEach(ILoggingEvent::getFormattedMessage);
+
+        //check
+        assertEquals(2, appender.list.size());
+        assertEquals(2, formatted.get());
+    }
+
+    @Test
+    @DisplayName("События без маркера и с другим маркером не отбрасываются")
+    void otherEvents() {
+        //test
+        for (int i = 0; i < 3; i++) {
+            logger.info("Добавлена книга");
+            logger.info(LogMarkers.INVALID_REQUEST, "Некорректный запрос");
+        }
+
+        //check
+        assertEquals(6, appender.list.size());
+    }
+}
@@ -0,0 +1,94 @@
+package me.dineka.books_service.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    @Test
+    @DisplayName("Одновременные загрузки одного ключа выполняются один раз")
+    void load_Coalesced() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "книга";
+            })));
+        }
+        awaitInFlight(singleFlight, loads);
+        Thread.sleep(50);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("книга", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlightCount());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Ошибка загрузки получают все ожидающие, ключ освобождается")
+    void load_Failure() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                throw new IllegalStateException("нет соединения");
+            })));
+        }
+        awaitInFlight(singleFlight, loads);
+        Thread.sleep(50);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertEquals(0, singleFlight.inFlightCount());
+        assertEquals("повтор", singleFlight.load(1L, () -> "повтор"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Разные ключи загружаются независимо")
+    void load_DifferentKeys() {
+        SingleFlight<Long, Long> singleFlight = new SingleFlight<>();
+        assertEquals(1L, singleFlight.load(1L, () -> 1L));
+        assertEquals(2L, singleFlight.load(2L, () -> 2L));
+    }
+
+    private static void awaitInFlight(SingleFlight<?, ?> singleFlight, AtomicInteger loads) throws InterruptedException {
+        while (loads.get() == 0 || singleFlight.inFlightCount() == 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}